@@ -0,0 +1,68 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.benchmarks;
+
+import java.nio.file.Paths;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import utils.DataTableCache;
+import utils.Utilities;
+
+/**
+ * A class for benchmarking on the datasets bundled in the
+ * discoveringDependencies folder, or in the folder given by the system
+ * property fodiscovery.datasets
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+@State(Scope.Benchmark)
+public class BundledTable extends TableState {
+
+	@Param({ "abalone.arff", "australian.arff" })
+	public String dataset;
+
+	@Override
+	int maxBins() {
+		return Utilities.NUM_MAX_BINS;
+	}
+
+	@Override
+	int numBinsTarget() {
+		return Utilities.NUM_BINS_TARGET;
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		String folder = System.getProperty("fodiscovery.datasets", "discoveringDependencies");
+		setUp(DataTableCache.parse(Paths.get(folder, dataset).toString()));
+	}
+
+}
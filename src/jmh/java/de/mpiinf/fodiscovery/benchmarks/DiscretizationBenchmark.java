@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.benchmarks;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mpiinf.fodiscovery.scoring.CodedTable;
+import de.unibonn.realkd.algorithms.functional.BeamFunctionalPatternSearch;
+import de.unibonn.realkd.algorithms.functional.BeamFunctionalPatternSearch.DiscretizationTypeOption;
+import de.unibonn.realkd.algorithms.functional.BeamFunctionalPatternSearch.OptimisticEstimatorOption;
+import de.unibonn.realkd.common.workspace.Workspace;
+import de.unibonn.realkd.common.workspace.Workspaces;
+import de.unibonn.realkd.data.table.DataTable;
+import de.unibonn.realkd.data.table.DataTables;
+import de.unibonn.realkd.patterns.functional.FunctionalPattern;
+import utils.DataTableColumns;
+import utils.Utilities;
+
+/**
+ * A class for benchmarking discretization:
+ * <ul>
+ * <li>equalFrequency: equal-frequency discretization of every attribute into
+ * integer codes, as done once per target by -ENGINE NATIVE</li>
+ * <li>preDiscretizeTarget: the realKD pre-discretization of the target, as
+ * done once per target by both engines</li>
+ * <li>greedySearch: a realKD greedy search with beam width 1 for each
+ * -DISCTYPE. realKD discretizes the descriptors of every candidate within the
+ * search, and has no separate entry point for COP cut points, so the
+ * difference between the types is the cost of their discretization</li>
+ * </ul>
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiscretizationBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class DiscretizationType {
+
+		@Param({ "EF", "COP", "PRE" })
+		public String discType;
+
+	}
+
+	@Benchmark
+	public CodedTable equalFrequencyBundled(BundledTable table) {
+		return equalFrequency(table);
+	}
+
+	@Benchmark
+	public CodedTable equalFrequencyGenerated(GeneratedTable table) {
+		return equalFrequency(table);
+	}
+
+	@Benchmark
+	public DataTable preDiscretizeTargetBundled(BundledTable table) {
+		return preDiscretizeTarget(table);
+	}
+
+	@Benchmark
+	public DataTable preDiscretizeTargetGenerated(GeneratedTable table) {
+		return preDiscretizeTarget(table);
+	}
+
+	@Benchmark
+	public Collection<FunctionalPattern> greedySearchBundled(BundledTable table, DiscretizationType type)
+			throws Exception {
+		return greedySearch(table, type);
+	}
+
+	@Benchmark
+	public Collection<FunctionalPattern> greedySearchGenerated(GeneratedTable table, DiscretizationType type)
+			throws Exception {
+		return greedySearch(table, type);
+	}
+
+	private static CodedTable equalFrequency(TableState table) {
+		return DataTableColumns.codedTable(table.dataTable, table.target, table.maxBins(), table.numBinsTarget());
+	}
+
+	private static DataTable preDiscretizeTarget(TableState table) {
+		return DataTables.preDiscretizeTable(table.dataTable,
+				DataTables.equalFrequencyDiscretization(table.numBinsTarget()), Collections.singleton(table.target));
+	}
+
+	private static Collection<FunctionalPattern> greedySearch(TableState table, DiscretizationType type)
+			throws Exception {
+		Workspace workspace = Workspaces.workspace();
+		workspace.add(table.dataWithPreDiscretizedTarget);
+		BeamFunctionalPatternSearch functionalPatternSearch = new BeamFunctionalPatternSearch(workspace);
+		functionalPatternSearch.target(table.dataWithPreDiscretizedTarget.attribute(table.target));
+		functionalPatternSearch.topK(1);
+		functionalPatternSearch.beamWidth(1);
+		functionalPatternSearch.optimisticOption(OptimisticEstimatorOption.CHAIN);
+		functionalPatternSearch.refPropagationOption(Utilities.REF_PROP);
+		functionalPatternSearch.maxBins(table.maxBins());
+		functionalPatternSearch.cutPointMultiplier(Utilities.CUT_POINT_MULTIPLIER);
+		functionalPatternSearch.discTypeOption(DiscretizationTypeOption.valueOf(type.discType));
+		return functionalPatternSearch.call();
+	}
+
+}
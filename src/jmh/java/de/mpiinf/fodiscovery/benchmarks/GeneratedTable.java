@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.unibonn.realkd.data.Populations;
+import de.unibonn.realkd.data.table.DataTable;
+import de.unibonn.realkd.data.table.DataTables;
+import de.unibonn.realkd.data.table.attribute.Attribute;
+import de.unibonn.realkd.data.table.attribute.Attributes;
+import utils.DataTableColumns;
+
+/**
+ * A class for benchmarking on generated tables of metric attributes. Every
+ * attribute takes one of cardinality levels plus uniform noise within the
+ * level, so that equal-frequency discretization into cardinality bins recovers
+ * the levels. The target, the last attribute, is the sum of the levels of the
+ * first two attributes modulo cardinality, replaced by a random level in 10%
+ * of the rows.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+@State(Scope.Benchmark)
+public class GeneratedTable extends TableState {
+
+	public static final double NOISE = 0.1;
+
+	public static final long SEED = 0;
+
+	@Param({ "10000", "100000" })
+	public int rows;
+
+	@Param({ "10", "20" })
+	public int attributes;
+
+	@Param({ "5", "20" })
+	public int cardinality;
+
+	@Override
+	int maxBins() {
+		return cardinality;
+	}
+
+	@Override
+	int numBinsTarget() {
+		return cardinality;
+	}
+
+	@Setup
+	public void setUp() {
+		setUp(table(rows, attributes, cardinality, SEED));
+	}
+
+	public static DataTable table(int rows, int numberOfAttributes, int cardinality, long seed) {
+		Random random = new Random(seed);
+		int[][] levels = new int[numberOfAttributes][rows];
+		for (int column = 0; column < numberOfAttributes - 1; column++) {
+			for (int row = 0; row < rows; row++) {
+				levels[column][row] = random.nextInt(cardinality);
+			}
+		}
+		int target = numberOfAttributes - 1;
+		for (int row = 0; row < rows; row++) {
+			levels[target][row] = random.nextDouble() < NOISE || target < 2 ? random.nextInt(cardinality)
+					: (levels[0][row] + levels[1][row]) % cardinality;
+		}
+		List<Attribute<?>> attributes = new ArrayList<>(numberOfAttributes);
+		for (int column = 0; column < numberOfAttributes; column++) {
+			List<Double> values = new ArrayList<>(rows);
+			for (int row = 0; row < rows; row++) {
+				values.add(levels[column][row] + random.nextDouble());
+			}
+			String caption = column == target ? "Target" : "A" + (column + 1);
+			attributes.add(Attributes.metricDoubleAttribute(DataTableColumns.identifier(caption), caption, "",
+					values));
+		}
+		String caption = "Generated_" + rows + "_" + numberOfAttributes + "_" + cardinality;
+		return DataTables.table(DataTableColumns.identifier(caption), caption, "",
+				Populations.population(DataTableColumns.identifier(caption), rows), attributes);
+	}
+
+}
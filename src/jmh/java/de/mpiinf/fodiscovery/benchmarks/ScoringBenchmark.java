@@ -0,0 +1,156 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.mpiinf.fodiscovery.scoring.Evaluation;
+import de.mpiinf.fodiscovery.scoring.ExpectedMutualInformation;
+import de.mpiinf.fodiscovery.scoring.OptimisticEstimator;
+import de.mpiinf.fodiscovery.scoring.StrippedPartition;
+import de.unibonn.realkd.patterns.functional.FractionOfInformation;
+import de.unibonn.realkd.patterns.functional.ReliableFractionOfInformation;
+
+/**
+ * A class for benchmarking the scoring of a single node of the search, i.e.,
+ * of the descriptor set of a {@link TableState}:
+ * <ul>
+ * <li>score: fraction of information, reliable fraction of information and the
+ * CHAIN bound from the partition of the set, as when the parent partition is
+ * cached. The expected mutual information of every row marginal is memoized
+ * after the first invocation, as in a search</li>
+ * <li>refineAndScore: the same, refining the columns of the set first, as when
+ * the partition cache is disabled</li>
+ * <li>expectedMutualInformation: the expected mutual information of the
+ * partition of the set under the permutation model, without memoized
+ * values</li>
+ * <li>realKDScore: fraction of information and reliable fraction of
+ * information of the same set as measured by realKD, as searched by -ENGINE
+ * REALKD</li>
+ * <li>realKDExpectedMutualInformation: the expected mutual information of the
+ * same set as measured by realKD</li>
+ * </ul>
+ * The realKD benchmarks score the set on a table pre-discretized into the bins
+ * of the native ones, so that the two engines measure the same dependency.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoringBenchmark {
+
+	@Benchmark
+	public Evaluation scoreBundled(BundledTable table) {
+		return score(table);
+	}
+
+	@Benchmark
+	public Evaluation scoreGenerated(GeneratedTable table) {
+		return score(table);
+	}
+
+	@Benchmark
+	public Evaluation refineAndScoreBundled(BundledTable table) {
+		return refineAndScore(table);
+	}
+
+	@Benchmark
+	public Evaluation refineAndScoreGenerated(GeneratedTable table) {
+		return refineAndScore(table);
+	}
+
+	@Benchmark
+	public double expectedMutualInformationBundled(BundledTable table) {
+		return expectedMutualInformation(table);
+	}
+
+	@Benchmark
+	public double expectedMutualInformationGenerated(GeneratedTable table) {
+		return expectedMutualInformation(table);
+	}
+
+	@Benchmark
+	public double[] realKDScoreBundled(BundledTable table) {
+		return realKDScore(table);
+	}
+
+	@Benchmark
+	public double[] realKDScoreGenerated(GeneratedTable table) {
+		return realKDScore(table);
+	}
+
+	@Benchmark
+	public double realKDExpectedMutualInformationBundled(BundledTable table) {
+		return realKDExpectedMutualInformation(table);
+	}
+
+	@Benchmark
+	public double realKDExpectedMutualInformationGenerated(GeneratedTable table) {
+		return realKDExpectedMutualInformation(table);
+	}
+
+	private static Evaluation score(TableState table) {
+		return table.evaluator.evaluate(table.partition, OptimisticEstimator.CHAIN);
+	}
+
+	private static Evaluation refineAndScore(TableState table) {
+		return table.evaluator.evaluate(table.attributes, OptimisticEstimator.CHAIN);
+	}
+
+	private static double expectedMutualInformation(TableState table) {
+		StrippedPartition partition = table.partition;
+		ExpectedMutualInformation expectation = new ExpectedMutualInformation(partition.numberOfRows(),
+				table.targetMarginals);
+		double expectedMutualInformation = partition.singletons() * expectation.of(1);
+		for (int c = 0; c < partition.numberOfClasses(); c++) {
+			expectedMutualInformation += expectation.of(partition.classSize(c));
+		}
+		return expectedMutualInformation;
+	}
+
+	private static double[] realKDScore(TableState table) {
+		return new double[] { FractionOfInformation.FRACTION_OF_INFORMATION.perform(table.relation).value(),
+				ReliableFractionOfInformation.RELIABLE_FRACTION_OF_INFORMATION.perform(table.relation).value() };
+	}
+
+	private static double realKDExpectedMutualInformation(TableState table) {
+		return de.unibonn.realkd.patterns.functional.ExpectedMutualInformation.EXPECTED_MUTUAL_INFORMATION
+				.perform(table.relation).value();
+	}
+
+}
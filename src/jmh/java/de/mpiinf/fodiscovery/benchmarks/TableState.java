@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.benchmarks;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import de.mpiinf.fodiscovery.scoring.CodedTable;
+import de.mpiinf.fodiscovery.scoring.FractionOfInformation;
+import de.mpiinf.fodiscovery.scoring.PartitionCache;
+import de.mpiinf.fodiscovery.scoring.StrippedPartition;
+import de.unibonn.realkd.data.table.DataTable;
+import de.unibonn.realkd.data.table.DataTables;
+import de.unibonn.realkd.data.table.attribute.Attribute;
+import de.unibonn.realkd.patterns.functional.BinaryAttributeSetRelation;
+import de.unibonn.realkd.patterns.functional.FunctionalPatterns;
+import utils.DataTableColumns;
+
+/**
+ * A class for the state shared by the benchmarks of one table: the table, its
+ * coded version with the last attribute as target, and the descriptor set
+ * that scoring benchmarks evaluate, i.e., the first three other attributes,
+ * both as a stripped partition and as a realKD relation
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public abstract class TableState {
+
+	public static final int DESCRIPTOR_SIZE = 3;
+
+	DataTable dataTable;
+
+	int target;
+
+	/**
+	 * The table with the target pre-discretized by realKD, as searched by
+	 * -ENGINE REALKD
+	 */
+	DataTable dataWithPreDiscretizedTarget;
+
+	CodedTable codedTable;
+
+	int[] targetMarginals;
+
+	int[] attributes;
+
+	StrippedPartition partition;
+
+	/**
+	 * Evaluates without a partition cache, so that every evaluation of the
+	 * attribute set refines the columns again
+	 */
+	FractionOfInformation evaluator;
+
+	/**
+	 * The descriptor set and the target as a realKD relation, on a table where
+	 * realKD pre-discretized the descriptor set into the equal-frequency bins
+	 * of the coded table, so that both engines score the same dependency
+	 */
+	BinaryAttributeSetRelation relation;
+
+	/**
+	 * The number of equal-frequency bins of metric descriptors
+	 */
+	abstract int maxBins();
+
+	/**
+	 * The number of equal-frequency bins of a metric target
+	 */
+	abstract int numBinsTarget();
+
+	void setUp(DataTable dataTable) {
+		this.dataTable = dataTable;
+		this.target = dataTable.numberOfAttributes() - 1;
+		this.dataWithPreDiscretizedTarget = DataTables.preDiscretizeTable(dataTable,
+				DataTables.equalFrequencyDiscretization(numBinsTarget()), Collections.singleton(target));
+		this.codedTable = DataTableColumns.codedTable(dataTable, target, maxBins(), numBinsTarget());
+		this.targetMarginals = new int[codedTable.cardinality(target)];
+		for (int code : codedTable.codes(target)) {
+			targetMarginals[code]++;
+		}
+		this.attributes = new int[Math.min(DESCRIPTOR_SIZE, target)];
+		for (int i = 0; i < attributes.length; i++) {
+			attributes[i] = i;
+		}
+		PartitionCache partitionCache = new PartitionCache(PartitionCache.BUDGET_MB);
+		new FractionOfInformation(codedTable, target, partitionCache).expandable(attributes);
+		this.partition = attributes.length == 1
+				? StrippedPartition.of(codedTable.codes(attributes[0]), codedTable.cardinality(attributes[0]))
+				: partitionCache.get(attributes);
+		this.evaluator = new FractionOfInformation(codedTable, target, new PartitionCache(0));
+		Set<Integer> descriptorIndices = new HashSet<>();
+		for (int attribute : attributes) {
+			descriptorIndices.add(attribute);
+		}
+		DataTable preDiscretized = DataTables.preDiscretizeTable(dataWithPreDiscretizedTarget,
+				DataTables.equalFrequencyDiscretization(maxBins()), descriptorIndices);
+		Set<Attribute<?>> domain = new HashSet<>();
+		for (int attribute : attributes) {
+			domain.add(preDiscretized.attribute(attribute));
+		}
+		this.relation = FunctionalPatterns.binaryAttributeSetRelation(preDiscretized, domain,
+				Collections.singleton(preDiscretized.attribute(target)));
+	}
+
+}
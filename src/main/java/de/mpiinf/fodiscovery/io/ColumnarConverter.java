@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.io;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import de.unibonn.realkd.data.table.DataTable;
+import de.unibonn.realkd.data.xarf.XarfImport;
+import utils.Utilities;
+
+/**
+ * A class for converting ARFF, XARF and CSV datasets to the binary columnar
+ * format, which is loaded without text parsing by all entry points when the
+ * dataset file has the {@value ColumnarFormat#EXTENSION} extension
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class ColumnarConverter {
+
+	public static void main(String[] args) throws Exception {
+		String dataset = Utilities.dataset(args);
+		String output = Utilities.output(args);
+		if (output.isEmpty()) {
+			output = ColumnarFormat.columnarFileName(dataset);
+		}
+
+		long start = System.currentTimeMillis();
+		XarfImport builder = XarfImport.xarfImport(dataset);
+		DataTable dataTable = builder.get();
+		long parsed = System.currentTimeMillis();
+		ColumnarWriter.of(dataTable).write(Paths.get(output));
+		long written = System.currentTimeMillis();
+
+		System.out.println("Parsed " + dataset + " in " + (parsed - start) / 1000.0 + "s");
+		System.out.println("Wrote " + output + " (" + Files.size(Paths.get(output)) + " bytes) in "
+				+ (written - parsed) / 1000.0 + "s");
+	}
+
+}
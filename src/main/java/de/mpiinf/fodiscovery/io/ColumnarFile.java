@@ -0,0 +1,300 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.io;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.unibonn.realkd.data.Populations;
+import de.unibonn.realkd.data.table.DataTable;
+import de.unibonn.realkd.data.table.DataTables;
+import de.unibonn.realkd.data.table.attribute.Attribute;
+import de.unibonn.realkd.data.table.attribute.Attributes;
+import utils.DataTableColumns;
+
+/**
+ * A dataset in the binary columnar format, with the data block of every column
+ * memory-mapped. Only the header is read on opening, and the data is paged in
+ * by the operating system when it is accessed. A single mapping is limited to
+ * 2GB, so every block is mapped in segments of {@value #SEGMENT_ROWS} rows.
+ * 
+ * @see ColumnarFormat
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class ColumnarFile {
+
+	static final int SEGMENT_SHIFT = 27;
+
+	/**
+	 * The rows of a mapped segment, 1GB of doubles
+	 */
+	static final int SEGMENT_ROWS = 1 << SEGMENT_SHIFT;
+
+	private static final int SEGMENT_MASK = SEGMENT_ROWS - 1;
+
+	private final String caption;
+
+	private final String description;
+
+	private final int numberOfRows;
+
+	private final byte[] types;
+
+	private final String[] captions;
+
+	private final String[] descriptions;
+
+	private final List<List<String>> categories = new ArrayList<>();
+
+	private final IntBuffer[][] codes;
+
+	private final DoubleBuffer[][] values;
+
+	private ColumnarFile(Path file) throws IOException {
+		long[] offsets;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != ColumnarFormat.MAGIC) {
+				throw new IOException("Not a columnar dataset: " + file);
+			}
+			int version = in.readInt();
+			if (version != ColumnarFormat.VERSION) {
+				throw new IOException("Unsupported columnar format version " + version + ": " + file);
+			}
+			numberOfRows = in.readInt();
+			int numberOfColumns = in.readInt();
+			caption = readString(in);
+			description = readString(in);
+			types = new byte[numberOfColumns];
+			captions = new String[numberOfColumns];
+			descriptions = new String[numberOfColumns];
+			offsets = new long[numberOfColumns];
+			for (int i = 0; i < numberOfColumns; i++) {
+				types[i] = in.readByte();
+				captions[i] = readString(in);
+				descriptions[i] = readString(in);
+				List<String> columnCategories = new ArrayList<>();
+				if (types[i] == ColumnarFormat.CATEGORIC) {
+					int numberOfCategories = in.readInt();
+					for (int j = 0; j < numberOfCategories; j++) {
+						columnCategories.add(readString(in));
+					}
+				}
+				categories.add(Collections.unmodifiableList(columnCategories));
+				offsets[i] = in.readLong();
+			}
+		}
+
+		codes = new IntBuffer[types.length][];
+		values = new DoubleBuffer[types.length][];
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			for (int i = 0; i < types.length; i++) {
+				if (types[i] == ColumnarFormat.CATEGORIC) {
+					codes[i] = mapCodes(channel, offsets[i], numberOfRows);
+				} else {
+					values[i] = mapValues(channel, offsets[i], numberOfRows);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Maps a block of int codes in segments of {@value #SEGMENT_ROWS} rows
+	 */
+	static IntBuffer[] mapCodes(FileChannel channel, long offset, int numberOfRows) throws IOException {
+		IntBuffer[] segments = new IntBuffer[numberOfSegments(numberOfRows)];
+		for (int segment = 0; segment < segments.length; segment++) {
+			long rows = Math.min(SEGMENT_ROWS, numberOfRows - (long) segment * SEGMENT_ROWS);
+			segments[segment] = channel.map(MapMode.READ_ONLY, offset + 4L * segment * SEGMENT_ROWS, 4L * rows)
+					.asIntBuffer();
+		}
+		return segments;
+	}
+
+	/**
+	 * Maps a block of double values in segments of {@value #SEGMENT_ROWS} rows
+	 */
+	static DoubleBuffer[] mapValues(FileChannel channel, long offset, int numberOfRows) throws IOException {
+		DoubleBuffer[] segments = new DoubleBuffer[numberOfSegments(numberOfRows)];
+		for (int segment = 0; segment < segments.length; segment++) {
+			long rows = Math.min(SEGMENT_ROWS, numberOfRows - (long) segment * SEGMENT_ROWS);
+			segments[segment] = channel.map(MapMode.READ_ONLY, offset + 8L * segment * SEGMENT_ROWS, 8L * rows)
+					.asDoubleBuffer();
+		}
+		return segments;
+	}
+
+	private static int numberOfSegments(int numberOfRows) {
+		return (int) ((numberOfRows + (long) SEGMENT_ROWS - 1) >>> SEGMENT_SHIFT);
+	}
+
+	/**
+	 * The code at a row of a block mapped by
+	 * {@link #mapCodes(FileChannel, long, int)}
+	 */
+	static int code(IntBuffer[] segments, int row) {
+		return segments[row >>> SEGMENT_SHIFT].get(row & SEGMENT_MASK);
+	}
+
+	/**
+	 * The value at a row of a block mapped by
+	 * {@link #mapValues(FileChannel, long, int)}
+	 */
+	static double value(DoubleBuffer[] segments, int row) {
+		return segments[row >>> SEGMENT_SHIFT].get(row & SEGMENT_MASK);
+	}
+
+	public static ColumnarFile open(Path file) throws IOException {
+		return new ColumnarFile(file);
+	}
+
+	/**
+	 * Loads a columnar dataset as a data table, without going through text
+	 */
+	public static DataTable load(String dataset) throws IOException {
+		return open(Paths.get(dataset)).toDataTable();
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public String caption() {
+		return caption;
+	}
+
+	public String description() {
+		return description;
+	}
+
+	public int numberOfRows() {
+		return numberOfRows;
+	}
+
+	public int numberOfColumns() {
+		return types.length;
+	}
+
+	public boolean isCategoric(int column) {
+		return types[column] == ColumnarFormat.CATEGORIC;
+	}
+
+	public String caption(int column) {
+		return captions[column];
+	}
+
+	public String description(int column) {
+		return descriptions[column];
+	}
+
+	public List<String> categories(int column) {
+		return categories.get(column);
+	}
+
+	/**
+	 * The code of a categoric column at a row, or
+	 * {@link ColumnarFormat#MISSING_CODE}
+	 */
+	public int code(int column, int row) {
+		return code(codes[column], row);
+	}
+
+	/**
+	 * The value of a numeric column at a row, or NaN if missing
+	 */
+	public double value(int column, int row) {
+		return value(values[column], row);
+	}
+
+	/**
+	 * Builds a data table whose attributes read their values through views of
+	 * the mapped blocks, so that no intermediate copy of the data is made here.
+	 * The views box every value they return. With -ENGINE NATIVE every value is
+	 * read once into the codes of the search, so the data is never copied to
+	 * the heap as objects. The realKD engine builds its own structures from the
+	 * attributes, e.g., sorted values, which box and copy the data anyway, and
+	 * then the views only save parsing the text.
+	 */
+	public DataTable toDataTable() {
+		List<Attribute<?>> attributes = new ArrayList<>(types.length);
+		for (int i = 0; i < types.length; i++) {
+			final int column = i;
+			if (isCategoric(column)) {
+				List<String> columnCategories = categories(column);
+				List<String> columnValues = new AbstractList<String>() {
+					@Override
+					public String get(int row) {
+						int code = code(column, row);
+						return code == ColumnarFormat.MISSING_CODE ? null : columnCategories.get(code);
+					}
+
+					@Override
+					public int size() {
+						return numberOfRows;
+					}
+				};
+				attributes.add(Attributes.categoricalAttribute(DataTableColumns.identifier(captions[column]),
+						captions[column], descriptions[column], columnValues, String.class));
+			} else {
+				List<Double> columnValues = new AbstractList<Double>() {
+					@Override
+					public Double get(int row) {
+						double value = value(column, row);
+						return Double.isNaN(value) ? null : value;
+					}
+
+					@Override
+					public int size() {
+						return numberOfRows;
+					}
+				};
+				attributes.add(Attributes.metricDoubleAttribute(DataTableColumns.identifier(captions[column]),
+						captions[column], descriptions[column], columnValues));
+			}
+		}
+		return DataTables.table(DataTableColumns.identifier(caption), caption, description,
+				Populations.population(DataTableColumns.identifier(caption), numberOfRows), attributes);
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.io;
+
+/**
+ * The binary columnar dataset format. A file consists of a header followed by
+ * one data block per column:
+ *
+ * <pre>
+ * int     magic, version, number of rows, number of columns
+ * string  caption, description of the table
+ * per column:
+ *   byte    type (CATEGORIC or NUMERIC)
+ *   string  caption, description
+ *   int     number of categories, followed by that many strings (categoric only)
+ *   long    offset of the data block from the start of the file
+ * data blocks, 8-byte aligned:
+ *   categoric: one int code per row, index into the categories or MISSING_CODE
+ *   numeric:   one double per row, NaN if missing
+ * </pre>
+ *
+ * Strings are an int byte length followed by UTF-8 bytes, and all numbers are
+ * big-endian.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class ColumnarFormat {
+
+	public static final int MAGIC = 0x464f4443;
+
+	public static final int VERSION = 1;
+
+	public static final byte CATEGORIC = 0;
+
+	public static final byte NUMERIC = 1;
+
+	public static final int MISSING_CODE = -1;
+
+	public static final String EXTENSION = ".fodc";
+
+	public static boolean isColumnar(String dataset) {
+		return dataset.endsWith(EXTENSION);
+	}
+
+	/**
+	 * Returns the file name of the columnar version of a dataset, by replacing
+	 * its extension
+	 */
+	public static String columnarFileName(String dataset) {
+		int dot = dataset.lastIndexOf('.');
+		int separator = Math.max(dataset.lastIndexOf('/'), dataset.lastIndexOf('\\'));
+		return (dot > separator ? dataset.substring(0, dot) : dataset) + EXTENSION;
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntUnaryOperator;
+
+import de.unibonn.realkd.data.table.DataTable;
+import de.unibonn.realkd.data.table.attribute.Attribute;
+import de.unibonn.realkd.data.table.attribute.MetricAttribute;
+import utils.DataTableColumns;
+
+/**
+ * A class for writing datasets in the binary columnar format. Columns are added
+ * as functions from row to code or value, and are written one after the other
+ * by {@link #write(Path)}.
+ * 
+ * @see ColumnarFormat
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class ColumnarWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final String caption;
+
+	private final String description;
+
+	private final int numberOfRows;
+
+	private final List<Column> columns = new ArrayList<>();
+
+	private static class Column {
+		private final byte type;
+		private final String caption;
+		private final String description;
+		private final List<String> categories;
+		private final IntUnaryOperator codes;
+		private final IntToDoubleFunction values;
+
+		private Column(byte type, String caption, String description, List<String> categories, IntUnaryOperator codes,
+				IntToDoubleFunction values) {
+			this.type = type;
+			this.caption = caption;
+			this.description = description;
+			this.categories = categories;
+			this.codes = codes;
+			this.values = values;
+		}
+	}
+
+	public ColumnarWriter(String caption, String description, int numberOfRows) {
+		this.caption = caption;
+		this.description = description;
+		this.numberOfRows = numberOfRows;
+	}
+
+	/**
+	 * @param codes
+	 *            the index into the categories of every row, or
+	 *            {@link ColumnarFormat#MISSING_CODE}
+	 */
+	public ColumnarWriter addCategoric(String caption, String description, List<String> categories,
+			IntUnaryOperator codes) {
+		columns.add(new Column(ColumnarFormat.CATEGORIC, caption, description, categories, codes, null));
+		return this;
+	}
+
+	/**
+	 * @param values
+	 *            the value of every row, or NaN if missing
+	 */
+	public ColumnarWriter addNumeric(String caption, String description, IntToDoubleFunction values) {
+		columns.add(new Column(ColumnarFormat.NUMERIC, caption, description, null, null, values));
+		return this;
+	}
+
+	/**
+	 * Returns a writer for all attributes of a table. Metric attributes become
+	 * numeric columns and all others categoric ones.
+	 */
+	public static ColumnarWriter of(DataTable dataTable) {
+		int numberOfRows = dataTable.population().size();
+		ColumnarWriter writer = new ColumnarWriter(dataTable.caption(), dataTable.description(), numberOfRows);
+		for (int column = 0; column < dataTable.numberOfAttributes(); column++) {
+			Attribute<?> attribute = dataTable.attribute(column);
+			if (attribute instanceof MetricAttribute) {
+				MetricAttribute metric = (MetricAttribute) attribute;
+				writer.addNumeric(attribute.caption(), attribute.description(),
+						row -> metric.valueMissing(row) ? Double.NaN : metric.value(row));
+			} else {
+				List<String> categories = new ArrayList<>();
+				int[] codes = DataTableColumns.codes(dataTable, column, categories);
+				writer.addCategoric(attribute.caption(), attribute.description(), categories, row -> codes[row]);
+			}
+		}
+		return writer;
+	}
+
+	public void write(Path file) throws IOException {
+		// the header is built twice, the second time with the offsets of the blocks
+		long[] offsets = new long[columns.size()];
+		byte[] header = header(offsets);
+		long offset = align(header.length);
+		for (int i = 0; i < columns.size(); i++) {
+			offsets[i] = offset;
+			offset += numberOfRows * (columns.get(i).type == ColumnarFormat.CATEGORIC ? 4L : 8L);
+			offset = align(offset);
+		}
+		header = header(offsets);
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			writeFully(channel, ByteBuffer.wrap(header));
+			for (int i = 0; i < columns.size(); i++) {
+				Column column = columns.get(i);
+				pad(channel, offsets[i]);
+				for (int row = 0; row < numberOfRows; row++) {
+					if (buffer.remaining() < 8) {
+						buffer.flip();
+						writeFully(channel, buffer);
+						buffer.clear();
+					}
+					if (column.type == ColumnarFormat.CATEGORIC) {
+						buffer.putInt(column.codes.applyAsInt(row));
+					} else {
+						buffer.putDouble(column.values.applyAsDouble(row));
+					}
+				}
+				buffer.flip();
+				writeFully(channel, buffer);
+				buffer.clear();
+			}
+		}
+	}
+
+	private byte[] header(long[] offsets) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(ColumnarFormat.MAGIC);
+		out.writeInt(ColumnarFormat.VERSION);
+		out.writeInt(numberOfRows);
+		out.writeInt(columns.size());
+		writeString(out, caption);
+		writeString(out, description);
+		for (int i = 0; i < columns.size(); i++) {
+			Column column = columns.get(i);
+			out.writeByte(column.type);
+			writeString(out, column.caption);
+			writeString(out, column.description);
+			if (column.type == ColumnarFormat.CATEGORIC) {
+				out.writeInt(column.categories.size());
+				for (String category : column.categories) {
+					writeString(out, category);
+				}
+			}
+			out.writeLong(offsets[i]);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = (string == null ? "" : string).getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static long align(long offset) {
+		return (offset + 7) & ~7L;
+	}
+
+	private static void pad(FileChannel channel, long offset) throws IOException {
+		if (channel.position() < offset) {
+			writeFully(channel, ByteBuffer.allocate((int) (offset - channel.position())));
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+}
@@ -0,0 +1,271 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import de.mpiinf.fodiscovery.scoring.PartitionCache;
+import de.mpiinf.fodiscovery.search.FunctionalDependency;
+import de.mpiinf.fodiscovery.search.OPUSSearch;
+
+/**
+ * A class for the statistics of an OPUS search on one target, as written by
+ * FoOPUS and FoOPUSs, both to the text output file and as fields of a
+ * {@link ResultsWriter}. Statistics that a search does not have keep their
+ * defaults, e.g., no timeout, a single thread or no alpha sweep, and are left
+ * out of the text output.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class OPUSReport {
+
+	private final int numberOfDescriptors;
+
+	private double alpha;
+
+	private double effectiveAlpha;
+
+	private String alphaName;
+
+	private int numberOfAlphas;
+
+	private List<OPUSSearch.Guarantee> guarantees;
+
+	private long timeout;
+
+	private boolean timedOut;
+
+	private double remainingBound = Double.NEGATIVE_INFINITY;
+
+	private int boundaryMB;
+
+	private int boundaryRuns;
+
+	private int boundaryMerges;
+
+	private long spilledNodes;
+
+	private long spilledBytes;
+
+	private int nodes;
+
+	private int nodesDiscardedPotential;
+
+	private int nodesDiscardedPruning;
+
+	private int threads = 1;
+
+	private int[] nodesPerThread;
+
+	private double cpuUtilization = 1;
+
+	private int maxDepth;
+
+	private int solutionDepth;
+
+	private int maxBoundarySize;
+
+	private PartitionCache partitionCache;
+
+	/**
+	 * @param numberOfDescriptors
+	 *            the number of attributes other than the target, whose subsets
+	 *            are the search space
+	 */
+	public OPUSReport(int numberOfDescriptors) {
+		this.numberOfDescriptors = numberOfDescriptors;
+	}
+
+	public OPUSReport alpha(double alpha, double effectiveAlpha) {
+		this.alpha = alpha;
+		this.effectiveAlpha = effectiveAlpha;
+		return this;
+	}
+
+	/**
+	 * The guarantees met by a search with a list of alphas, or null if it had
+	 * one alpha
+	 */
+	public OPUSReport guarantees(String alphaName, int numberOfAlphas, List<OPUSSearch.Guarantee> guarantees) {
+		this.alphaName = alphaName;
+		this.numberOfAlphas = numberOfAlphas;
+		this.guarantees = guarantees;
+		return this;
+	}
+
+	public OPUSReport timeout(long timeout, boolean timedOut, double remainingBound) {
+		this.timeout = timeout;
+		this.timedOut = timedOut;
+		this.remainingBound = remainingBound;
+		return this;
+	}
+
+	public OPUSReport boundary(int boundaryMB, int boundaryRuns, int boundaryMerges, long spilledNodes,
+			long spilledBytes) {
+		this.boundaryMB = boundaryMB;
+		this.boundaryRuns = boundaryRuns;
+		this.boundaryMerges = boundaryMerges;
+		this.spilledNodes = spilledNodes;
+		this.spilledBytes = spilledBytes;
+		return this;
+	}
+
+	public OPUSReport nodes(int nodes, int nodesDiscardedPotential, int nodesDiscardedPruning) {
+		this.nodes = nodes;
+		this.nodesDiscardedPotential = nodesDiscardedPotential;
+		this.nodesDiscardedPruning = nodesDiscardedPruning;
+		return this;
+	}
+
+	/**
+	 * The nodes created by every thread, or null if the search did not
+	 * report them
+	 */
+	public OPUSReport threads(int threads, int[] nodesPerThread, double cpuUtilization) {
+		this.threads = threads;
+		this.nodesPerThread = nodesPerThread;
+		this.cpuUtilization = cpuUtilization;
+		return this;
+	}
+
+	public OPUSReport depths(int maxDepth, int solutionDepth, int maxBoundarySize) {
+		this.maxDepth = maxDepth;
+		this.solutionDepth = solutionDepth;
+		this.maxBoundarySize = maxBoundarySize;
+		return this;
+	}
+
+	/**
+	 * The partition cache of the native engine, or null
+	 */
+	public OPUSReport partitionCache(PartitionCache partitionCache) {
+		this.partitionCache = partitionCache;
+		return this;
+	}
+
+	/**
+	 * Writes the alpha of the search, the guarantees of an alpha sweep and the
+	 * timeout to the text output
+	 */
+	public void writeAlphas(BufferedWriter writer) throws IOException {
+		writer.write("Alpha used: " + alpha);
+		writer.write("\n");
+		if (guarantees != null) {
+			writer.write("Alpha sweep: " + alphaName + ", " + guarantees.size() + " of " + numberOfAlphas
+					+ " guarantees met");
+			writer.write("\n");
+			for (OPUSSearch.Guarantee guarantee : guarantees) {
+				writer.write("Alpha " + guarantee.alpha() + ": met at time " + guarantee.runningTime() / 1000.0
+						+ ", nodes created " + guarantee.nodesCreated() + ", dependencies:");
+				writer.write("\n");
+				for (FunctionalDependency dependency : guarantee.results()) {
+					writer.write(dependency.toString());
+					writer.write("\n");
+				}
+			}
+		}
+		if (timeout > 0) {
+			writer.write("Timeout: " + timeout / 1000.0 + (timedOut ? ", timed out" : ", not reached"));
+			writer.write("\n");
+			if (timedOut) {
+				writer.write("Best remaining bound: " + remainingBound);
+				writer.write("\n");
+			}
+			writer.write("Effective alpha: " + effectiveAlpha);
+			writer.write("\n");
+		}
+	}
+
+	/**
+	 * Writes the boundary spills, the nodes, the threads, the depths and the
+	 * partition cache of the search to the text output
+	 */
+	public void writeStatistics(BufferedWriter writer) throws IOException {
+		if (boundaryMB > 0) {
+			writer.write("Boundary spills: runs " + boundaryRuns + ", merges " + boundaryMerges + ", nodes "
+					+ spilledNodes + ", bytes " + spilledBytes + " (budget " + boundaryMB + " MB)");
+			writer.write("\n");
+		}
+		writer.write("Search space: " + (Math.pow(2, numberOfDescriptors)));
+		writer.write("\n");
+		writer.write("Nodes created: " + nodes);
+		writer.write("\n");
+		if (threads > 1 && nodesPerThread != null) {
+			writer.write("Threads: " + threads);
+			writer.write("\n");
+			writer.write("Nodes created per thread: " + Arrays.toString(nodesPerThread));
+			writer.write("\n");
+			writer.write("CPU utilization: " + cpuUtilization);
+			writer.write("\n");
+		}
+		writer.write("Nodes discarded potential: " + nodesDiscardedPotential);
+		writer.write("\n");
+		writer.write("Nodes discarded rules: " + nodesDiscardedPruning);
+		writer.write("\n");
+		writer.write("Pruned search space percentage: "
+				+ (100 - (1.0 * 100 * nodes) / (Math.pow(2, numberOfDescriptors))));
+		writer.write("\n");
+		writer.write("Max depth: " + maxDepth);
+		writer.write("\n");
+		writer.write("Solution depth: " + solutionDepth);
+		writer.write("\n");
+		writer.write("Max boundary size: " + maxBoundarySize);
+		writer.write("\n");
+		if (partitionCache != null) {
+			writer.write("Partition cache size: " + partitionCache.size());
+			writer.write("\n");
+			writer.write("Partition cache hit rate: " + partitionCache.hitRate());
+			writer.write("\n");
+			writer.write("Partition cache evictions: " + partitionCache.evictions());
+			writer.write("\n");
+			writer.write("Partition cache bytes: " + partitionCache.bytes() + " (saved by compression: "
+					+ partitionCache.bytesSaved() + ")");
+			writer.write("\n");
+		}
+	}
+
+	/**
+	 * Adds the fields of the run to the structured output
+	 */
+	public void fields(ResultsWriter results, String dataset, boolean nativeEngine, int k) {
+		results.field("dataset", dataset).field("algorithm", "OPUS")
+				.field("engine", nativeEngine ? "NATIVE" : "REALKD").field("k", k).field("alpha", alpha).field("effectiveAlpha", effectiveAlpha)
+				.field("nodesCreated", nodes).field("nodesDiscarded", nodesDiscardedPotential)
+				.field("maxDepth", maxDepth).field("solutionDepth", solutionDepth)
+				.field("maxBoundarySize", maxBoundarySize);
+		if (guarantees != null) {
+			results.field("alphas", alphaName);
+			for (OPUSSearch.Guarantee guarantee : guarantees) {
+				results.field("nodesCreatedAlpha" + guarantee.alpha(), guarantee.nodesCreated());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,330 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.mpiinf.fodiscovery.scoring.Evaluation;
+import de.mpiinf.fodiscovery.search.FunctionalDependency;
+import de.unibonn.realkd.common.measures.Measurement;
+import de.unibonn.realkd.data.table.attribute.Attribute;
+import de.unibonn.realkd.patterns.functional.BinaryAttributeSetRelation;
+import de.unibonn.realkd.patterns.functional.FunctionalPattern;
+
+/**
+ * A class for writing the results of a run as JSON or CSV next to its text
+ * output file, with one record per dependency and typed fields for its
+ * descriptor, target and scores. The run is described by named fields, e.g.,
+ * the dataset and the search parameters, and by the wall-clock times of its
+ * phases in seconds.
+ *
+ * A JSON file is one object with the fields of the run, an object "phases"
+ * and an array "dependencies". A CSV file has one row per dependency, which
+ * repeats the fields of the run and the times of its phases, in columns named
+ * after the phase followed by "Time", before those of the dependency. The
+ * attributes of a descriptor are separated by semicolons.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class ResultsWriter {
+
+	public enum Format {
+		TEXT, JSON, CSV
+	}
+
+	/**
+	 * The captions of the realKD measures of a functional pattern, in the order
+	 * of the scores of a record
+	 */
+	private static final String[] REALKD_MEASURES = { "Co-domain entropy", "mutual information",
+			"expected mutual information", "fraction of information", "reliable fraction of information" };
+
+	private static final String[] DEPENDENCY_FIELDS = { "rank", "descriptor", "target", "entropy",
+			"mutualInformation", "expectedMutualInformation", "fractionOfInformation",
+			"reliableFractionOfInformation" };
+
+	private final Format format;
+
+	private final Map<String, Object> fields = new LinkedHashMap<>();
+
+	private final Map<String, Long> phases = new LinkedHashMap<>();
+
+	/**
+	 * The descriptor, target and scores of a dependency
+	 */
+	private static class Record {
+
+		private final String[] descriptor;
+
+		private final String target;
+
+		private final double[] scores;
+
+		private Record(String[] descriptor, String target, double[] scores) {
+			this.descriptor = descriptor;
+			this.target = target;
+			this.scores = scores;
+		}
+	}
+
+	public ResultsWriter(Format format) {
+		this.format = format;
+	}
+
+	/**
+	 * Adds a field of the run, a string, number or boolean
+	 */
+	public ResultsWriter field(String name, Object value) {
+		fields.put(name, value);
+		return this;
+	}
+
+	/**
+	 * Adds the wall-clock time of a phase of the run in milliseconds
+	 */
+	public ResultsWriter phase(String name, long time) {
+		phases.put(name, time);
+		return this;
+	}
+
+	/**
+	 * The phases added so far, as a line of the text output
+	 */
+	public String phasesLine() {
+		StringBuilder line = new StringBuilder();
+		for (Map.Entry<String, Long> phase : phases.entrySet()) {
+			line.append(line.length() == 0 ? "" : ", ").append(phase.getKey()).append(" ")
+					.append(phase.getValue() / 1000.0);
+		}
+		return "Phase times: " + line;
+	}
+
+	/**
+	 * Returns the file name of the structured output of a text output file, by
+	 * replacing its extension
+	 */
+	public String fileName(String textFile) {
+		String extension = "." + format.toString().toLowerCase();
+		return textFile.endsWith(".txt") ? textFile.substring(0, textFile.length() - 4) + extension
+				: textFile + extension;
+	}
+
+	/**
+	 * Writes the results next to the text output file, unless the format is
+	 * TEXT
+	 *
+	 * @param patterns
+	 *            the dependencies of the native search or the patterns of
+	 *            realKD, in order
+	 */
+	public void write(String textFile, Collection<?> patterns) throws IOException {
+		if (format == Format.TEXT) {
+			return;
+		}
+		List<Record> records = new ArrayList<>(patterns.size());
+		for (Object pattern : patterns) {
+			records.add(record(pattern));
+		}
+		try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(fileName(textFile)))) {
+			if (format == Format.JSON) {
+				writeJson(writer, records);
+			} else {
+				writeCsv(writer, records);
+			}
+		}
+	}
+
+	private void writeJson(BufferedWriter writer, List<Record> records) throws IOException {
+		writer.write("{");
+		for (Map.Entry<String, Object> field : fields.entrySet()) {
+			writer.write(quote(field.getKey()) + ":" + json(field.getValue()) + ",");
+		}
+		writer.write("\"phases\":{");
+		int i = 0;
+		for (Map.Entry<String, Long> phase : phases.entrySet()) {
+			writer.write((i++ == 0 ? "" : ",") + quote(phase.getKey()) + ":" + phase.getValue() / 1000.0);
+		}
+		writer.write("},");
+		writer.write("\n");
+		writer.write("\"dependencies\":[");
+		for (int rank = 0; rank < records.size(); rank++) {
+			Record record = records.get(rank);
+			StringBuilder descriptor = new StringBuilder("[");
+			for (int j = 0; j < record.descriptor.length; j++) {
+				descriptor.append(j == 0 ? "" : ",").append(quote(record.descriptor[j]));
+			}
+			descriptor.append("]");
+			writer.write(rank == 0 ? "\n" : ",\n");
+			writer.write("{\"" + DEPENDENCY_FIELDS[0] + "\":" + (rank + 1) + ",\"" + DEPENDENCY_FIELDS[1] + "\":"
+					+ descriptor + ",\"" + DEPENDENCY_FIELDS[2] + "\":" + quote(record.target));
+			for (int j = 0; j < record.scores.length; j++) {
+				writer.write(",\"" + DEPENDENCY_FIELDS[3 + j] + "\":" + json(record.scores[j]));
+			}
+			writer.write("}");
+		}
+		writer.write("]}");
+		writer.write("\n");
+	}
+
+	private void writeCsv(BufferedWriter writer, List<Record> records) throws IOException {
+		List<String> header = new ArrayList<>(fields.keySet());
+		for (String phase : phases.keySet()) {
+			header.add(phase + "Time");
+		}
+		for (String field : DEPENDENCY_FIELDS) {
+			header.add(field);
+		}
+		writeCsvRow(writer, header);
+		for (int rank = 0; rank < records.size(); rank++) {
+			Record record = records.get(rank);
+			List<String> row = new ArrayList<>(header.size());
+			for (Object value : fields.values()) {
+				row.add(String.valueOf(value));
+			}
+			for (long time : phases.values()) {
+				row.add(Double.toString(time / 1000.0));
+			}
+			row.add(Integer.toString(rank + 1));
+			row.add(String.join(";", record.descriptor));
+			row.add(record.target);
+			for (double score : record.scores) {
+				row.add(Double.toString(score));
+			}
+			writeCsvRow(writer, row);
+		}
+	}
+
+	private static void writeCsvRow(BufferedWriter writer, List<String> row) throws IOException {
+		for (int i = 0; i < row.size(); i++) {
+			String value = row.get(i);
+			if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+				value = "\"" + value.replace("\"", "\"\"") + "\"";
+			}
+			writer.write((i == 0 ? "" : ",") + value);
+		}
+		writer.write("\n");
+	}
+
+	/**
+	 * The captions of the descriptor of a dependency of the native search or
+	 * of a realKD pattern
+	 */
+	public static String[] descriptor(Object pattern) {
+		return record(pattern).descriptor;
+	}
+
+	/**
+	 * The entropy of the target, the mutual information, the expected mutual
+	 * information, the fraction of information and the reliable fraction of
+	 * information of a dependency of the native search or of a realKD pattern
+	 */
+	public static double[] scores(Object pattern) {
+		return record(pattern).scores;
+	}
+
+	/**
+	 * The record of a dependency of the native search, or of a realKD pattern
+	 * read from its descriptor and measurements
+	 */
+	private static Record record(Object pattern) {
+		if (pattern instanceof FunctionalDependency) {
+			FunctionalDependency dependency = (FunctionalDependency) pattern;
+			Evaluation evaluation = dependency.evaluation();
+			return new Record(dependency.captions(), dependency.targetCaption(),
+					new double[] { evaluation.entropy(), evaluation.mutualInformation(),
+							evaluation.expectedMutualInformation(), evaluation.fractionOfInformation(),
+							evaluation.reliableFractionOfInformation() });
+		}
+		if (!(pattern instanceof FunctionalPattern)) {
+			throw new IllegalStateException("Unrecognized pattern " + pattern);
+		}
+		FunctionalPattern functionalPattern = (FunctionalPattern) pattern;
+		BinaryAttributeSetRelation relation = (BinaryAttributeSetRelation) functionalPattern.descriptor();
+		List<String> descriptor = new ArrayList<>(relation.domain().size());
+		for (Attribute<?> attribute : relation.domain()) {
+			descriptor.add(attribute.caption());
+		}
+		List<String> target = new ArrayList<>(relation.coDomain().size());
+		for (Attribute<?> attribute : relation.coDomain()) {
+			target.add(attribute.caption());
+		}
+		double[] scores = new double[REALKD_MEASURES.length];
+		boolean[] measured = new boolean[REALKD_MEASURES.length];
+		for (Measurement measurement : functionalPattern.measurements()) {
+			for (int i = 0; i < REALKD_MEASURES.length; i++) {
+				if (REALKD_MEASURES[i].equals(measurement.measure().caption())) {
+					scores[i] = measurement.value();
+					measured[i] = true;
+				}
+			}
+		}
+		for (int i = 0; i < REALKD_MEASURES.length; i++) {
+			if (!measured[i]) {
+				throw new IllegalStateException("Pattern " + pattern + " has no " + REALKD_MEASURES[i]);
+			}
+		}
+		return new Record(descriptor.toArray(new String[0]), String.join(", ", target), scores);
+	}
+
+	private static String json(Object value) {
+		if (value instanceof Double || value instanceof Float) {
+			double number = ((Number) value).doubleValue();
+			return Double.isNaN(number) || Double.isInfinite(number) ? "null" : value.toString();
+		}
+		if (value instanceof Number || value instanceof Boolean) {
+			return value.toString();
+		}
+		return value == null ? "null" : quote(value.toString());
+	}
+
+	/**
+	 * The string as a JSON string, in quotes and with quotes, backslashes and
+	 * control characters escaped
+	 */
+	private static String quote(String string) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for (char c : string.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if (c < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) c));
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+}
@@ -0,0 +1,472 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.Stream;
+
+import de.mpiinf.fodiscovery.scoring.EqualFrequency;
+import de.mpiinf.fodiscovery.scoring.SketchDiscretization;
+import utils.Utilities;
+
+/**
+ * A class for encoding ARFF and CSV datasets that do not fit in memory into
+ * the binary columnar format, with every attribute as integer codes. The first
+ * pass reads the text once and spills every column to a temporary file,
+ * numeric columns as doubles and categoric ones as codes of their at most
+ * {@value #MAX_CATEGORIES} distinct values. Numeric columns are then
+ * discretized one at a time into -L equal-frequency bins, and the target into
+ * -NUM_BINS_TARGET bins. The second pass writes only the codes of the bins and
+ * categories, so that searches on the encoded dataset never hold raw values or
+ * strings.
+ *
+ * Exact equal-frequency cut points need the sorted column, so each numeric
+ * column in turn is copied to the heap. With -DISCTYPE EF_SKETCH, the cut
+ * points are instead picked from quantile sketches fed from the spilled file,
+ * and the heap needed does not grow with the number of rows.
+ *
+ * CSV files must have a header line, and a CSV column is numeric if all its
+ * non-missing values are numbers. Until a value that is not a number is met,
+ * the text of a CSV column is also spilled, and the column is then coded from
+ * it, so that only categoric columns keep a dictionary. Missing values are
+ * empty or ?.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class StreamingEncoder {
+
+	public static final int MAX_CATEGORIES = 1 << 16;
+
+	private static final int BUFFER_SIZE = 1 << 13;
+
+	private final Path folder;
+
+	private String caption;
+
+	private final List<Column> columns = new ArrayList<>();
+
+	private int numberOfRows = 0;
+
+	private final SketchDiscretization sketch;
+
+	private class Column {
+		private final String caption;
+
+		private final boolean declared;
+
+		private boolean numeric;
+
+		/**
+		 * The codes of the categories, only for categoric columns
+		 */
+		private Map<String, Integer> dictionary;
+
+		private final List<String> categories = new ArrayList<>();
+
+		private final Path valuesFile;
+
+		private final Path codesFile;
+
+		private final Path textFile;
+
+		private DataOutputStream values;
+
+		private DataOutputStream codes;
+
+		private DataOutputStream text;
+
+		/**
+		 * @param declared
+		 *            whether the type is declared, as in ARFF, instead of inferred
+		 *            from the values
+		 */
+		private Column(String caption, boolean declared, boolean numeric, List<String> nominalValues)
+				throws IOException {
+			this.caption = caption;
+			this.declared = declared;
+			this.numeric = numeric;
+			int index = columns.size();
+			this.valuesFile = folder.resolve(index + ".values");
+			this.codesFile = folder.resolve(index + ".codes");
+			this.textFile = folder.resolve(index + ".text");
+			if (numeric) {
+				values = open(valuesFile);
+				if (!declared) {
+					text = open(textFile);
+				}
+			} else {
+				dictionary = new HashMap<>();
+				codes = open(codesFile);
+			}
+			for (String value : nominalValues) {
+				code(value);
+			}
+		}
+
+		private int code(String value) {
+			Integer code = dictionary.get(value);
+			if (code == null) {
+				code = categories.size();
+				if (code == MAX_CATEGORIES) {
+					throw new IllegalArgumentException(
+							"Attribute " + caption + " has more than " + MAX_CATEGORIES + " categories");
+				}
+				dictionary.put(value, code);
+				categories.add(value);
+			}
+			return code;
+		}
+
+		private void add(String value) throws IOException {
+			boolean missing = value.isEmpty() || value.equals("?");
+			if (numeric) {
+				double number = Double.NaN;
+				if (!missing) {
+					try {
+						number = Double.parseDouble(value);
+					} catch (NumberFormatException e) {
+						if (declared) {
+							throw new IllegalArgumentException(
+									"Illegal value " + value + " of numeric attribute " + caption);
+						}
+						categoric();
+						addCode(value, missing);
+						return;
+					}
+				}
+				values.writeDouble(number);
+				if (text != null) {
+					text.writeUTF(value);
+				}
+			} else {
+				addCode(value, missing);
+			}
+		}
+
+		private void addCode(String value, boolean missing) throws IOException {
+			codes.writeInt(missing ? ColumnarFormat.MISSING_CODE : code(value));
+		}
+
+		/**
+		 * Makes a column inferred as numeric categoric, after a value that is
+		 * not a number, and codes the rows so far from their spilled text
+		 */
+		private void categoric() throws IOException {
+			numeric = false;
+			values.close();
+			values = null;
+			text.close();
+			text = null;
+			Files.deleteIfExists(valuesFile);
+			dictionary = new HashMap<>();
+			codes = open(codesFile);
+			try (DataInputStream in = new DataInputStream(
+					new BufferedInputStream(Files.newInputStream(textFile), BUFFER_SIZE))) {
+				for (int row = 0; row < numberOfRows; row++) {
+					String value = in.readUTF();
+					addCode(value, value.isEmpty() || value.equals("?"));
+				}
+			}
+			Files.deleteIfExists(textFile);
+		}
+
+		private void close() throws IOException {
+			if (values != null) {
+				values.close();
+			}
+			if (codes != null) {
+				codes.close();
+			}
+			if (text != null) {
+				text.close();
+				Files.deleteIfExists(textFile);
+			}
+			dictionary = null;
+		}
+	}
+
+	/**
+	 * @param sketch
+	 *            the discretization to pick the cut points of numeric columns
+	 *            from quantile sketches with, or null to sort the columns
+	 */
+	private StreamingEncoder(Path folder, SketchDiscretization sketch) {
+		this.folder = folder;
+		this.sketch = sketch;
+	}
+
+	private static DataOutputStream open(Path file) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+	}
+
+	/**
+	 * Encodes the dataset into the output file
+	 *
+	 * @param target
+	 *            the index of the target attribute, starting from 1, or 0 for
+	 *            the last attribute
+	 */
+	public static void encode(String dataset, String output, int target, int maxBins, int numBinsTarget)
+			throws IOException {
+		encode(dataset, output, target, maxBins, numBinsTarget, null);
+	}
+
+	/**
+	 * Encodes the dataset into the output file, like
+	 * {@link #encode(String, String, int, int, int)}
+	 *
+	 * @param sketch
+	 *            the discretization to pick the cut points of numeric columns
+	 *            from quantile sketches with, or null to sort the columns
+	 */
+	public static void encode(String dataset, String output, int target, int maxBins, int numBinsTarget,
+			SketchDiscretization sketch) throws IOException {
+		Path temporary = Files.createTempDirectory(Paths.get(output).toAbsolutePath().getParent(), "encoding");
+		StreamingEncoder encoder = new StreamingEncoder(temporary, sketch);
+		try {
+			long start = System.currentTimeMillis();
+			encoder.read(Paths.get(dataset));
+			long read = System.currentTimeMillis();
+			int targetIndex = target == 0 ? encoder.columns.size() - 1 : target - 1;
+			if (targetIndex >= encoder.columns.size()) {
+				throw new IllegalArgumentException(
+						"Illegal value target attribute index. Should be between 1 and total number of attributes");
+			}
+			encoder.write(Paths.get(output), targetIndex, maxBins, numBinsTarget);
+			long written = System.currentTimeMillis();
+			System.out.println("Read " + dataset + " (" + encoder.numberOfRows + " rows, " + encoder.columns.size()
+					+ " attributes) in " + (read - start) / 1000.0 + "s");
+			System.out.println("Wrote " + output + " (" + Files.size(Paths.get(output)) + " bytes) in "
+					+ (written - read) / 1000.0 + "s");
+			if (sketch != null) {
+				System.out.println(sketch);
+			}
+		} finally {
+			try (Stream<Path> files = Files.list(temporary)) {
+				for (Path file : (Iterable<Path>) files::iterator) {
+					Files.deleteIfExists(file);
+				}
+			}
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * The first pass, which spills every column
+	 */
+	private void read(Path file) throws IOException {
+		boolean arff = file.toString().toLowerCase().endsWith(".arff");
+		String fileName = file.getFileName().toString();
+		caption = fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+		List<String> fields = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(file)) {
+			String line;
+			boolean data = !arff;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || (arff && line.startsWith("%"))) {
+					continue;
+				}
+				if (!data) {
+					data = header(line);
+					continue;
+				}
+				if (line.startsWith("{")) {
+					throw new IllegalArgumentException("Sparse ARFF data is not supported");
+				}
+				split(line, fields);
+				if (columns.isEmpty()) {
+					// the header line of a CSV file
+					for (String field : fields) {
+						columns.add(new Column(field, false, true, new ArrayList<>()));
+					}
+					continue;
+				}
+				if (fields.size() != columns.size()) {
+					throw new IllegalArgumentException("Row " + (numberOfRows + 1) + " has " + fields.size()
+							+ " values instead of " + columns.size());
+				}
+				for (int column = 0; column < columns.size(); column++) {
+					columns.get(column).add(fields.get(column));
+				}
+				numberOfRows++;
+			}
+		}
+		for (Column column : columns) {
+			column.close();
+		}
+	}
+
+	/**
+	 * Reads an ARFF header line and returns whether the data starts after it
+	 */
+	private boolean header(String line) throws IOException {
+		String lowerCase = line.toLowerCase();
+		if (lowerCase.startsWith("@relation")) {
+			caption = unquote(line.substring("@relation".length()).trim());
+		} else if (lowerCase.startsWith("@attribute")) {
+			String declaration = line.substring("@attribute".length()).trim();
+			int end;
+			if (declaration.startsWith("'") || declaration.startsWith("\"")) {
+				end = declaration.indexOf(declaration.charAt(0), 1) + 1;
+			} else {
+				end = declaration.split("\\s+")[0].length();
+			}
+			String name = unquote(declaration.substring(0, end));
+			String type = declaration.substring(end).trim();
+			List<String> nominalValues = new ArrayList<>();
+			if (type.startsWith("{")) {
+				split(type.substring(1, type.lastIndexOf('}')), nominalValues);
+			}
+			String lowerCaseType = type.toLowerCase();
+			boolean numeric = lowerCaseType.equals("numeric") || lowerCaseType.equals("real")
+					|| lowerCaseType.equals("integer");
+			columns.add(new Column(name, true, numeric, nominalValues));
+		} else if (lowerCase.startsWith("@data")) {
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Splits a comma-separated line into its trimmed and unquoted fields
+	 */
+	private static void split(String line, List<String> fields) {
+		fields.clear();
+		StringBuilder field = new StringBuilder();
+		char quote = 0;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+			} else if (c == ',') {
+				fields.add(field.toString().trim());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString().trim());
+	}
+
+	private static String unquote(String string) {
+		if (string.length() >= 2 && (string.charAt(0) == '\'' || string.charAt(0) == '"')
+				&& string.charAt(string.length() - 1) == string.charAt(0)) {
+			return string.substring(1, string.length() - 1);
+		}
+		return string;
+	}
+
+	/**
+	 * The second pass, which writes the codes of every column
+	 */
+	private void write(Path output, int target, int maxBins, int numBinsTarget) throws IOException {
+		ColumnarWriter writer = new ColumnarWriter(caption, "", numberOfRows);
+		List<FileChannel> channels = new ArrayList<>();
+		try {
+			for (int i = 0; i < columns.size(); i++) {
+				Column column = columns.get(i);
+				if (column.numeric) {
+					FileChannel channel = FileChannel.open(column.valuesFile, StandardOpenOption.READ);
+					channels.add(channel);
+					DoubleBuffer[] values = ColumnarFile.mapValues(channel, 0, numberOfRows);
+					double[] cutPoints = cutPoints(column.caption, row -> ColumnarFile.value(values, row),
+							i == target ? numBinsTarget : maxBins);
+					writer.addCategoric(column.caption, "", EqualFrequency.labels(cutPoints), row -> {
+						double value = ColumnarFile.value(values, row);
+						return Double.isNaN(value) ? ColumnarFormat.MISSING_CODE : EqualFrequency.bin(value, cutPoints);
+					});
+				} else {
+					FileChannel channel = FileChannel.open(column.codesFile, StandardOpenOption.READ);
+					channels.add(channel);
+					IntBuffer[] codes = ColumnarFile.mapCodes(channel, 0, numberOfRows);
+					writer.addCategoric(column.caption, "", column.categories, row -> ColumnarFile.code(codes, row));
+				}
+			}
+			writer.write(output);
+		} finally {
+			for (FileChannel channel : channels) {
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * The equal-frequency cut points of a spilled column, from a sketch fed
+	 * from the file or else from the sorted column, which is the only one
+	 * copied to the heap at this time
+	 */
+	private double[] cutPoints(String caption, IntToDoubleFunction values, int numBins) {
+		if (sketch != null) {
+			return sketch.cutPoints(caption, numberOfRows, values, numBins);
+		}
+		double[] column = new double[numberOfRows];
+		for (int row = 0; row < numberOfRows; row++) {
+			column[row] = values.applyAsDouble(row);
+		}
+		return EqualFrequency.cutPoints(column, numBins);
+	}
+
+	public static void main(String[] args) throws Exception {
+		String dataset = Utilities.dataset(args);
+		String output = Utilities.output(args);
+		if (output.isEmpty()) {
+			String columnarFileName = ColumnarFormat.columnarFileName(dataset);
+			output = columnarFileName.substring(0, columnarFileName.length() - ColumnarFormat.EXTENSION.length())
+					+ "_encoded" + ColumnarFormat.EXTENSION;
+		}
+		SketchDiscretization sketch = Utilities.sketchDiscretization(args)
+				? new SketchDiscretization(Utilities.sketchK(args), Utilities.threads(args))
+				: null;
+		encode(dataset, output, Utilities.target(args), Utilities.maxBins(args), Utilities.numBinsForTarget(args),
+				sketch);
+	}
+
+}
@@ -0,0 +1,169 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.multipleexp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.mpiinf.fodiscovery.io.ResultsWriter;
+import de.mpiinf.fodiscovery.scoring.CodedTable;
+import de.mpiinf.fodiscovery.scoring.FractionOfInformation;
+import de.mpiinf.fodiscovery.scoring.OptimisticEstimator;
+import de.mpiinf.fodiscovery.search.FunctionalDependency;
+import de.mpiinf.fodiscovery.search.OPUSSearch;
+import de.unibonn.realkd.algorithms.functional.OPUSFunctionalPatternSearch;
+import de.unibonn.realkd.algorithms.functional.OPUSFunctionalPatternSearch.OptimisticEstimatorOption;
+import de.unibonn.realkd.common.workspace.Workspace;
+import de.unibonn.realkd.common.workspace.Workspaces;
+import de.unibonn.realkd.data.table.DataTable;
+import de.unibonn.realkd.patterns.functional.FunctionalPattern;
+import utils.DataTableCache;
+import utils.DataTableColumns;
+import utils.DiscretizedTableCache;
+import utils.Utilities;
+
+/**
+ * A class for checking that the native engine scores dependencies as realKD
+ * does. For every dataset of -DATASET, a comma-separated list, and every
+ * target of -TARGET, the top-k of an OPUS search with alpha 1 is found by
+ * both engines on the same discretized target. Every realKD dependency is
+ * scored again by the native engine, and its entropy, mutual information,
+ * expected mutual information, fraction of information and reliable fraction
+ * of information must agree within {@value #TOLERANCE}, as must the reliable
+ * fraction of information of the two top-k at every rank. The attribute sets
+ * at a rank may differ between ties.
+ *
+ * The program exits with status 1 after printing the differences if any
+ * score disagrees, e.g., with
+ *
+ * <pre>
+ * java -cp FoDiscovery.jar de.mpiinf.fodiscovery.multipleexp.EngineParity -DATASET abalone.arff,australian.arff -TARGET ALL
+ * </pre>
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class EngineParity {
+
+	public static final double TOLERANCE = 1e-9;
+
+	private static final String[] SCORES = { "entropy", "mutual information", "expected mutual information",
+			"fraction of information", "reliable fraction of information" };
+
+	public static void main(String[] args) throws Exception {
+		int k = Utilities.numResults(args);
+		OptimisticEstimatorOption optOption = Utilities.optOPUS(args);
+		int maxBins = Utilities.maxBins(args);
+		int numBinsTarget = Utilities.numBinsForTarget(args);
+		DataTableCache dataTableCache = new DataTableCache(Utilities.cacheMB(args));
+		DiscretizedTableCache discretizedTableCache = new DiscretizedTableCache(dataTableCache,
+				Utilities.discCache(args));
+
+		int checked = 0;
+		int differences = 0;
+		for (String dataset : Utilities.dataset(args).split(",")) {
+			DataTable dataTable = dataTableCache.get(dataset);
+			for (int target : Utilities.targets(args, dataTable.numberOfAttributes())) {
+				DataTable dataWithPreDiscretizedAttributes = discretizedTableCache.get(dataset, dataTable, target - 1,
+						numBinsTarget);
+
+				Workspace workspace = Workspaces.workspace();
+				workspace.add(dataWithPreDiscretizedAttributes);
+				OPUSFunctionalPatternSearch functionalPatternSearch = new OPUSFunctionalPatternSearch(workspace);
+				functionalPatternSearch.target(dataWithPreDiscretizedAttributes.attribute(target - 1));
+				functionalPatternSearch.topK(k);
+				functionalPatternSearch.alpha(1);
+				functionalPatternSearch.operatorOrder(FoOPUSs.operatorOrder);
+				functionalPatternSearch.languageOption(FoOPUSs.langOption);
+				functionalPatternSearch.optimisticOption(optOption);
+				functionalPatternSearch.traverseOrderOption(FoOPUSs.traverseOption);
+				functionalPatternSearch.maxBins(maxBins);
+				List<FunctionalPattern> patterns = new ArrayList<>(functionalPatternSearch.call());
+
+				CodedTable codedTable = DataTableColumns.codedTable(dataWithPreDiscretizedAttributes, target - 1,
+						maxBins, numBinsTarget);
+				OptimisticEstimator estimator = OptimisticEstimator.valueOf(optOption.toString());
+				FractionOfInformation evaluator = new FractionOfInformation(codedTable, target - 1);
+				OPUSSearch search = new OPUSSearch(evaluator);
+				search.topK(k);
+				search.alpha(1);
+				search.optimisticOption(estimator);
+				List<FunctionalDependency> dependencies = new ArrayList<>(search.call());
+
+				String experiment = dataTable.caption() + ", target " + target + " ("
+						+ dataTable.attribute(target - 1).caption() + ")";
+				List<String> lines = new ArrayList<>();
+				Map<String, Integer> attributes = new HashMap<>();
+				for (int attribute = 0; attribute < codedTable.numberOfAttributes(); attribute++) {
+					attributes.put(codedTable.caption(attribute), attribute);
+				}
+				for (FunctionalPattern pattern : patterns) {
+					String[] descriptor = ResultsWriter.descriptor(pattern);
+					int[] descriptorAttributes = new int[descriptor.length];
+					for (int i = 0; i < descriptor.length; i++) {
+						descriptorAttributes[i] = attributes.get(descriptor[i]);
+					}
+					double[] scores = ResultsWriter.scores(pattern);
+					double[] nativeScores = ResultsWriter.scores(new FunctionalDependency(descriptorAttributes,
+							codedTable, target - 1, evaluator.evaluate(descriptorAttributes, estimator)));
+					for (int score = 0; score < SCORES.length; score++) {
+						checked++;
+						if (Math.abs(scores[score] - nativeScores[score]) > TOLERANCE) {
+							lines.add(String.format("\t%s of %s: realKD %s, native %s", SCORES[score],
+									String.join(", ", descriptor), scores[score], nativeScores[score]));
+						}
+					}
+				}
+				if (patterns.size() != dependencies.size()) {
+					lines.add("\ttop-k sizes: realKD " + patterns.size() + ", native " + dependencies.size());
+				}
+				for (int rank = 0; rank < Math.min(patterns.size(), dependencies.size()); rank++) {
+					double score = ResultsWriter.scores(patterns.get(rank))[SCORES.length - 1];
+					double nativeScore = dependencies.get(rank).score();
+					checked++;
+					if (Math.abs(score - nativeScore) > TOLERANCE) {
+						lines.add(String.format("\trank %d: realKD %s (%s), native %s (%s)", rank + 1, score,
+								String.join(", ", ResultsWriter.descriptor(patterns.get(rank))), nativeScore,
+								String.join(", ", dependencies.get(rank).captions())));
+					}
+				}
+				System.out.println(experiment + (lines.isEmpty() ? ": same scores" : ":"));
+				for (String line : lines) {
+					System.out.println(line);
+				}
+				differences += lines.size();
+			}
+		}
+		if (differences > 0) {
+			System.out.println(differences + " difference(s) in " + checked + " scores");
+			System.exit(1);
+		}
+		System.out.println("Same scores in all " + checked + " comparisons");
+	}
+
+}
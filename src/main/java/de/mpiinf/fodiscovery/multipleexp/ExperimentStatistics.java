@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.multipleexp;
+
+/**
+ * A class for the statistics of one experiment of an input file
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class ExperimentStatistics {
+
+	private final long wallClockTime;
+
+	private final long runningTime;
+
+	private final int nodesCreated;
+
+	private final int nodesDiscarded;
+
+	private final int nodesDiscardedPruningRules;
+
+	/**
+	 * @param wallClockTime
+	 *            the time of the whole experiment in milliseconds, including
+	 *            loading the dataset and writing the output file
+	 * @param runningTime
+	 *            the running time of the search in milliseconds
+	 * @param nodesDiscardedPruningRules
+	 *            the nodes discarded by pruning rules, 0 for searches without
+	 *            them
+	 */
+	public ExperimentStatistics(long wallClockTime, long runningTime, int nodesCreated, int nodesDiscarded,
+			int nodesDiscardedPruningRules) {
+		this.wallClockTime = wallClockTime;
+		this.runningTime = runningTime;
+		this.nodesCreated = nodesCreated;
+		this.nodesDiscarded = nodesDiscarded;
+		this.nodesDiscardedPruningRules = nodesDiscardedPruningRules;
+	}
+
+	public long wallClockTime() {
+		return wallClockTime;
+	}
+
+	public long runningTime() {
+		return runningTime;
+	}
+
+	public int nodesCreated() {
+		return nodesCreated;
+	}
+
+	public int nodesDiscarded() {
+		return nodesDiscarded;
+	}
+
+	public int nodesDiscardedPruningRules() {
+		return nodesDiscardedPruningRules;
+	}
+
+}
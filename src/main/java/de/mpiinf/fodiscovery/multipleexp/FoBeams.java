@@ -32,11 +32,22 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import de.mpiinf.fodiscovery.io.ResultsWriter;
+import de.mpiinf.fodiscovery.scoring.CodedTable;
+import de.mpiinf.fodiscovery.scoring.FractionOfInformation;
+import de.mpiinf.fodiscovery.scoring.OptimisticEstimator;
+import de.mpiinf.fodiscovery.scoring.PartitionCache;
+import de.mpiinf.fodiscovery.scoring.SketchDiscretization;
+import de.mpiinf.fodiscovery.search.BeamSearch;
 import de.unibonn.realkd.algorithms.beamsearch.NewBeamSearch.RefinementPropagation;
 import de.unibonn.realkd.algorithms.functional.BeamFunctionalPatternSearch;
 import de.unibonn.realkd.algorithms.functional.BeamFunctionalPatternSearch.DiscretizationTypeOption;
@@ -44,10 +55,10 @@ import de.unibonn.realkd.algorithms.functional.BeamFunctionalPatternSearch.Optim
 import de.unibonn.realkd.common.workspace.Workspace;
 import de.unibonn.realkd.common.workspace.Workspaces;
 import de.unibonn.realkd.data.table.DataTable;
-import de.unibonn.realkd.data.table.DataTables;
-import de.unibonn.realkd.data.xarf.XarfImport;
-import de.unibonn.realkd.patterns.Pattern;
 import de.unibonn.realkd.patterns.functional.FunctionalPattern;
+import utils.DataTableCache;
+import utils.DataTableColumns;
+import utils.DiscretizedTableCache;
 import utils.Utilities;
 
 /**
@@ -61,6 +72,10 @@ public class FoBeams {
 	public static void main(String[] args) throws Exception {
 		String input = Utilities.input(args);
 		String outputFolder = Utilities.outputFolder(args);
+		int threads = Utilities.threads(args);
+		DataTableCache dataTableCache = new DataTableCache(Utilities.cacheMB(args));
+		DiscretizedTableCache discretizedTableCache = new DiscretizedTableCache(dataTableCache,
+				Utilities.discCache(args));
 
 		Path pathToOutput = Paths.get(outputFolder);
 		if (!Files.exists(pathToOutput)) {
@@ -69,93 +84,219 @@ public class FoBeams {
 		}
 		try {
 			List<String> lines = Files.readAllLines(Paths.get(input));
-			for (String s : lines) {
-				String[] argumentsPerExperiment = s.split(" ");
-				String dataset = Utilities.dataset(argumentsPerExperiment);
-				System.out.println(dataset);
-				int target = Utilities.target(argumentsPerExperiment);
-				int k = Utilities.numResults(argumentsPerExperiment);
-				OptimisticEstimatorOption optOption = Utilities.optGreedy(argumentsPerExperiment);
-				int beamWidth = Utilities.beamWidth(argumentsPerExperiment);
-				int maxBins = Utilities.maxBins(argumentsPerExperiment);
-				int numBinsTarget = Utilities.numBinsForTarget(argumentsPerExperiment);
-				int cutPointMultiplier = Utilities.cutPointMultiplier(argumentsPerExperiment);
-				RefinementPropagation refOption = Utilities.refOpt(argumentsPerExperiment);
-				DiscretizationTypeOption discTypeOption = Utilities.discTypeGreedy(argumentsPerExperiment);
+			ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, lines.size())));
+			List<Future<ExperimentStatistics>> experimentTimes = new ArrayList<>();
+			long start = System.currentTimeMillis();
+			for (int line = 0; line < lines.size(); line++) {
+				int id = line + 1;
+				String s = lines.get(line);
+				experimentTimes.add(executor
+						.submit(() -> runExperiment(id, s, outputFolder, dataTableCache, discretizedTableCache)));
+			}
+			executor.shutdown();
+			long sequentialTime = 0;
+			for (int line = 0; line < experimentTimes.size(); line++) {
+				try {
+					sequentialTime += experimentTimes.get(line).get().wallClockTime();
+				} catch (ExecutionException e) {
+					System.err.println("Experiment " + (line + 1) + " failed");
+					e.getCause().printStackTrace();
+				}
+			}
+			long wallClockTime = System.currentTimeMillis() - start;
+			System.out.println("Experiments: " + lines.size() + ", threads: " + threads);
+			// concurrent experiments slow each other down, so this is not the
+			// speedup over running them one after the other
+			System.out.println("Wall-clock time: " + wallClockTime / 1000.0 + ", sum of experiment times: "
+					+ sequentialTime / 1000.0 + ", experiments running at once: "
+					+ (1.0 * sequentialTime / Math.max(1, wallClockTime)));
+			System.out.println(dataTableCache);
+			System.out.println(discretizedTableCache);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
 
-				String timeStamp = new SimpleDateFormat("dd.MM.yyyy.HH.mm.ss").format(new Date());
+	/**
+	 * Runs the experiment of one line of the input file, with its own workspace
+	 * and search, and writes its output file. The dataset and its discretized target
+	 * are taken from the caches shared by all lines
+	 * 
+	 * @param id
+	 *            the number of the line, which prefixes what the experiment
+	 *            prints
+	 * @return the statistics of the experiment
+	 */
+	static ExperimentStatistics runExperiment(int id, String experiment, String outputFolder, DataTableCache dataTableCache,
+			DiscretizedTableCache discretizedTableCache) throws Exception {
+		long start = System.currentTimeMillis();
+		String[] argumentsPerExperiment = experiment.split(" ");
+		if (Utilities.progress(argumentsPerExperiment) > 0) {
+			throw new IllegalArgumentException("Progress reports require a single experiment");
+		}
+		String dataset = Utilities.dataset(argumentsPerExperiment);
+		String prefix = "Experiment " + id + ": ";
+		System.out.println(prefix + dataset);
+		int target = Utilities.target(argumentsPerExperiment);
+		int k = Utilities.numResults(argumentsPerExperiment);
+		OptimisticEstimatorOption optOption = Utilities.optGreedy(argumentsPerExperiment);
+		int beamWidth = Utilities.beamWidth(argumentsPerExperiment);
+		int maxBins = Utilities.maxBins(argumentsPerExperiment);
+		int numBinsTarget = Utilities.numBinsForTarget(argumentsPerExperiment);
+		int cutPointMultiplier = Utilities.cutPointMultiplier(argumentsPerExperiment);
+		RefinementPropagation refOption = Utilities.refOpt(argumentsPerExperiment);
+		DiscretizationTypeOption discTypeOption = Utilities.discTypeGreedy(argumentsPerExperiment);
+		int threads = Utilities.threads(argumentsPerExperiment);
 
-				Workspace workspace = Workspaces.workspace();
-				XarfImport builder = XarfImport.xarfImport(dataset);
-				DataTable dataTable = builder.get();
-				int numberOfAttrs = dataTable.numberOfAttributes();
-				if (target == 0) {
-					target = numberOfAttrs;
-				}
-				HashSet<Integer> targetToDiscretize = new HashSet<>();
-				targetToDiscretize.add(target - 1);
-				DataTable dataWithPreDiscretizedAttributes = DataTables.preDiscretizeTable(dataTable,
-						DataTables.equalFrequencyDiscretization(numBinsTarget), targetToDiscretize);
-				workspace.add(dataWithPreDiscretizedAttributes);
-				BeamFunctionalPatternSearch functionalPatternSearch = new BeamFunctionalPatternSearch(workspace);
+		String timeStamp = new SimpleDateFormat("dd.MM.yyyy.HH.mm.ss").format(new Date());
 
-				functionalPatternSearch.target(dataWithPreDiscretizedAttributes.attribute(target - 1));
-				functionalPatternSearch.topK(k);
-				functionalPatternSearch.beamWidth(beamWidth);
-				functionalPatternSearch.optimisticOption(optOption);
-				functionalPatternSearch.refPropagationOption(refOption);
-				functionalPatternSearch.maxBins(maxBins);
-				functionalPatternSearch.cutPointMultiplier(cutPointMultiplier);
-				functionalPatternSearch.discTypeOption(discTypeOption);
+		Workspace workspace = Workspaces.workspace();
+		long loadStart = System.currentTimeMillis();
+		DataTable dataTable = dataTableCache.get(dataset);
+		long loadTime = System.currentTimeMillis() - loadStart;
+		int numberOfAttrs = dataTable.numberOfAttributes();
+		if (target == 0) {
+			target = numberOfAttrs;
+		}
+		SketchDiscretization sketch = Utilities.sketchDiscretization(argumentsPerExperiment)
+				? new SketchDiscretization(Utilities.sketchK(argumentsPerExperiment), threads)
+				: null;
+		long discretizationStart = System.currentTimeMillis();
+		DataTable dataWithPreDiscretizedAttributes = discretizedTableCache.get(dataset, dataTable, target - 1,
+				numBinsTarget, sketch);
+		long discretizationTime = System.currentTimeMillis() - discretizationStart;
+		String datasetName = dataTable.caption();
+		String experimentResultsFile = null;
+		if (discTypeOption == DiscretizationTypeOption.COP) {
+			experimentResultsFile = outputFolder + File.separator + datasetName + "_Target=" + (target)
+					+ "_BeamWidth=" + beamWidth + "_Topk=" + k + "_Opt=" + optOption.toString() + "_L="
+					+ maxBins + "_DiscType=" + Utilities.discTypeName(argumentsPerExperiment) + "_C=" + cutPointMultiplier + "_"
+					+ timeStamp + ".txt";
+		} else {
+			experimentResultsFile = outputFolder + File.separator + datasetName + "_Target=" + (target)
+					+ "_BeamWidth=" + beamWidth + "_Topk=" + k + "_Opt=" + optOption.toString() + "_L="
+					+ maxBins + "_DiscType=" + Utilities.discTypeName(argumentsPerExperiment) + "_" + timeStamp + ".txt";
+		}
 
-				String datasetName = dataTable.caption();
-				String experimentResultsFile = null;
-				if (discTypeOption == DiscretizationTypeOption.COP) {
-					experimentResultsFile = outputFolder + File.separator + datasetName + "_Target=" + (target)
-							+ "_BeamWidth=" + beamWidth + "_Topk=" + k + "_Opt=" + optOption.toString() + "_L="
-							+ maxBins + "_DiscType=" + discTypeOption.toString() + "_C=" + cutPointMultiplier + "_"
-							+ timeStamp + ".txt";
-				} else {
-					experimentResultsFile = outputFolder + File.separator + datasetName + "_Target=" + (target)
-							+ "_BeamWidth=" + beamWidth + "_Topk=" + k + "_Opt=" + optOption.toString() + "_L="
-							+ maxBins + "_DiscType=" + discTypeOption.toString() + "_" + timeStamp + ".txt";
-				}
-				Collection<FunctionalPattern> resultPatterns = functionalPatternSearch.call();
-				long time = functionalPatternSearch.runningTime();
-				int nodes = functionalPatternSearch.nodesCreated();
-				int nodesDiscardedPotential = functionalPatternSearch.nodesDiscarded();
-				int max_depth = functionalPatternSearch.maxAttainedDepth();
-				int solution_depth = functionalPatternSearch.bestDepth();
-				int boundary_max_size = functionalPatternSearch.maxAttainedBoundarySize();
+		Collection<?> resultPatterns;
+		long time;
+		int nodes;
+		int nodesDiscardedPotential;
+		int max_depth;
+		int solution_depth;
+		int boundary_max_size;
+		PartitionCache partitionCache = null;
+		if (Utilities.nativeEngine(argumentsPerExperiment)) {
+			if (discTypeOption == DiscretizationTypeOption.COP || discTypeOption == DiscretizationTypeOption.PRE) {
+				throw new IllegalArgumentException(
+						discTypeOption + " discretization is only available with -ENGINE REALKD");
+			}
+			long codingStart = System.currentTimeMillis();
+			CodedTable codedTable = DataTableColumns.codedTable(dataWithPreDiscretizedAttributes, target - 1, maxBins,
+					numBinsTarget, sketch);
+			discretizationTime += System.currentTimeMillis() - codingStart;
+			FractionOfInformation evaluator = new FractionOfInformation(codedTable, target - 1,
+					new PartitionCache(Utilities.partitionCacheMB(argumentsPerExperiment)));
+			partitionCache = evaluator.partitionCache();
+			BeamSearch search = new BeamSearch(evaluator);
+			search.topK(k);
+			search.beamWidth(beamWidth);
+			search.optimisticOption(OptimisticEstimator.valueOf(optOption.toString()));
+			search.refPropagationOption(BeamSearch.RefinementPropagation.valueOf(refOption.toString()));
+			search.threads(threads);
+			resultPatterns = search.call();
+			time = search.runningTime();
+			nodes = search.nodesCreated();
+			nodesDiscardedPotential = search.nodesDiscarded();
+			max_depth = search.maxAttainedDepth();
+			solution_depth = search.bestDepth();
+			boundary_max_size = search.maxAttainedBoundarySize();
+		} else {
+			if (Utilities.sketchDiscretization(argumentsPerExperiment)) {
+				throw new IllegalArgumentException("EF_SKETCH discretization is only available with -ENGINE NATIVE");
+			}
+			if (threads > 1) {
+				throw new IllegalArgumentException("Searching with more than one thread requires -ENGINE NATIVE");
+			}
+			workspace.add(dataWithPreDiscretizedAttributes);
+			BeamFunctionalPatternSearch functionalPatternSearch = new BeamFunctionalPatternSearch(workspace);
 
-				try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(experimentResultsFile))) {
-					writer.write("time: " + time / 1000);
-					writer.write("\n");
-					writer.write("Search space: " + (Math.pow(2, dataTable.numberOfAttributes() - 1)));
-					writer.write("\n");
-					writer.write("Nodes created: " + nodes);
-					writer.write("\n");
-					writer.write("Nodes discarded potential: " + nodesDiscardedPotential);
-					writer.write("\n");
-					writer.write("Pruned search space percentage: "
-							+ (100 - (1.0 * 100 * nodes) / (Math.pow(2, dataTable.numberOfAttributes() - 1))));
-					writer.write("\n");
-					writer.write("Max depth: " + max_depth);
-					writer.write("\n");
-					writer.write("Solution depth: " + solution_depth);
-					writer.write("\n");
-					writer.write("Max boundary size: " + boundary_max_size);
-					writer.write("\n");
-					writer.write("Dependencies: ");
-					writer.write("\n");
-					for (Pattern<?> pattern : resultPatterns) {
-						writer.write(pattern.toString());
-						writer.write("\n");
-					}
-				}
+			functionalPatternSearch.target(dataWithPreDiscretizedAttributes.attribute(target - 1));
+			functionalPatternSearch.topK(k);
+			functionalPatternSearch.beamWidth(beamWidth);
+			functionalPatternSearch.optimisticOption(optOption);
+			functionalPatternSearch.refPropagationOption(refOption);
+			functionalPatternSearch.maxBins(maxBins);
+			functionalPatternSearch.cutPointMultiplier(cutPointMultiplier);
+			functionalPatternSearch.discTypeOption(discTypeOption);
+
+			resultPatterns = functionalPatternSearch.call();
+			time = functionalPatternSearch.runningTime();
+			nodes = functionalPatternSearch.nodesCreated();
+			nodesDiscardedPotential = functionalPatternSearch.nodesDiscarded();
+			max_depth = functionalPatternSearch.maxAttainedDepth();
+			solution_depth = functionalPatternSearch.bestDepth();
+			boundary_max_size = functionalPatternSearch.maxAttainedBoundarySize();
+		}
+
+		ResultsWriter results = new ResultsWriter(Utilities.format(argumentsPerExperiment)).phase("load", loadTime)
+				.phase("discretization", discretizationTime).phase("search", time);
+		long writeStart = System.currentTimeMillis();
+		try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(experimentResultsFile))) {
+			writer.write("time: " + time / 1000);
+			writer.write("\n");
+			writer.write(results.phasesLine());
+			writer.write("\n");
+			writer.write("Search space: " + (Math.pow(2, dataTable.numberOfAttributes() - 1)));
+			writer.write("\n");
+			writer.write("Nodes created: " + nodes);
+			writer.write("\n");
+			if (threads > 1) {
+				writer.write("Threads: " + threads);
+				writer.write("\n");
+			}
+			writer.write("Nodes discarded potential: " + nodesDiscardedPotential);
+			writer.write("\n");
+			writer.write("Pruned search space percentage: "
+					+ (100 - (1.0 * 100 * nodes) / (Math.pow(2, dataTable.numberOfAttributes() - 1))));
+			writer.write("\n");
+			writer.write("Max depth: " + max_depth);
+			writer.write("\n");
+			writer.write("Solution depth: " + solution_depth);
+			writer.write("\n");
+			writer.write("Max boundary size: " + boundary_max_size);
+			writer.write("\n");
+			if (partitionCache != null) {
+				writer.write("Partition cache size: " + partitionCache.size());
+				writer.write("\n");
+				writer.write("Partition cache hit rate: " + partitionCache.hitRate());
+				writer.write("\n");
+				writer.write("Partition cache evictions: " + partitionCache.evictions());
+				writer.write("\n");
+				writer.write("Partition cache bytes: " + partitionCache.bytes() + " (saved by compression: "
+						+ partitionCache.bytesSaved() + ")");
+				writer.write("\n");
+			}
+			if (sketch != null) {
+				writer.write(sketch.toString());
+				writer.write("\n");
+			}
+			writer.write("Dependencies: ");
+			writer.write("\n");
+			for (Object pattern : resultPatterns) {
+				writer.write(pattern.toString());
+				writer.write("\n");
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
+		results.phase("write", System.currentTimeMillis() - writeStart);
+		results.field("dataset", datasetName).field("algorithm", "BEAM")
+				.field("engine", Utilities.nativeEngine(argumentsPerExperiment) ? "NATIVE" : "REALKD").field("k", k)
+				.field("beamWidth", beamWidth).field("nodesCreated", nodes)
+				.field("nodesDiscarded", nodesDiscardedPotential).field("maxDepth", max_depth)
+				.field("solutionDepth", solution_depth).field("maxBoundarySize", boundary_max_size);
+		results.write(experimentResultsFile, resultPatterns);
+
+		return new ExperimentStatistics(System.currentTimeMillis() - start, time, nodes, nodesDiscardedPotential,
+				0);
 	}
 }
@@ -32,11 +32,23 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import de.mpiinf.fodiscovery.io.OPUSReport;
+import de.mpiinf.fodiscovery.io.ResultsWriter;
+import de.mpiinf.fodiscovery.scoring.CodedTable;
+import de.mpiinf.fodiscovery.scoring.FractionOfInformation;
+import de.mpiinf.fodiscovery.scoring.OptimisticEstimator;
+import de.mpiinf.fodiscovery.scoring.PartitionCache;
+import de.mpiinf.fodiscovery.scoring.SketchDiscretization;
+import de.mpiinf.fodiscovery.search.OPUSSearch;
 import de.unibonn.realkd.algorithms.branchbound.OPUS.OperatorOrder;
 import de.unibonn.realkd.algorithms.branchbound.OPUS.TraverseOrder;
 import de.unibonn.realkd.algorithms.functional.OPUSFunctionalPatternSearch;
@@ -46,10 +58,10 @@ import de.unibonn.realkd.algorithms.functional.OPUSFunctionalPatternSearch.Optim
 import de.unibonn.realkd.common.workspace.Workspace;
 import de.unibonn.realkd.common.workspace.Workspaces;
 import de.unibonn.realkd.data.table.DataTable;
-import de.unibonn.realkd.data.table.DataTables;
-import de.unibonn.realkd.data.xarf.XarfImport;
-import de.unibonn.realkd.patterns.Pattern;
 import de.unibonn.realkd.patterns.functional.FunctionalPattern;
+import utils.DataTableCache;
+import utils.DataTableColumns;
+import utils.DiscretizedTableCache;
 import utils.Utilities;
 
 /**
@@ -68,6 +80,10 @@ public class FoOPUSs {
 	public static void main(String[] args) throws Exception {
 		String input = Utilities.input(args);
 		String outputFolder = Utilities.outputFolder(args);
+		int threads = Utilities.threads(args);
+		DataTableCache dataTableCache = new DataTableCache(Utilities.cacheMB(args));
+		DiscretizedTableCache discretizedTableCache = new DiscretizedTableCache(dataTableCache,
+				Utilities.discCache(args));
 
 		Path pathToOutput = Paths.get(outputFolder);
 		if (!Files.exists(pathToOutput)) {
@@ -77,107 +93,262 @@ public class FoOPUSs {
 		}
 		try {
 			List<String> lines = Files.readAllLines(Paths.get(input));
-			for (String s : lines) {
-				String[] argumentsPerExperiment = s.split(" ");
-				String dataset = Utilities.dataset(argumentsPerExperiment);
-				System.out.println(dataset);
-				int target = Utilities.target(argumentsPerExperiment);
-				System.out.println(target);
-				int k = Utilities.numResults(argumentsPerExperiment);
-				OptimisticEstimatorOption optOption = Utilities.optOPUS(argumentsPerExperiment);
-				double alpha = Utilities.alpha(argumentsPerExperiment);
-				System.out.println(alpha);
-				int maxBins = Utilities.maxBins(argumentsPerExperiment);
-				int numBinsTarget = Utilities.numBinsForTarget(argumentsPerExperiment);
-				int cutPointMultiplier = Utilities.cutPointMultiplier(argumentsPerExperiment);
-				DiscretizationTypeOption discTypeOption = Utilities.discTypeOPUS(argumentsPerExperiment);
-
-				String timeStamp = new SimpleDateFormat("dd.MM.yyyy.HH.mm.ss").format(new Date());
-
-				Workspace workspace = Workspaces.workspace();
-				XarfImport builder = XarfImport.xarfImport(dataset);
-				DataTable dataTable = builder.get();
-
-				int numberOfAttrs=dataTable.numberOfAttributes();
-				if(target==0) {
-					target=numberOfAttrs;
-				}		
-				HashSet<Integer> targetToDiscretize=new HashSet<>();
-				targetToDiscretize.add(target-1);
-				DataTable dataWithPreDiscretizedAttributes = DataTables.preDiscretizeTable(dataTable,
-						DataTables.equalFrequencyDiscretization(numBinsTarget), targetToDiscretize);
-				workspace.add(dataWithPreDiscretizedAttributes);
-				OPUSFunctionalPatternSearch functionalPatternSearch = new OPUSFunctionalPatternSearch(workspace);
-
-
-				functionalPatternSearch.target(dataWithPreDiscretizedAttributes
-						.attribute(target-1));
-				functionalPatternSearch.topK(k);
-				functionalPatternSearch.alpha(alpha);
-				functionalPatternSearch.operatorOrder(operatorOrder);
-				functionalPatternSearch.languageOption(langOption);
-				functionalPatternSearch.optimisticOption(optOption);
-				functionalPatternSearch.traverseOrderOption(traverseOption);
-				functionalPatternSearch.maxBins(maxBins);
-				functionalPatternSearch.cutPointMultiplier(cutPointMultiplier);
-				functionalPatternSearch.discTypeOption(discTypeOption);
-
-				String datasetName = dataTable.caption();
-				String experimentResultsFile = null;
-				if (discTypeOption == DiscretizationTypeOption.COP) {
-					experimentResultsFile = outputFolder + File.separator + datasetName + "_Target=" + (target)
-							+ "_Alpha=" + (alpha) + "_Topk=" + k + "_Opt=" + optOption.toString() + "_L=" + maxBins
-							+ "_DiscType=" + discTypeOption.toString() + "_C=" + cutPointMultiplier + "_"
-							+ traverseOption.toString() + timeStamp + ".txt";
-				} else {
-					experimentResultsFile = outputFolder + File.separator + datasetName + "_Target=" + (target)
-							+ "_Alpha=" + (alpha) + "_Topk=" + k + "_Opt=" + optOption.toString() + "_L=" + maxBins
-							+ "_DiscType=" + discTypeOption.toString() + "_" + traverseOption.toString() + timeStamp
-							+ ".txt";
-				}
-				Collection<FunctionalPattern> resultPatterns = functionalPatternSearch.call();
-				long time = functionalPatternSearch.runningTime();
-				int nodes = functionalPatternSearch.nodesCreated();
-				int nodesDiscardedPotential = functionalPatternSearch.nodesDiscarded();
-				int nodesDiscardedPruning = functionalPatternSearch.nodesDiscardedPruningRules();
-				int max_depth = functionalPatternSearch.maxAttainedDepth();
-				int solution_depth = functionalPatternSearch.bestDepth();
-				int boundary_max_size = functionalPatternSearch.maxAttainedBoundarySize();
-				System.out.println(time / 1000.0);
-
-				try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(experimentResultsFile))) {
-					writer.write("time: " + time / 1000);
-					writer.write("\n");
-					writer.write("Alpha used: " + alpha);
-					writer.write("\n");
-					writer.write("Search space: " + (Math.pow(2, dataTable.numberOfAttributes() - 1)));
-					writer.write("\n");
-					writer.write("Nodes created: " + nodes);
-					writer.write("\n");
-					writer.write("Nodes discarded potential: " + nodesDiscardedPotential);
-					writer.write("\n");
-					writer.write("Nodes discarded rules: " + nodesDiscardedPruning);
-					writer.write("\n");
-					writer.write("Pruned search space percentage: "
-							+ (100 - (1.0 * 100 * nodes) / (Math.pow(2, dataTable.numberOfAttributes() - 1))));
-					writer.write("\n");
-					writer.write("Max depth: " + max_depth);
-					writer.write("\n");
-					writer.write("Solution depth: " + solution_depth);
-					writer.write("\n");
-					writer.write("Max boundary size: " + boundary_max_size);
-					writer.write("\n");
-					writer.write("Dependencies: ");
-					writer.write("\n");
-
-					for (Pattern<?> pattern : resultPatterns) {
-						writer.write(pattern.toString());
-						writer.write("\n");
-					}
+			ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, lines.size())));
+			List<Future<ExperimentStatistics>> experimentTimes = new ArrayList<>();
+			long start = System.currentTimeMillis();
+			for (int line = 0; line < lines.size(); line++) {
+				int id = line + 1;
+				String s = lines.get(line);
+				experimentTimes.add(executor
+						.submit(() -> runExperiment(id, s, outputFolder, dataTableCache, discretizedTableCache)));
+			}
+			executor.shutdown();
+			long sequentialTime = 0;
+			for (int line = 0; line < experimentTimes.size(); line++) {
+				try {
+					sequentialTime += experimentTimes.get(line).get().wallClockTime();
+				} catch (ExecutionException e) {
+					System.err.println("Experiment " + (line + 1) + " failed");
+					e.getCause().printStackTrace();
 				}
 			}
+			long wallClockTime = System.currentTimeMillis() - start;
+			System.out.println("Experiments: " + lines.size() + ", threads: " + threads);
+			// concurrent experiments slow each other down, so this is not the
+			// speedup over running them one after the other
+			System.out.println("Wall-clock time: " + wallClockTime / 1000.0 + ", sum of experiment times: "
+					+ sequentialTime / 1000.0 + ", experiments running at once: "
+					+ (1.0 * sequentialTime / Math.max(1, wallClockTime)));
+			System.out.println(dataTableCache);
+			System.out.println(discretizedTableCache);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
+
+	/**
+	 * Runs the experiment of one line of the input file, with its own workspace
+	 * and search, and writes its output file. The dataset and its discretized target
+	 * are taken from the caches shared by all lines
+	 * 
+	 * @param id
+	 *            the number of the line, which prefixes what the experiment
+	 *            prints
+	 * @return the statistics of the experiment
+	 */
+	static ExperimentStatistics runExperiment(int id, String experiment, String outputFolder, DataTableCache dataTableCache,
+			DiscretizedTableCache discretizedTableCache) throws Exception {
+		long start = System.currentTimeMillis();
+		String[] argumentsPerExperiment = experiment.split(" ");
+		if (Utilities.progressive(argumentsPerExperiment).length > 0) {
+			throw new IllegalArgumentException("Progressive search requires a single experiment");
+		}
+		if (Utilities.checkpoint(argumentsPerExperiment) > 0 || !Utilities.resume(argumentsPerExperiment).isEmpty()) {
+			throw new IllegalArgumentException("Checkpoints require a single experiment");
+		}
+		if (Utilities.progress(argumentsPerExperiment) > 0) {
+			throw new IllegalArgumentException("Progress reports require a single experiment");
+		}
+		if (!Utilities.state(argumentsPerExperiment).isEmpty()) {
+			throw new IllegalArgumentException("An incremental state requires a single experiment");
+		}
+		String dataset = Utilities.dataset(argumentsPerExperiment);
+		String prefix = "Experiment " + id + ": ";
+		System.out.println(prefix + dataset);
+		int target = Utilities.target(argumentsPerExperiment);
+		System.out.println(prefix + target);
+		int k = Utilities.numResults(argumentsPerExperiment);
+		OptimisticEstimatorOption optOption = Utilities.optOPUS(argumentsPerExperiment);
+		double alpha = Utilities.alpha(argumentsPerExperiment);
+		double[] alphas = Utilities.alphas(argumentsPerExperiment);
+		System.out.println(prefix + Utilities.alphaName(argumentsPerExperiment));
+		int maxBins = Utilities.maxBins(argumentsPerExperiment);
+		int numBinsTarget = Utilities.numBinsForTarget(argumentsPerExperiment);
+		int cutPointMultiplier = Utilities.cutPointMultiplier(argumentsPerExperiment);
+		DiscretizationTypeOption discTypeOption = Utilities.discTypeOPUS(argumentsPerExperiment);
+		int threads = Utilities.threads(argumentsPerExperiment);
+
+		String timeStamp = new SimpleDateFormat("dd.MM.yyyy.HH.mm.ss").format(new Date());
+
+		Workspace workspace = Workspaces.workspace();
+		long loadStart = System.currentTimeMillis();
+		DataTable dataTable = dataTableCache.get(dataset);
+		long loadTime = System.currentTimeMillis() - loadStart;
+
+		int numberOfAttrs=dataTable.numberOfAttributes();
+		if(target==0) {
+			target=numberOfAttrs;
+		}		
+		SketchDiscretization sketch = Utilities.sketchDiscretization(argumentsPerExperiment)
+				? new SketchDiscretization(Utilities.sketchK(argumentsPerExperiment), threads)
+				: null;
+		long discretizationStart = System.currentTimeMillis();
+		DataTable dataWithPreDiscretizedAttributes = discretizedTableCache.get(dataset, dataTable, target - 1,
+				numBinsTarget, sketch);
+		long discretizationTime = System.currentTimeMillis() - discretizationStart;
+		String datasetName = dataTable.caption();
+		String experimentResultsFile = null;
+		if (discTypeOption == DiscretizationTypeOption.COP) {
+			experimentResultsFile = outputFolder + File.separator + datasetName + "_Target=" + (target)
+					+ "_Alpha=" + Utilities.alphaName(argumentsPerExperiment) + "_Topk=" + k + "_Opt=" + optOption.toString() + "_L=" + maxBins
+					+ "_DiscType=" + Utilities.discTypeName(argumentsPerExperiment) + "_C=" + cutPointMultiplier + "_"
+					+ traverseOption.toString() + timeStamp + ".txt";
+		} else {
+			experimentResultsFile = outputFolder + File.separator + datasetName + "_Target=" + (target)
+					+ "_Alpha=" + Utilities.alphaName(argumentsPerExperiment) + "_Topk=" + k + "_Opt=" + optOption.toString() + "_L=" + maxBins
+					+ "_DiscType=" + Utilities.discTypeName(argumentsPerExperiment) + "_" + traverseOption.toString() + timeStamp
+					+ ".txt";
+		}
+
+		Collection<?> resultPatterns;
+		long time;
+		int nodes;
+		int nodesDiscardedPotential;
+		int nodesDiscardedPruning;
+		int max_depth;
+		int solution_depth;
+		int boundary_max_size;
+		PartitionCache partitionCache = null;
+		int[] nodesPerThread = null;
+		double cpuUtilization = 1;
+		long timeout = Utilities.timeout(argumentsPerExperiment);
+		boolean timedOut = false;
+		double remainingBound = Double.NEGATIVE_INFINITY;
+		double effectiveAlpha = alpha;
+		int boundaryMB = Utilities.boundaryMB(argumentsPerExperiment);
+		int boundaryRuns = 0;
+		int boundaryMerges = 0;
+		long spilledNodes = 0;
+		long spilledBytes = 0;
+		List<OPUSSearch.Guarantee> guarantees = null;
+		if (Utilities.nativeEngine(argumentsPerExperiment)) {
+			if (discTypeOption == DiscretizationTypeOption.COP || discTypeOption == DiscretizationTypeOption.PRE) {
+				throw new IllegalArgumentException(
+						discTypeOption + " discretization is only available with -ENGINE REALKD");
+			}
+			long codingStart = System.currentTimeMillis();
+			CodedTable codedTable = DataTableColumns.codedTable(dataWithPreDiscretizedAttributes, target - 1, maxBins,
+					numBinsTarget, sketch);
+			discretizationTime += System.currentTimeMillis() - codingStart;
+			FractionOfInformation evaluator = new FractionOfInformation(codedTable, target - 1,
+					new PartitionCache(Utilities.partitionCacheMB(argumentsPerExperiment)));
+			partitionCache = evaluator.partitionCache();
+			OPUSSearch search = new OPUSSearch(evaluator);
+			search.topK(k);
+			if (alphas.length > 1) {
+				if (threads > 1) {
+					throw new IllegalArgumentException("A list of alphas requires -THREADS 1");
+				}
+				search.alphas(alphas);
+			} else {
+				search.alpha(alpha);
+			}
+			search.optimisticOption(OptimisticEstimator.valueOf(optOption.toString()));
+			search.threads(threads);
+			search.timeout(timeout);
+			if (boundaryMB > 0) {
+				if (threads > 1) {
+					throw new IllegalArgumentException("A boundary budget requires -THREADS 1");
+				}
+				search.boundaryMB(boundaryMB, Paths.get(Utilities.spillDirectory(argumentsPerExperiment)));
+			}
+			resultPatterns = search.call();
+			time = search.runningTime();
+			nodes = search.nodesCreated();
+			nodesDiscardedPotential = search.nodesDiscarded();
+			nodesDiscardedPruning = search.nodesDiscardedPruningRules();
+			max_depth = search.maxAttainedDepth();
+			solution_depth = search.bestDepth();
+			boundary_max_size = search.maxAttainedBoundarySize();
+			nodesPerThread = search.nodesCreatedPerThread();
+			cpuUtilization = search.cpuUtilization();
+			timedOut = search.timedOut();
+			remainingBound = search.remainingBound();
+			effectiveAlpha = search.effectiveAlpha();
+			boundaryRuns = search.boundaryRuns();
+			boundaryMerges = search.boundaryMerges();
+			spilledNodes = search.spilledNodes();
+			spilledBytes = search.spilledBytes();
+			if (alphas.length > 1) {
+				guarantees = search.guarantees();
+			}
+		} else {
+			if (Utilities.sketchDiscretization(argumentsPerExperiment)) {
+				throw new IllegalArgumentException("EF_SKETCH discretization is only available with -ENGINE NATIVE");
+			}
+			if (threads > 1) {
+				throw new IllegalArgumentException("Searching with more than one thread requires -ENGINE NATIVE");
+			}
+			if (timeout > 0) {
+				throw new IllegalArgumentException("A timeout requires -ENGINE NATIVE");
+			}
+			if (boundaryMB > 0) {
+				throw new IllegalArgumentException("A boundary budget requires -ENGINE NATIVE");
+			}
+			if (alphas.length > 1) {
+				throw new IllegalArgumentException("A list of alphas requires -ENGINE NATIVE");
+			}
+			workspace.add(dataWithPreDiscretizedAttributes);
+			OPUSFunctionalPatternSearch functionalPatternSearch = new OPUSFunctionalPatternSearch(workspace);
+
+
+			functionalPatternSearch.target(dataWithPreDiscretizedAttributes
+					.attribute(target-1));
+			functionalPatternSearch.topK(k);
+			functionalPatternSearch.alpha(alpha);
+			functionalPatternSearch.operatorOrder(operatorOrder);
+			functionalPatternSearch.languageOption(langOption);
+			functionalPatternSearch.optimisticOption(optOption);
+			functionalPatternSearch.traverseOrderOption(traverseOption);
+			functionalPatternSearch.maxBins(maxBins);
+			functionalPatternSearch.cutPointMultiplier(cutPointMultiplier);
+			functionalPatternSearch.discTypeOption(discTypeOption);
+
+			resultPatterns = functionalPatternSearch.call();
+			time = functionalPatternSearch.runningTime();
+			nodes = functionalPatternSearch.nodesCreated();
+			nodesDiscardedPotential = functionalPatternSearch.nodesDiscarded();
+			nodesDiscardedPruning = functionalPatternSearch.nodesDiscardedPruningRules();
+			max_depth = functionalPatternSearch.maxAttainedDepth();
+			solution_depth = functionalPatternSearch.bestDepth();
+			boundary_max_size = functionalPatternSearch.maxAttainedBoundarySize();
+		}
+		System.out.println(prefix + time / 1000.0);
+
+		OPUSReport report = new OPUSReport(dataTable.numberOfAttributes() - 1).alpha(alpha, effectiveAlpha)
+				.guarantees(Utilities.alphaName(argumentsPerExperiment), alphas.length, guarantees)
+				.timeout(timeout, timedOut, remainingBound)
+				.boundary(boundaryMB, boundaryRuns, boundaryMerges, spilledNodes, spilledBytes)
+				.nodes(nodes, nodesDiscardedPotential, nodesDiscardedPruning)
+				.threads(threads, nodesPerThread, cpuUtilization)
+				.depths(max_depth, solution_depth, boundary_max_size).partitionCache(partitionCache);
+		ResultsWriter results = new ResultsWriter(Utilities.format(argumentsPerExperiment)).phase("load", loadTime)
+				.phase("discretization", discretizationTime).phase("search", time);
+		long writeStart = System.currentTimeMillis();
+		try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(experimentResultsFile))) {
+			writer.write("time: " + time / 1000);
+			writer.write("\n");
+			writer.write(results.phasesLine());
+			writer.write("\n");
+			report.writeAlphas(writer);
+			report.writeStatistics(writer);
+			if (sketch != null) {
+				writer.write(sketch.toString());
+				writer.write("\n");
+			}
+			writer.write("Dependencies: ");
+			writer.write("\n");
+
+			for (Object pattern : resultPatterns) {
+				writer.write(pattern.toString());
+				writer.write("\n");
+			}
+		}
+		results.phase("write", System.currentTimeMillis() - writeStart);
+		report.fields(results, datasetName, Utilities.nativeEngine(argumentsPerExperiment), k);
+		results.write(experimentResultsFile, resultPatterns);
+
+		return new ExperimentStatistics(System.currentTimeMillis() - start, time, nodes, nodesDiscardedPotential,
+				nodesDiscardedPruning);
+	}
 }
@@ -0,0 +1,309 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.multipleexp;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import utils.DataTableCache;
+import utils.DiscretizedTableCache;
+import utils.Utilities;
+
+/**
+ * A class for end-to-end benchmarks of a suite of experiments. Every line of
+ * the suite file is OPUS or BEAM followed by an experiment line of FoOPUSs or
+ * FoBeams respectively. Every experiment is run -WARMUP times, and then
+ * -REPETITIONS times, of which the medians of the running time, the nodes
+ * created and discarded, and the peak heap are kept.
+ *
+ * The medians are compared with a baseline file, and the program exits with
+ * status 1 after printing the differences if the running time or the nodes
+ * created of an experiment increased by more than -TIME_THRESHOLD or
+ * -NODES_THRESHOLD, or if an experiment is missing from the baseline.
+ * Increases of the running time below {@value #MIN_TIME_DIFFERENCE}
+ * milliseconds are ignored as noise. The medians can be written as a new
+ * baseline file with -WRITE_BASELINE, which records the machine they were
+ * measured on. Node counts do not depend on the machine, but running times do,
+ * so they are only compared on the machine of the baseline.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class Macrobenchmark {
+
+	public static final long MIN_TIME_DIFFERENCE = 50;
+
+	private static final String MACHINE = "# machine\t";
+
+	public static final String[] METRICS = { "runningTime", "nodesCreated", "nodesDiscarded",
+			"nodesDiscardedPruningRules", "peakHeapMB" };
+
+	public static void main(String[] args) throws Exception {
+		String suite = Utilities.file(args, "-SUITE");
+		if (suite.isEmpty()) {
+			throw new IllegalStateException("Missing -SUITE");
+		}
+		String outputFolder = Utilities.outputFolder(args);
+		String baseline = Utilities.file(args, "-BASELINE");
+		String writeBaseline = Utilities.file(args, "-WRITE_BASELINE");
+		int warmup = Utilities.warmup(args);
+		int repetitions = Utilities.repetitions(args);
+		double timeThreshold = Utilities.timeThreshold(args);
+		double nodesThreshold = Utilities.nodesThreshold(args);
+		Files.createDirectories(Paths.get(outputFolder));
+
+		DataTableCache dataTableCache = new DataTableCache(Utilities.cacheMB(args));
+		DiscretizedTableCache discretizedTableCache = new DiscretizedTableCache(dataTableCache,
+				Utilities.discCache(args));
+		Map<String, long[]> results = new LinkedHashMap<>();
+		List<String> lines = Files.readAllLines(Paths.get(suite));
+		for (int line = 0; line < lines.size(); line++) {
+			int id = line + 1;
+			String experiment = lines.get(line).trim();
+			if (experiment.isEmpty() || experiment.startsWith("#")) {
+				continue;
+			}
+			for (int i = 0; i < warmup; i++) {
+				run(id, experiment, outputFolder, dataTableCache, discretizedTableCache);
+			}
+			long[][] measurements = new long[repetitions][];
+			for (int i = 0; i < repetitions; i++) {
+				measurements[i] = run(id, experiment, outputFolder, dataTableCache, discretizedTableCache);
+			}
+			results.put(experiment, medians(measurements));
+		}
+
+		if (!writeBaseline.isEmpty()) {
+			write(Paths.get(writeBaseline), results);
+			System.out.println("Wrote baseline " + writeBaseline);
+		}
+		if (baseline.isEmpty()) {
+			print(results);
+			return;
+		}
+		Map<String, long[]> baselineResults = read(Paths.get(baseline));
+		String baselineMachine = machine(Paths.get(baseline));
+		boolean compareTimes = machine().equals(baselineMachine);
+		if (!compareTimes) {
+			System.out.println("Running times are not compared, since the baseline was recorded on "
+					+ (baselineMachine == null ? "an unknown machine" : baselineMachine) + " and this is "
+					+ machine() + ". Write a baseline here with -WRITE_BASELINE to compare them.");
+		}
+		int regressions = 0;
+		int missing = 0;
+		for (Map.Entry<String, long[]> result : results.entrySet()) {
+			long[] baselineResult = baselineResults.get(result.getKey());
+			if (baselineResult == null) {
+				System.out.println(result.getKey());
+				System.out.println("\tMISSING from the baseline");
+				print(result.getValue());
+				missing++;
+				continue;
+			}
+			regressions += compare(result.getKey(), baselineResult, result.getValue(),
+					compareTimes ? timeThreshold : Double.POSITIVE_INFINITY, nodesThreshold);
+		}
+		if (regressions > 0 || missing > 0) {
+			System.out.println(regressions + " regression(s) and " + missing + " experiment(s) missing from "
+					+ baseline);
+			System.exit(1);
+		}
+		System.out.println("No regressions against " + baseline);
+	}
+
+	/**
+	 * Runs one experiment after a garbage collection and returns its metrics
+	 * in the order of {@link #METRICS}
+	 * 
+	 * @param id
+	 *            the number of the line of the suite
+	 */
+	private static long[] run(int id, String experiment, String outputFolder, DataTableCache dataTableCache,
+			DiscretizedTableCache discretizedTableCache) throws Exception {
+		int separator = experiment.indexOf(' ');
+		String algorithm = separator < 0 ? experiment : experiment.substring(0, separator);
+		String experimentLine = separator < 0 ? "" : experiment.substring(separator + 1).trim();
+		List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				heapPools.add(pool);
+			}
+		}
+		System.gc();
+		for (MemoryPoolMXBean pool : heapPools) {
+			pool.resetPeakUsage();
+		}
+		ExperimentStatistics statistics;
+		if (algorithm.equals("OPUS")) {
+			statistics = FoOPUSs.runExperiment(id, experimentLine, outputFolder, dataTableCache, discretizedTableCache);
+		} else if (algorithm.equals("BEAM")) {
+			statistics = FoBeams.runExperiment(id, experimentLine, outputFolder, dataTableCache, discretizedTableCache);
+		} else {
+			throw new IllegalArgumentException("Illegal suite line " + experiment + ". Should start with OPUS or BEAM");
+		}
+		long peakHeap = 0;
+		for (MemoryPoolMXBean pool : heapPools) {
+			peakHeap += pool.getPeakUsage().getUsed();
+		}
+		return new long[] { statistics.runningTime(), statistics.nodesCreated(), statistics.nodesDiscarded(),
+				statistics.nodesDiscardedPruningRules(), peakHeap / (1024 * 1024) };
+	}
+
+	private static long[] medians(long[][] measurements) {
+		long[] medians = new long[METRICS.length];
+		long[] values = new long[measurements.length];
+		for (int metric = 0; metric < METRICS.length; metric++) {
+			for (int i = 0; i < measurements.length; i++) {
+				values[i] = measurements[i][metric];
+			}
+			Arrays.sort(values);
+			medians[metric] = values[values.length / 2];
+		}
+		return medians;
+	}
+
+	/**
+	 * Prints the differences of an experiment from its baseline and returns
+	 * the number of regressions
+	 */
+	private static int compare(String experiment, long[] baseline, long[] result, double timeThreshold,
+			double nodesThreshold) {
+		System.out.println(experiment);
+		int regressions = 0;
+		for (int metric = 0; metric < METRICS.length; metric++) {
+			double change = baseline[metric] == 0 ? (result[metric] == 0 ? 0 : Double.POSITIVE_INFINITY)
+					: (double) (result[metric] - baseline[metric]) / baseline[metric];
+			String verdict = "";
+			if (METRICS[metric].equals("runningTime") && change > timeThreshold
+					&& result[metric] - baseline[metric] >= MIN_TIME_DIFFERENCE) {
+				verdict = "  REGRESSION (threshold " + String.format("%.1f%%", 100 * timeThreshold) + ")";
+			} else if (METRICS[metric].equals("nodesCreated") && change > nodesThreshold) {
+				verdict = "  REGRESSION (threshold " + String.format("%.1f%%", 100 * nodesThreshold) + ")";
+			}
+			if (!verdict.isEmpty()) {
+				regressions++;
+			}
+			System.out.println(String.format("\t%-28s %12d -> %12d %+9.1f%%%s", METRICS[metric], baseline[metric],
+					result[metric], 100 * change, verdict));
+		}
+		return regressions;
+	}
+
+	private static void print(Map<String, long[]> results) {
+		for (Map.Entry<String, long[]> result : results.entrySet()) {
+			System.out.println(result.getKey());
+			print(result.getValue());
+		}
+	}
+
+	private static void print(long[] result) {
+		for (int metric = 0; metric < METRICS.length; metric++) {
+			System.out.println(String.format("\t%-28s %12d", METRICS[metric], result[metric]));
+		}
+	}
+
+	/**
+	 * The machine running times are measured on: the host, the operating
+	 * system, the number of cores and the JVM
+	 */
+	static String machine() {
+		String host;
+		try {
+			host = InetAddress.getLocalHost().getHostName();
+		} catch (IOException e) {
+			host = "unknown host";
+		}
+		return host + ", " + System.getProperty("os.name") + " " + System.getProperty("os.arch") + ", "
+				+ Runtime.getRuntime().availableProcessors() + " cores, " + System.getProperty("java.vm.name") + " "
+				+ System.getProperty("java.version");
+	}
+
+	/**
+	 * A baseline file has a header line, a line with the machine it was
+	 * measured on, and then one tab-separated line per experiment, the suite
+	 * line followed by its metrics
+	 */
+	private static void write(Path file, Map<String, long[]> results) throws Exception {
+		try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+			writer.write("# experiment\t" + String.join("\t", METRICS));
+			writer.write("\n");
+			writer.write(MACHINE + machine());
+			writer.write("\n");
+			for (Map.Entry<String, long[]> result : results.entrySet()) {
+				writer.write(result.getKey());
+				for (long value : result.getValue()) {
+					writer.write("\t" + value);
+				}
+				writer.write("\n");
+			}
+		}
+	}
+
+	/**
+	 * The machine a baseline file was measured on, or null if it does not say
+	 */
+	private static String machine(Path file) throws IOException {
+		for (String line : Files.readAllLines(file)) {
+			if (line.startsWith(MACHINE)) {
+				return line.substring(MACHINE.length()).trim();
+			}
+		}
+		return null;
+	}
+
+	private static Map<String, long[]> read(Path file) throws Exception {
+		Map<String, long[]> results = new LinkedHashMap<>();
+		for (String line : Files.readAllLines(file)) {
+			if (line.trim().isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.split("\t");
+			if (fields.length != METRICS.length + 1) {
+				throw new IllegalArgumentException("Illegal baseline line " + line + ". Should have the experiment and "
+						+ METRICS.length + " metrics separated by tabs");
+			}
+			long[] values = new long[METRICS.length];
+			for (int metric = 0; metric < METRICS.length; metric++) {
+				values[metric] = Long.parseLong(fields[metric + 1].trim());
+			}
+			results.put(fields[0].trim(), values);
+		}
+		return results;
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.scoring;
+
+import java.util.Arrays;
+
+/**
+ * A discretized table where every attribute is an array of integer codes
+ * 0..cardinality-1, one per row. Missing values are a category of their own.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class CodedTable {
+
+	private final String caption;
+
+	private final String[] captions;
+
+	private final int[][] codes;
+
+	private final int[] cardinalities;
+
+	private final int numberOfRows;
+
+	/**
+	 * @param codes
+	 *            the codes of every attribute, which are not copied and must not
+	 *            be modified afterwards
+	 */
+	public CodedTable(String caption, String[] captions, int[][] codes, int[] cardinalities) {
+		if (captions.length != codes.length || codes.length != cardinalities.length) {
+			throw new IllegalArgumentException("Captions, codes and cardinalities differ in number of attributes");
+		}
+		this.caption = caption;
+		this.captions = captions;
+		this.codes = codes;
+		this.cardinalities = cardinalities;
+		this.numberOfRows = codes.length == 0 ? 0 : codes[0].length;
+	}
+
+	public String caption() {
+		return caption;
+	}
+
+	public String caption(int attribute) {
+		return captions[attribute];
+	}
+
+	public int numberOfAttributes() {
+		return codes.length;
+	}
+
+	public int numberOfRows() {
+		return numberOfRows;
+	}
+
+	/**
+	 * The codes of an attribute, which must not be modified
+	 */
+	public int[] codes(int attribute) {
+		return codes[attribute];
+	}
+
+	public int cardinality(int attribute) {
+		return cardinalities[attribute];
+	}
+
+	/**
+	 * Returns a table with the same attributes, except that the given one has
+	 * the given codes. The codes of the other attributes are shared.
+	 */
+	public CodedTable withAttribute(int attribute, int[] codes, int cardinality) {
+		int[][] allCodes = this.codes.clone();
+		int[] allCardinalities = this.cardinalities.clone();
+		allCodes[attribute] = codes;
+		allCardinalities[attribute] = cardinality;
+		return new CodedTable(caption, captions, allCodes, allCardinalities);
+	}
+
+	/**
+	 * Returns a table of the given rows. The codes of every attribute are
+	 * renumbered in order of first appearance, so that they are 0..c-1 for the
+	 * c values in the sample.
+	 */
+	public CodedTable sample(int[] rows) {
+		int[][] sampleCodes = new int[codes.length][rows.length];
+		int[] sampleCardinalities = new int[codes.length];
+		for (int attribute = 0; attribute < codes.length; attribute++) {
+			int[] sampleCodeOf = new int[cardinalities[attribute]];
+			Arrays.fill(sampleCodeOf, -1);
+			int cardinality = 0;
+			for (int i = 0; i < rows.length; i++) {
+				int code = codes[attribute][rows[i]];
+				if (sampleCodeOf[code] < 0) {
+					sampleCodeOf[code] = cardinality++;
+				}
+				sampleCodes[attribute][i] = sampleCodeOf[code];
+			}
+			sampleCardinalities[attribute] = cardinality;
+		}
+		return new CodedTable(caption, captions, sampleCodes, sampleCardinalities);
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.scoring;
+
+import java.util.Arrays;
+
+/**
+ * A stripped partition compressed as sorted integer sets. The number of rows,
+ * classes and stripped rows are followed by the size of every class and its
+ * rows as gaps from the previous row, all as variable-length integers of 7
+ * bits per byte.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+class CompressedPartition {
+
+	private final byte[] data;
+
+	private final long uncompressedBytes;
+
+	private CompressedPartition(byte[] data, long uncompressedBytes) {
+		this.data = data;
+		this.uncompressedBytes = uncompressedBytes;
+	}
+
+	static CompressedPartition compress(StrippedPartition partition) {
+		int numberOfClasses = partition.numberOfClasses();
+		int strippedRows = partition.numberOfRows() - partition.singletons();
+		// at most 5 bytes per integer
+		byte[] buffer = new byte[5 * (3 + numberOfClasses + strippedRows)];
+		int position = 0;
+		position = write(buffer, position, partition.numberOfRows());
+		position = write(buffer, position, numberOfClasses);
+		position = write(buffer, position, strippedRows);
+		for (int c = 0; c < numberOfClasses; c++) {
+			int start = partition.classStart(c);
+			int size = partition.classSize(c);
+			position = write(buffer, position, size);
+			int previous = 0;
+			for (int i = start; i < start + size; i++) {
+				int row = partition.row(i);
+				position = write(buffer, position, row - previous);
+				previous = row;
+			}
+		}
+		return new CompressedPartition(Arrays.copyOf(buffer, position), partition.bytes());
+	}
+
+	StrippedPartition decompress() {
+		int[] position = { 0 };
+		int numberOfRows = read(position);
+		int numberOfClasses = read(position);
+		int[] rows = new int[read(position)];
+		int[] classStarts = new int[numberOfClasses + 1];
+		int next = 0;
+		for (int c = 0; c < numberOfClasses; c++) {
+			classStarts[c] = next;
+			int size = read(position);
+			int row = 0;
+			for (int i = 0; i < size; i++) {
+				row += read(position);
+				rows[next++] = row;
+			}
+		}
+		classStarts[numberOfClasses] = next;
+		return new StrippedPartition(numberOfRows, rows, classStarts);
+	}
+
+	/**
+	 * The approximate heap size in bytes
+	 */
+	long bytes() {
+		return 16 + 16 + data.length;
+	}
+
+	/**
+	 * The approximate heap size of the partition before compression
+	 */
+	long uncompressedBytes() {
+		return uncompressedBytes;
+	}
+
+	private static int write(byte[] buffer, int position, int value) {
+		while ((value & ~0x7f) != 0) {
+			buffer[position++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+		return position;
+	}
+
+	private int read(int[] position) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = data[position[0]++];
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.scoring;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * The contingency table of an attribute set with the target, i.e., the counts
+ * of the target codes for every combination of codes of the attributes that
+ * occurs in the rows. Unlike a partition, it can be updated with more rows,
+ * and it gives the same scores by
+ * {@link FractionOfInformation#evaluate(ContingencyTable, int[], ExpectedMutualInformation, OptimisticEstimator)}.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class ContingencyTable {
+
+	private final int numberOfAttributes;
+
+	private final Map<Cell, int[]> cells = new HashMap<>();
+
+	/**
+	 * The codes of the attributes of a row, reused to look up existing cells
+	 */
+	private final Cell probe;
+
+	/**
+	 * The codes of the attributes of a combination
+	 */
+	private static class Cell {
+
+		private final int[] codes;
+
+		private int hash;
+
+		private Cell(int[] codes) {
+			this.codes = codes;
+			this.hash = Arrays.hashCode(codes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Cell && Arrays.equals(codes, ((Cell) other).codes);
+		}
+	}
+
+	public ContingencyTable(int numberOfAttributes) {
+		this.numberOfAttributes = numberOfAttributes;
+		this.probe = new Cell(new int[numberOfAttributes]);
+	}
+
+	public int numberOfAttributes() {
+		return numberOfAttributes;
+	}
+
+	/**
+	 * The number of combinations of codes that occur
+	 */
+	public int size() {
+		return cells.size();
+	}
+
+	/**
+	 * Counts a row with the codes of the given attributes
+	 * 
+	 * @param columns
+	 *            the codes of every attribute of the table, by attribute
+	 * @param attributes
+	 *            the attributes of the contingency table
+	 */
+	public void add(int[][] columns, int[] attributes, int row, int targetCode) {
+		for (int i = 0; i < numberOfAttributes; i++) {
+			probe.codes[i] = columns[attributes[i]][row];
+		}
+		probe.hash = Arrays.hashCode(probe.codes);
+		int[] counts = cells.get(probe);
+		if (counts == null) {
+			counts = new int[targetCode + 1];
+			cells.put(new Cell(probe.codes.clone()), counts);
+		} else if (counts.length <= targetCode) {
+			counts = Arrays.copyOf(counts, targetCode + 1);
+			cells.put(new Cell(probe.codes.clone()), counts);
+		}
+		counts[targetCode]++;
+	}
+
+	/**
+	 * Adds the counts of the target codes of a combination of codes
+	 */
+	public void add(int[] codes, int[] targetCounts) {
+		Cell cell = new Cell(codes.clone());
+		int[] counts = cells.get(cell);
+		if (counts == null) {
+			cells.put(cell, targetCounts.clone());
+			return;
+		}
+		if (counts.length < targetCounts.length) {
+			counts = Arrays.copyOf(counts, targetCounts.length);
+			cells.put(cell, counts);
+		}
+		for (int code = 0; code < targetCounts.length; code++) {
+			counts[code] += targetCounts[code];
+		}
+	}
+
+	/**
+	 * Passes the codes of every combination and the counts of its target
+	 * codes, which must not be modified, to the action
+	 */
+	public void forEach(BiConsumer<int[], int[]> action) {
+		for (Map.Entry<Cell, int[]> cell : cells.entrySet()) {
+			action.accept(cell.getKey().codes, cell.getValue());
+		}
+	}
+
+	/**
+	 * The counts of the target codes of every combination
+	 */
+	Iterable<int[]> counts() {
+		return cells.values();
+	}
+
+}
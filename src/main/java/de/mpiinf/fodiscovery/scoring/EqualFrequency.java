@@ -0,0 +1,119 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.scoring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Equal-frequency discretization of numeric attributes into integer codes
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class EqualFrequency {
+
+	/**
+	 * Returns the cut points that split the values into at most numBins bins of
+	 * about equal size. Value v falls into the bin of the number of cut points
+	 * smaller or equal to it. Missing values (NaN) are ignored.
+	 */
+	public static double[] cutPoints(double[] values, int numBins) {
+		double[] sorted = Arrays.stream(values).filter(value -> !Double.isNaN(value)).toArray();
+		Arrays.sort(sorted);
+		double[] cutPoints = new double[numBins - 1];
+		int numberOfCutPoints = 0;
+		for (int bin = 1; bin < numBins && sorted.length > 0; bin++) {
+			double cutPoint = sorted[(int) ((long) bin * sorted.length / numBins)];
+			if (cutPoint > sorted[0] && (numberOfCutPoints == 0 || cutPoint > cutPoints[numberOfCutPoints - 1])) {
+				cutPoints[numberOfCutPoints++] = cutPoint;
+			}
+		}
+		return Arrays.copyOf(cutPoints, numberOfCutPoints);
+	}
+
+	/**
+	 * Discretizes the values into codes using the given cut points. Every bin is
+	 * non-empty if the cut points come from the same values, and missing values
+	 * get the code after the last bin.
+	 *
+	 * @return the number of codes, including the one for missing values if any
+	 *         is missing
+	 */
+	public static int discretize(double[] values, double[] cutPoints, int[] codes) {
+		boolean missing = false;
+		for (int row = 0; row < values.length; row++) {
+			if (Double.isNaN(values[row])) {
+				codes[row] = cutPoints.length + 1;
+				missing = true;
+			} else {
+				codes[row] = bin(values[row], cutPoints);
+			}
+		}
+		return cutPoints.length + (missing ? 2 : 1);
+	}
+
+	/**
+	 * The number of cut points smaller or equal to the value
+	 */
+	public static int bin(double value, double[] cutPoints) {
+		int low = 0;
+		int high = cutPoints.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (cutPoints[middle] <= value) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * The labels of the bins of the cut points, as intervals
+	 */
+	public static List<String> labels(double[] cutPoints) {
+		List<String> labels = new ArrayList<>();
+		for (int bin = 0; bin <= cutPoints.length; bin++) {
+			labels.add("[" + (bin == 0 ? "-inf" : String.valueOf(cutPoints[bin - 1])) + ","
+					+ (bin == cutPoints.length ? "inf" : String.valueOf(cutPoints[bin])) + ")");
+		}
+		return labels;
+	}
+
+	/**
+	 * Discretizes the values into at most numBins equal-frequency bins
+	 *
+	 * @return the number of codes
+	 */
+	public static int discretize(double[] values, int numBins, int[] codes) {
+		return discretize(values, cutPoints(values, numBins), codes);
+	}
+
+}
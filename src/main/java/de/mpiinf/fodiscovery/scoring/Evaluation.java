@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.scoring;
+
+/**
+ * The information-theoretic scores of an attribute set for the target, and the
+ * optimistic estimate of the reliable fraction of information of its
+ * supersets
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class Evaluation {
+
+	private final double entropy;
+
+	private final double mutualInformation;
+
+	private final double expectedMutualInformation;
+
+	private final double potential;
+
+	public Evaluation(double entropy, double mutualInformation, double expectedMutualInformation, double potential) {
+		this.entropy = entropy;
+		this.mutualInformation = mutualInformation;
+		this.expectedMutualInformation = expectedMutualInformation;
+		this.potential = potential;
+	}
+
+	public double entropy() {
+		return entropy;
+	}
+
+	public double mutualInformation() {
+		return mutualInformation;
+	}
+
+	public double expectedMutualInformation() {
+		return expectedMutualInformation;
+	}
+
+	public double fractionOfInformation() {
+		return entropy == 0 ? 0 : mutualInformation / entropy;
+	}
+
+	public double reliableFractionOfInformation() {
+		return entropy == 0 ? 0 : (mutualInformation - expectedMutualInformation) / entropy;
+	}
+
+	/**
+	 * The optimistic estimate of the reliable fraction of information of all
+	 * supersets
+	 */
+	public double potential() {
+		return potential;
+	}
+
+	@Override
+	public String toString() {
+		return "[Co-domain entropy: " + entropy + ",mutual information: " + mutualInformation
+				+ ",expected mutual information: " + expectedMutualInformation + ",fraction of information: "
+				+ fractionOfInformation() + ",reliable fraction of information: " + reliableFractionOfInformation()
+				+ "]";
+	}
+
+}
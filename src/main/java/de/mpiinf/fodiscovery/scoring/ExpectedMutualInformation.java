@@ -0,0 +1,253 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.scoring;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The expected mutual information of a row of a contingency table with the
+ * target under the permutation model, i.e., the hypergeometric expectation of
+ * its cells given the row marginal and the target marginals. Since the number
+ * of rows and the target marginals are fixed for a dataset and target, the
+ * result only depends on the row marginal and is memoized by it, in an array
+ * that grows to the largest row marginal seen rather than to the number of
+ * rows.
+ * 
+ * The tables of logs and log-factorials up to the number of rows are computed
+ * once and shared by the instances of the last number of rows, i.e., by all
+ * targets of a dataset. Log-factorials are summed with compensation and kept
+ * with their rounding error, since the log-probability of the mode cancels
+ * terms of the order of n log n and a plain sum would lose the last digits of
+ * the expectation.
+ * 
+ * Each hypergeometric sum starts at the mode and walks to both sides with the
+ * ratio of consecutive probabilities, and stops on a side once all remaining
+ * terms together contribute less than TOLERANCE bits.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class ExpectedMutualInformation {
+
+	private static final double LOG2 = Math.log(2);
+
+	/**
+	 * The bound on the skipped contribution of one side of one sum, far below
+	 * the rounding error of the sums themselves
+	 */
+	public static final double TOLERANCE = 1e-20;
+
+	private static final long NOT_COMPUTED = Double.doubleToRawLongBits(Double.NaN);
+
+	/**
+	 * The initial number of row marginals the memo holds
+	 */
+	public static final int INITIAL_MEMO_SIZE = 64;
+
+	/**
+	 * The tables of the last number of rows, {logs, logFactorials,
+	 * logFactorialErrors}
+	 */
+	private static double[][] lastTables = new double[][] { { 0 }, { 0 }, { 0 } };
+
+	private final int numberOfRows;
+
+	private final int[] columnMarginals;
+
+	private final double[] logs;
+
+	private final double[] logFactorials;
+
+	/**
+	 * The rounding error of every log-factorial, i.e., the difference of the
+	 * compensated sum of the logs and the stored log-factorial
+	 */
+	private final double[] logFactorialErrors;
+
+	private final double maxWeight;
+
+	private volatile AtomicLongArray memo;
+
+	public ExpectedMutualInformation(int numberOfRows, int[] columnMarginals) {
+		this.numberOfRows = numberOfRows;
+		int nonEmpty = 0;
+		for (int columnMarginal : columnMarginals) {
+			if (columnMarginal > 0) {
+				nonEmpty++;
+			}
+		}
+		this.columnMarginals = new int[nonEmpty];
+		nonEmpty = 0;
+		for (int columnMarginal : columnMarginals) {
+			if (columnMarginal > 0) {
+				this.columnMarginals[nonEmpty++] = columnMarginal;
+			}
+		}
+		double[][] tables = tables(numberOfRows);
+		this.logs = tables[0];
+		this.logFactorials = tables[1];
+		this.logFactorialErrors = tables[2];
+		// |(k/n) log2(nk/(ab))| <= log2(n) for every term of a sum
+		this.maxWeight = Math.max(1, logs[Math.max(1, numberOfRows)] / LOG2);
+		this.memo = newMemo(Math.min(INITIAL_MEMO_SIZE, numberOfRows + 1));
+	}
+
+	/**
+	 * The logs and log-factorials of 0 to numberOfRows, computed only if the
+	 * previous instance had another number of rows
+	 */
+	private static synchronized double[][] tables(int numberOfRows) {
+		if (lastTables[0].length != numberOfRows + 1) {
+			double[] logs = new double[numberOfRows + 1];
+			double[] logFactorials = new double[numberOfRows + 1];
+			double[] logFactorialErrors = new double[numberOfRows + 1];
+			for (int i = 1; i <= numberOfRows; i++) {
+				logs[i] = Math.log(i);
+				logFactorials[i] = logFactorials[i - 1] + logs[i];
+				// the part of the log lost by rounding the sum
+				logFactorialErrors[i] = logFactorialErrors[i - 1] + (logs[i] - (logFactorials[i] - logFactorials[i - 1]));
+			}
+			lastTables = new double[][] { logs, logFactorials, logFactorialErrors };
+		}
+		return lastTables;
+	}
+
+	private static AtomicLongArray newMemo(int size) {
+		AtomicLongArray memo = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			memo.set(i, NOT_COMPUTED);
+		}
+		return memo;
+	}
+
+	/**
+	 * Grows the memo to hold the row marginal, at least doubling it and at
+	 * most to the number of rows
+	 */
+	private synchronized AtomicLongArray grow(int rowMarginal) {
+		AtomicLongArray memo = this.memo;
+		if (rowMarginal < memo.length()) {
+			return memo;
+		}
+		AtomicLongArray grown = newMemo(Math.min(numberOfRows + 1, Math.max(2 * memo.length(), rowMarginal + 1)));
+		for (int i = 0; i < memo.length(); i++) {
+			grown.set(i, memo.get(i));
+		}
+		this.memo = grown;
+		return grown;
+	}
+
+	/**
+	 * The expected mutual information contributed by a row with the given
+	 * marginal, in bits
+	 */
+	public double of(int rowMarginal) {
+		AtomicLongArray memo = this.memo;
+		if (rowMarginal >= memo.length()) {
+			memo = grow(rowMarginal);
+		}
+		long bits = memo.get(rowMarginal);
+		if (bits != NOT_COMPUTED) {
+			return Double.longBitsToDouble(bits);
+		}
+		double sum = 0;
+		for (int columnMarginal : columnMarginals) {
+			sum += hypergeometricSum(rowMarginal, columnMarginal);
+		}
+		// racing threads compute the same value, and a value set in a memo
+		// that was just grown is only computed again
+		memo.set(rowMarginal, Double.doubleToRawLongBits(sum));
+		return sum;
+	}
+
+	/**
+	 * The expectation of (k/n) log2(nk/(ab)) over the hypergeometric
+	 * distribution of the count k of a cell with row marginal a and column
+	 * marginal b
+	 */
+	private double hypergeometricSum(int a, int b) {
+		int n = numberOfRows;
+		int min = Math.max(0, a + b - n);
+		int max = Math.min(a, b);
+		int mode = (int) (((long) a + 1) * ((long) b + 1) / ((long) n + 2));
+		mode = Math.max(min, Math.min(max, mode));
+		double logAB = logs[a] + logs[b];
+		double logN = logs[n];
+		double modeProbability = Math.exp(logModeProbability(a, b, mode));
+
+		double sum = term(mode, modeProbability, logN, logAB);
+		// the probabilities decrease away from the mode, so the remaining terms
+		// of a side contribute at most their number times the last probability
+		double probability = modeProbability;
+		for (int k = mode + 1; k <= max; k++) {
+			probability *= ((double) (a - k + 1) * (b - k + 1)) / ((double) k * (n - a - b + k));
+			sum += term(k, probability, logN, logAB);
+			if (probability * (max - k) * maxWeight < TOLERANCE) {
+				break;
+			}
+		}
+		probability = modeProbability;
+		for (int k = mode - 1; k >= Math.max(min, 1); k--) {
+			probability *= ((double) (k + 1) * (n - a - b + k + 1)) / ((double) (a - k) * (b - k));
+			sum += term(k, probability, logN, logAB);
+			if (probability * (k - Math.max(min, 1)) * maxWeight < TOLERANCE) {
+				break;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * The log of the hypergeometric probability of the mode, as a sum of
+	 * log-factorials that is compensated for the rounding of the sum and of
+	 * the log-factorials themselves
+	 */
+	private double logModeProbability(int a, int b, int mode) {
+		int n = numberOfRows;
+		int[] plus = { a, b, n - a, n - b };
+		int[] minus = { n, mode, a - mode, b - mode, n - a - b + mode };
+		double sum = 0;
+		double error = 0;
+		for (int i = 0; i < plus.length + minus.length; i++) {
+			int m = i < plus.length ? plus[i] : minus[i - plus.length];
+			double value = i < plus.length ? logFactorials[m] : -logFactorials[m];
+			error += i < plus.length ? logFactorialErrors[m] : -logFactorialErrors[m];
+			double next = sum + value;
+			error += Math.abs(sum) >= Math.abs(value) ? (sum - next) + value : (value - next) + sum;
+			sum = next;
+		}
+		return sum + error;
+	}
+
+	private double term(int k, double probability, double logN, double logAB) {
+		if (k == 0) {
+			return 0;
+		}
+		return ((double) k / numberOfRows) * ((logN + logs[k] - logAB) / LOG2) * probability;
+	}
+
+}
@@ -0,0 +1,293 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.scoring;
+
+import java.util.Arrays;
+
+/**
+ * Scores attribute sets by the fraction of information and the reliable
+ * fraction of information, i.e., the mutual information with the target
+ * corrected by its expected value under the permutation model and normalized
+ * by the entropy of the target. All information is in bits.
+ * 
+ * The contingency table of a node is counted from the stripped partition of
+ * its attributes, which is the partition of its parent, taken from a cache if
+ * possible, refined by its last attribute. Only the partitions of nodes that
+ * are {@link #expandable(int[])}, and of parents that were not cached, are
+ * cached. Rows alone in their class add no
+ * conditional entropy, and the expected mutual information of the classes is
+ * looked up by their sizes.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class FractionOfInformation implements NodeEvaluator {
+
+	private static final double LOG2 = Math.log(2);
+
+	private final CodedTable table;
+
+	private final int target;
+
+	private final int[] targetCodes;
+
+	private final int numberOfRows;
+
+	private final double entropy;
+
+	private final ExpectedMutualInformation expectation;
+
+	private final StrippedPartition[] attributePartitions;
+
+	private final PartitionCache partitionCache;
+
+	private final ThreadLocal<Partitions> partitions;
+
+	public FractionOfInformation(CodedTable table, int target) {
+		this(table, target, new PartitionCache(PartitionCache.BUDGET_MB));
+	}
+
+	public FractionOfInformation(CodedTable table, int target, PartitionCache partitionCache) {
+		this.partitionCache = partitionCache;
+		this.table = table;
+		this.target = target;
+		this.targetCodes = table.codes(target);
+		this.numberOfRows = table.numberOfRows();
+		int[] targetMarginals = new int[table.cardinality(target)];
+		for (int code : targetCodes) {
+			targetMarginals[code]++;
+		}
+		this.entropy = entropy(targetMarginals);
+		this.expectation = new ExpectedMutualInformation(numberOfRows, targetMarginals);
+		int maxCardinality = 1;
+		this.attributePartitions = new StrippedPartition[table.numberOfAttributes()];
+		for (int attribute = 0; attribute < table.numberOfAttributes(); attribute++) {
+			maxCardinality = Math.max(maxCardinality, table.cardinality(attribute));
+			attributePartitions[attribute] = StrippedPartition.of(table.codes(attribute),
+					table.cardinality(attribute));
+		}
+		int cardinalityBound = maxCardinality;
+		this.partitions = ThreadLocal.withInitial(() -> new Partitions(numberOfRows, cardinalityBound));
+	}
+
+	@Override
+	public CodedTable table() {
+		return table;
+	}
+
+	@Override
+	public int target() {
+		return target;
+	}
+
+	/**
+	 * The entropy of the target
+	 */
+	public double entropy() {
+		return entropy;
+	}
+
+	public PartitionCache partitionCache() {
+		return partitionCache;
+	}
+
+	@Override
+	public Evaluation evaluate(int[] attributes, OptimisticEstimator estimator) {
+		if (attributes.length == 0) {
+			return new Evaluation(entropy, 0, 0, entropy == 0 ? 0 : 1);
+		}
+		StrippedPartition partition = attributes.length == 1 ? attributePartitions[attributes[0]] : refine(attributes);
+		return evaluate(partition, estimator);
+	}
+
+	/**
+	 * Caches the partition of the attributes, which is refined again unless
+	 * it is cached already, so that only nodes whose children are evaluated
+	 * take space in the cache
+	 */
+	@Override
+	public void expandable(int[] attributes) {
+		if (attributes.length > 1 && !partitionCache.contains(attributes)) {
+			partitionCache.put(attributes, refine(attributes));
+		}
+	}
+
+	/**
+	 * The stripped partition of the attributes, from the cache or by refining
+	 * that of all but the last attribute
+	 */
+	private StrippedPartition partition(int[] attributes) {
+		if (attributes.length == 1) {
+			return attributePartitions[attributes[0]];
+		}
+		StrippedPartition partition = partitionCache.get(attributes);
+		if (partition == null) {
+			partition = refine(attributes);
+			partitionCache.put(attributes, partition);
+		}
+		return partition;
+	}
+
+	private StrippedPartition refine(int[] attributes) {
+		StrippedPartition parent = partition(Arrays.copyOf(attributes, attributes.length - 1));
+		return partitions.get().refine(parent, table.codes(attributes[attributes.length - 1]));
+	}
+
+	/**
+	 * Evaluates the attribute set with the given stripped partition
+	 */
+	public Evaluation evaluate(StrippedPartition partition, OptimisticEstimator estimator) {
+		Partitions buffers = partitions.get();
+		boolean specialization = estimator == OptimisticEstimator.SPC || estimator == OptimisticEstimator.CHAIN;
+		double conditionalEntropy = 0;
+		double expectedMutualInformation = 0;
+		double specializationGain = 0;
+		for (int c = 0; c < partition.numberOfClasses(); c++) {
+			int rowMarginal = partition.classSize(c);
+			int start = partition.classStart(c);
+			int distinct = buffers.count(partition, start, start + rowMarginal, targetCodes);
+			double cellEntropy = 0;
+			double refinedExpectedMutualInformation = 0;
+			for (int t = 0; t < distinct; t++) {
+				int count = buffers.count(buffers.touched(t));
+				cellEntropy += count * log2((double) rowMarginal / count);
+				if (specialization) {
+					refinedExpectedMutualInformation += expectation.of(count);
+				}
+			}
+			cellEntropy /= numberOfRows;
+			double rowExpectedMutualInformation = expectation.of(rowMarginal);
+			conditionalEntropy += cellEntropy;
+			expectedMutualInformation += rowExpectedMutualInformation;
+			if (specialization) {
+				// gain of splitting the row into pure cells of the target
+				specializationGain += Math.max(0,
+						cellEntropy - (refinedExpectedMutualInformation - rowExpectedMutualInformation));
+			}
+		}
+		// a row alone in its class has no conditional entropy and no gain
+		expectedMutualInformation += partition.singletons() * expectation.of(1);
+		double mutualInformation = entropy - conditionalEntropy;
+		return new Evaluation(entropy, mutualInformation, expectedMutualInformation,
+				potential(entropy, mutualInformation, expectedMutualInformation, specializationGain, estimator));
+	}
+
+	/**
+	 * Evaluates an attribute set by its contingency table with the target, with
+	 * the same scores as by its partition, up to the order of summation
+	 * 
+	 * @param targetMarginals
+	 *            the counts of the target codes in all rows
+	 * @param expectation
+	 *            the expected mutual information for the number of rows and
+	 *            the target marginals
+	 */
+	public static Evaluation evaluate(ContingencyTable contingencyTable, int[] targetMarginals,
+			ExpectedMutualInformation expectation, OptimisticEstimator estimator) {
+		int numberOfRows = 0;
+		for (int marginal : targetMarginals) {
+			numberOfRows += marginal;
+		}
+		double entropy = entropy(targetMarginals);
+		if (contingencyTable.numberOfAttributes() == 0) {
+			return new Evaluation(entropy, 0, 0, entropy == 0 ? 0 : 1);
+		}
+		boolean specialization = estimator == OptimisticEstimator.SPC || estimator == OptimisticEstimator.CHAIN;
+		double conditionalEntropy = 0;
+		double expectedMutualInformation = 0;
+		double specializationGain = 0;
+		for (int[] counts : contingencyTable.counts()) {
+			int rowMarginal = 0;
+			for (int count : counts) {
+				rowMarginal += count;
+			}
+			double cellEntropy = 0;
+			double refinedExpectedMutualInformation = 0;
+			for (int count : counts) {
+				if (count > 0) {
+					cellEntropy += count * log2((double) rowMarginal / count);
+					if (specialization) {
+						refinedExpectedMutualInformation += expectation.of(count);
+					}
+				}
+			}
+			cellEntropy /= numberOfRows;
+			double rowExpectedMutualInformation = expectation.of(rowMarginal);
+			conditionalEntropy += cellEntropy;
+			expectedMutualInformation += rowExpectedMutualInformation;
+			if (specialization) {
+				specializationGain += Math.max(0,
+						cellEntropy - (refinedExpectedMutualInformation - rowExpectedMutualInformation));
+			}
+		}
+		double mutualInformation = entropy - conditionalEntropy;
+		return new Evaluation(entropy, mutualInformation, expectedMutualInformation,
+				potential(entropy, mutualInformation, expectedMutualInformation, specializationGain, estimator));
+	}
+
+	/**
+	 * The entropy of a column with the given counts of its codes
+	 */
+	public static double entropy(int[] marginals) {
+		int numberOfRows = 0;
+		for (int marginal : marginals) {
+			numberOfRows += marginal;
+		}
+		double entropy = 0;
+		for (int marginal : marginals) {
+			if (marginal > 0) {
+				double probability = (double) marginal / numberOfRows;
+				entropy -= probability * log2(probability);
+			}
+		}
+		return entropy;
+	}
+
+	private static double potential(double entropy, double mutualInformation, double expectedMutualInformation,
+			double specializationGain, OptimisticEstimator estimator) {
+		if (entropy == 0) {
+			return 0;
+		}
+		double monotone = (entropy - expectedMutualInformation) / entropy;
+		double specialization = (mutualInformation - expectedMutualInformation + specializationGain) / entropy;
+		switch (estimator) {
+		case MON:
+			return monotone;
+		case SPC:
+			return specialization;
+		case CHAIN:
+			return Math.min(monotone, specialization);
+		default:
+			return Double.POSITIVE_INFINITY;
+		}
+	}
+
+	private static double log2(double x) {
+		return Math.log(x) / LOG2;
+	}
+
+}
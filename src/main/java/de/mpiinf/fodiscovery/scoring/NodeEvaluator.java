@@ -0,0 +1,56 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.scoring;
+
+/**
+ * Evaluates attribute sets of a coded table as descriptors of a target
+ * attribute. Implementations are used by the search drivers and must be safe
+ * to call from several threads.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public interface NodeEvaluator {
+
+	public CodedTable table();
+
+	/**
+	 * The index of the target attribute in the table
+	 */
+	public int target();
+
+	public Evaluation evaluate(int[] attributes, OptimisticEstimator estimator);
+
+	/**
+	 * Tells the evaluator that the refinements of the attribute set will be
+	 * evaluated, so that it can keep what they share. Evaluators that keep
+	 * nothing ignore it.
+	 */
+	public default void expandable(int[] attributes) {
+	}
+
+}
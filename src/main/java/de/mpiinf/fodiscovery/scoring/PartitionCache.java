@@ -0,0 +1,260 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+package de.mpiinf.fodiscovery.scoring;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of the stripped partitions of attribute sets, so that the children of
+ * a node are computed by refining the partition of the node instead of joining
+ * all their columns. Attribute sets are keyed sorted, since the partition does
+ * not depend on the order the attributes were added in, so the parent of a node
+ * is found as its set minus the attribute added last whichever path reached it.
+ * Partitions are stored compressed within a budget of bytes.
+ * 
+ * The sets are spread over STRIPES least recently used maps by their hash, each
+ * with its own lock, so that threads looking up different sets rarely wait for
+ * each other. When the budget is exceeded, the deepest of the SAMPLE least
+ * recently used partitions of a stripe is evicted, starting with the stripe of
+ * the partition that was added, so that shallow partitions, which are the
+ * parents of more nodes, stay cached longer.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class PartitionCache {
+
+	public static final int BUDGET_MB = 256;
+
+	public static final int SAMPLE = 8;
+
+	public static final int STRIPES = 16;
+
+	// rough heap cost of a map entry and its key besides the key attributes
+	private static final long ENTRY_BYTES = 64;
+
+	private final long budgetBytes;
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	private final AtomicLong usedBytes = new AtomicLong();
+
+	private final AtomicLong savedBytes = new AtomicLong();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	private static class Key {
+		private final int[] attributes;
+		private final int hash;
+
+		/**
+		 * @param attributes
+		 *            the attributes in increasing order
+		 */
+		private Key(int[] attributes) {
+			this.attributes = attributes;
+			this.hash = Arrays.hashCode(attributes);
+		}
+
+		private static Key of(int[] attributes) {
+			int[] sorted = attributes.clone();
+			Arrays.sort(sorted);
+			return new Key(sorted);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key && Arrays.equals(attributes, ((Key) other).attributes);
+		}
+	}
+
+	/**
+	 * The partitions of the sets whose hash falls into one stripe, guarded by
+	 * the stripe itself
+	 */
+	private static class Stripe {
+		private final LinkedHashMap<Key, CompressedPartition> partitions = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * @param budgetMB
+	 *            the heap budget of the cache in megabytes, 0 disables caching
+	 */
+	public PartitionCache(int budgetMB) {
+		this.budgetBytes = budgetMB * 1024L * 1024L;
+		for (int stripe = 0; stripe < STRIPES; stripe++) {
+			stripes[stripe] = new Stripe();
+		}
+	}
+
+	private static int stripe(Key key) {
+		int hash = key.hash;
+		return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+	}
+
+	/**
+	 * The cached partition of the attributes, in any order, or null
+	 */
+	public StrippedPartition get(int[] attributes) {
+		Key key = Key.of(attributes);
+		Stripe stripe = stripes[stripe(key)];
+		CompressedPartition partition;
+		synchronized (stripe) {
+			partition = stripe.partitions.get(key);
+		}
+		if (partition != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		return partition == null ? null : partition.decompress();
+	}
+
+	/**
+	 * Whether the partition of the attributes, in any order, is cached, which
+	 * is not counted as a lookup
+	 */
+	public boolean contains(int[] attributes) {
+		Key key = Key.of(attributes);
+		Stripe stripe = stripes[stripe(key)];
+		synchronized (stripe) {
+			return stripe.partitions.containsKey(key);
+		}
+	}
+
+	public void put(int[] attributes, StrippedPartition partition) {
+		if (budgetBytes == 0) {
+			return;
+		}
+		CompressedPartition compressed = CompressedPartition.compress(partition);
+		Key key = Key.of(attributes);
+		int index = stripe(key);
+		Stripe stripe = stripes[index];
+		synchronized (stripe) {
+			CompressedPartition previous = stripe.partitions.put(key, compressed);
+			if (previous != null) {
+				release(key, previous);
+			}
+			usedBytes.addAndGet(bytes(key, compressed));
+			savedBytes.addAndGet(compressed.uncompressedBytes() - compressed.bytes());
+		}
+		for (int i = 0; i < STRIPES && usedBytes.get() > budgetBytes; i++) {
+			evict(stripes[(index + i) & (STRIPES - 1)]);
+		}
+	}
+
+	private void evict(Stripe stripe) {
+		synchronized (stripe) {
+			while (usedBytes.get() > budgetBytes && !stripe.partitions.isEmpty()) {
+				Iterator<Map.Entry<Key, CompressedPartition>> it = stripe.partitions.entrySet().iterator();
+				Map.Entry<Key, CompressedPartition> victim = it.next();
+				for (int i = 1; i < SAMPLE && it.hasNext(); i++) {
+					Map.Entry<Key, CompressedPartition> next = it.next();
+					if (next.getKey().attributes.length > victim.getKey().attributes.length) {
+						victim = next;
+					}
+				}
+				stripe.partitions.remove(victim.getKey());
+				release(victim.getKey(), victim.getValue());
+				evictions.increment();
+			}
+		}
+	}
+
+	private void release(Key key, CompressedPartition partition) {
+		usedBytes.addAndGet(-bytes(key, partition));
+		savedBytes.addAndGet(-(partition.uncompressedBytes() - partition.bytes()));
+	}
+
+	private static long bytes(Key key, CompressedPartition partition) {
+		return ENTRY_BYTES + 4L * key.attributes.length + partition.bytes();
+	}
+
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.partitions.size();
+			}
+		}
+		return size;
+	}
+
+	public long hits() {
+		return hits.sum();
+	}
+
+	public long misses() {
+		return misses.sum();
+	}
+
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * The estimated heap size of the cached partitions
+	 */
+	public long bytes() {
+		return usedBytes.get();
+	}
+
+	/**
+	 * The estimated heap size the cached partitions would take uncompressed,
+	 * minus the size they take
+	 */
+	public long bytesSaved() {
+		return savedBytes.get();
+	}
+
+	/**
+	 * The fraction of lookups that found the partition
+	 */
+	public double hitRate() {
+		long hits = hits();
+		long lookups = hits + misses();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public String toString() {
+		return "Partition cache: size " + size() + ", hits " + hits() + ", misses " + misses() + ", evictions "
+				+ evictions() + ", " + bytes() / 1024 + " KB (" + bytesSaved() / 1024 + " KB saved by compression)";
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.scoring;
+
+import java.util.Arrays;
+
+/**
+ * Buffers of one thread for refining stripped partitions and counting
+ * contingency tables in linear time. A refinement splits every class of a
+ * partition by the codes of one more attribute.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+class Partitions {
+
+	private final int numberOfRows;
+
+	private final int[] rows;
+
+	private final int[] classStarts;
+
+	private final int[] firstRowClass;
+
+	private final int[] rowStamps;
+
+	private int rowStamp = 0;
+
+	private final int[] stamps;
+
+	private final int[] counts;
+
+	private final int[] offsets;
+
+	private final int[] touched;
+
+	private int stamp = 0;
+
+	Partitions(int numberOfRows, int maxCardinality) {
+		this.numberOfRows = numberOfRows;
+		rows = new int[numberOfRows];
+		classStarts = new int[numberOfRows + 1];
+		firstRowClass = new int[numberOfRows];
+		rowStamps = new int[numberOfRows];
+		stamps = new int[maxCardinality];
+		counts = new int[maxCardinality];
+		offsets = new int[maxCardinality];
+		touched = new int[maxCardinality];
+	}
+
+	/**
+	 * The stripped partition of the attribute set of the parent with one more
+	 * attribute, given by its codes
+	 */
+	StrippedPartition refine(StrippedPartition parent, int[] codes) {
+		int size = 0;
+		int numberOfClasses = 0;
+		for (int c = 0; c < parent.numberOfClasses(); c++) {
+			int start = parent.classStart(c);
+			int end = start + parent.classSize(c);
+			int distinct = count(parent, start, end, codes);
+			// the classes of the codes of at least two rows, in order of first row
+			for (int t = 0; t < distinct; t++) {
+				int code = touched[t];
+				if (counts[code] > 1) {
+					offsets[code] = size;
+					classStarts[numberOfClasses++] = size;
+					size += counts[code];
+				} else {
+					offsets[code] = -1;
+				}
+			}
+			for (int i = start; i < end; i++) {
+				int row = parent.row(i);
+				int code = codes[row];
+				if (offsets[code] >= 0) {
+					rows[offsets[code]++] = row;
+				}
+			}
+		}
+		classStarts[numberOfClasses] = size;
+
+		// classes of different parent classes are ordered by their first row
+		nextRowStamp();
+		for (int c = 0; c < numberOfClasses; c++) {
+			int firstRow = rows[classStarts[c]];
+			rowStamps[firstRow] = rowStamp;
+			firstRowClass[firstRow] = c;
+		}
+		int[] refinedRows = new int[size];
+		int[] refinedClassStarts = new int[numberOfClasses + 1];
+		int next = 0;
+		int refinedClass = 0;
+		for (int row = 0; row < numberOfRows && refinedClass < numberOfClasses; row++) {
+			if (rowStamps[row] == rowStamp) {
+				int c = firstRowClass[row];
+				int length = classStarts[c + 1] - classStarts[c];
+				System.arraycopy(rows, classStarts[c], refinedRows, next, length);
+				refinedClassStarts[refinedClass++] = next;
+				next += length;
+			}
+		}
+		refinedClassStarts[numberOfClasses] = size;
+		return new StrippedPartition(numberOfRows, refinedRows, refinedClassStarts);
+	}
+
+	/**
+	 * Counts the codes of the rows partition[start..end-1], and returns the
+	 * number of distinct codes. The codes are touched(0..distinct-1) in order
+	 * of first appearance, with count(code) rows each.
+	 */
+	int count(StrippedPartition partition, int start, int end, int[] codes) {
+		nextStamp();
+		int distinct = 0;
+		for (int i = start; i < end; i++) {
+			int code = codes[partition.row(i)];
+			if (stamps[code] != stamp) {
+				stamps[code] = stamp;
+				counts[code] = 0;
+				touched[distinct++] = code;
+			}
+			counts[code]++;
+		}
+		return distinct;
+	}
+
+	int touched(int t) {
+		return touched[t];
+	}
+
+	int count(int code) {
+		return counts[code];
+	}
+
+	private void nextStamp() {
+		if (stamp == Integer.MAX_VALUE) {
+			Arrays.fill(stamps, 0);
+			stamp = 0;
+		}
+		stamp++;
+	}
+
+	private void nextRowStamp() {
+		if (rowStamp == Integer.MAX_VALUE) {
+			Arrays.fill(rowStamps, 0);
+			rowStamp = 0;
+		}
+		rowStamp++;
+	}
+
+}
@@ -0,0 +1,242 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.scoring;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A KLL quantile sketch of a stream of values, which keeps O(k) of them in
+ * compactors of increasing weight. The rank of a quantile is accurate to
+ * about 1.7/k of the number of values, and sketches of different chunks of
+ * values can be merged with the same accuracy. Compaction uses a seeded random
+ * generator, so that a sketch of the same values in the same order is always
+ * the same.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class QuantileSketch {
+
+	private final int k;
+
+	private final Random random;
+
+	/**
+	 * The values of every level, level h holding values of weight 2^h
+	 */
+	private double[][] levels = new double[1][];
+
+	private int[] sizes = new int[1];
+
+	private int[] capacities;
+
+	private int size = 0;
+
+	private int capacity;
+
+	private long count = 0;
+
+	private double min = Double.POSITIVE_INFINITY;
+
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * @param k
+	 *            the capacity of the top level, at least 8
+	 */
+	public QuantileSketch(int k, long seed) {
+		if (k < 8) {
+			throw new IllegalArgumentException("Illegal value for sketch size. Should be at least 8");
+		}
+		this.k = k;
+		this.random = new Random(seed);
+		updateCapacities();
+		this.levels[0] = new double[capacities[0]];
+	}
+
+	public long count() {
+		return count;
+	}
+
+	/**
+	 * Adds a value, ignoring missing values (NaN)
+	 */
+	public void update(double value) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		count++;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+		add(0, value);
+		if (size > capacity) {
+			compress();
+		}
+	}
+
+	/**
+	 * Adds the values of another sketch to this one
+	 */
+	public void merge(QuantileSketch other) {
+		if (other.count == 0) {
+			return;
+		}
+		count += other.count;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		for (int level = 0; level < other.levels.length; level++) {
+			for (int i = 0; i < other.sizes[level]; i++) {
+				add(level, other.levels[level][i]);
+			}
+		}
+		compress();
+	}
+
+	/**
+	 * The capacities of the levels, decreasing by 2/3 from the top level down
+	 */
+	private void updateCapacities() {
+		capacities = new int[levels.length];
+		capacity = 0;
+		for (int level = 0; level < levels.length; level++) {
+			int depth = levels.length - 1 - level;
+			capacities[level] = Math.max(2, (int) Math.ceil(k * Math.pow(2.0 / 3, depth)));
+			capacity += capacities[level];
+		}
+	}
+
+	private void add(int level, double value) {
+		while (level >= levels.length) {
+			levels = Arrays.copyOf(levels, levels.length + 1);
+			sizes = Arrays.copyOf(sizes, sizes.length + 1);
+			updateCapacities();
+			levels[levels.length - 1] = new double[capacities[levels.length - 1]];
+		}
+		if (sizes[level] == levels[level].length) {
+			levels[level] = Arrays.copyOf(levels[level], 2 * levels[level].length);
+		}
+		levels[level][sizes[level]++] = value;
+		size++;
+	}
+
+	/**
+	 * Compacts the lowest full level while the sketch is over capacity. A
+	 * compaction sorts the level and promotes every other value, starting at a
+	 * random one of the first two, to the next level with twice the weight.
+	 */
+	private void compress() {
+		while (size > capacity) {
+			for (int level = 0; level < levels.length; level++) {
+				if (sizes[level] >= capacities[level]) {
+					double[] values = levels[level];
+					int pairs = sizes[level] / 2;
+					Arrays.sort(values, 0, sizes[level]);
+					int offset = random.nextBoolean() ? 1 : 0;
+					for (int pair = 0; pair < pairs; pair++) {
+						add(level + 1, values[2 * pair + offset]);
+					}
+					// an odd value out stays at this level
+					if (sizes[level] % 2 == 1) {
+						values[0] = values[sizes[level] - 1];
+					}
+					size -= sizes[level] - sizes[level] % 2;
+					sizes[level] %= 2;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the values of the sketch in increasing order, with their weights
+	 * as the second row
+	 */
+	private double[][] weightedValues() {
+		Integer[] order = new Integer[size];
+		double[] values = new double[size];
+		double[] weights = new double[size];
+		int i = 0;
+		for (int level = 0; level < levels.length; level++) {
+			for (int j = 0; j < sizes[level]; j++) {
+				values[i] = levels[level][j];
+				weights[i] = 1L << level;
+				order[i] = i;
+				i++;
+			}
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+		double[][] weightedValues = new double[2][size];
+		for (i = 0; i < size; i++) {
+			weightedValues[0][i] = values[order[i]];
+			weightedValues[1][i] = weights[order[i]];
+		}
+		return weightedValues;
+	}
+
+	/**
+	 * Returns for every fraction the estimate of the value with that fraction
+	 * of the values smaller than it, as sorted[(int) (fraction * count)] would
+	 * be for the sorted values
+	 *
+	 * @param fractions
+	 *            fractions in [0,1) in increasing order
+	 */
+	public double[] quantiles(double[] fractions) {
+		double[] quantiles = new double[fractions.length];
+		if (count == 0) {
+			Arrays.fill(quantiles, Double.NaN);
+			return quantiles;
+		}
+		double[][] weightedValues = weightedValues();
+		double[] values = weightedValues[0];
+		double[] weights = weightedValues[1];
+		double total = 0;
+		for (double weight : weights) {
+			total += weight;
+		}
+		int i = 0;
+		double cumulative = 0;
+		for (int q = 0; q < fractions.length; q++) {
+			double rank = Math.floor(fractions[q] * total);
+			while (i < values.length - 1 && cumulative + weights[i] <= rank) {
+				cumulative += weights[i];
+				i++;
+			}
+			quantiles[q] = Math.max(min, Math.min(max, values[i]));
+		}
+		return quantiles;
+	}
+
+	public double min() {
+		return min;
+	}
+
+	public double max() {
+		return max;
+	}
+
+}
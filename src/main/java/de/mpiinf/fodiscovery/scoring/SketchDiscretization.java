@@ -0,0 +1,255 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.scoring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Approximate equal-frequency discretization, with cut points picked from
+ * quantile sketches instead of sorted columns. Every chunk of
+ * {@value #CHUNK_SIZE} values is sketched on its own, in parallel with the
+ * given number of threads, and the sketches are merged in the order of the
+ * chunks, so that the cut points do not depend on the number of threads.
+ * Values are read through a function of the row rather than from a copy of
+ * the column, e.g., from a table attribute or a spilled file, and the chunks
+ * are sketched in batches of one per thread, so that at most that many chunk
+ * sketches and one merged sketch are held at a time, whatever the number of
+ * rows. The column is read twice, once for the sketch and once for the drift.
+ *
+ * For every discretized column, the drift is the largest difference between
+ * the number of values below a cut point and the number that exact
+ * equal-frequency discretization aims for, as a fraction of the non-missing
+ * values.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class SketchDiscretization {
+
+	public static final int CHUNK_SIZE = 1 << 16;
+
+	private final int k;
+
+	private final int threads;
+
+	private final Map<String, Double> drifts = new LinkedHashMap<>();
+
+	/**
+	 * @param k
+	 *            the size of the sketches, see {@link QuantileSketch}
+	 */
+	public SketchDiscretization(int k, int threads) {
+		this.k = k;
+		this.threads = threads;
+	}
+
+	public int k() {
+		return k;
+	}
+
+	/**
+	 * Returns the cut points that split the values into at most numBins bins of
+	 * about equal size, like {@link EqualFrequency#cutPoints(double[], int)},
+	 * and records the drift of the column
+	 */
+	public double[] cutPoints(String caption, double[] values, int numBins) {
+		return cutPoints(caption, values.length, row -> values[row], numBins);
+	}
+
+	/**
+	 * Returns the cut points of a column given by the value of every row, NaN
+	 * if missing, like {@link #cutPoints(String, double[], int)}. The function
+	 * may be called from several threads at once.
+	 */
+	public double[] cutPoints(String caption, int numberOfRows, IntToDoubleFunction values, int numBins) {
+		QuantileSketch sketch = sketch(numberOfRows, values);
+		double[] fractions = new double[numBins - 1];
+		for (int bin = 1; bin < numBins; bin++) {
+			fractions[bin - 1] = (double) bin / numBins;
+		}
+		double[] quantiles = sketch.quantiles(fractions);
+		double[] cutPoints = new double[numBins - 1];
+		double[] cutPointFractions = new double[numBins - 1];
+		int numberOfCutPoints = 0;
+		for (int i = 0; i < quantiles.length && sketch.count() > 0; i++) {
+			if (quantiles[i] > sketch.min()
+					&& (numberOfCutPoints == 0 || quantiles[i] > cutPoints[numberOfCutPoints - 1])) {
+				cutPointFractions[numberOfCutPoints] = fractions[i];
+				cutPoints[numberOfCutPoints++] = quantiles[i];
+			}
+		}
+		cutPoints = Arrays.copyOf(cutPoints, numberOfCutPoints);
+
+		long[] binSizes = new long[numberOfCutPoints + 1];
+		for (int row = 0; row < numberOfRows; row++) {
+			double value = values.applyAsDouble(row);
+			if (!Double.isNaN(value)) {
+				binSizes[EqualFrequency.bin(value, cutPoints)]++;
+			}
+		}
+		double drift = 0;
+		long below = 0;
+		for (int i = 0; i < numberOfCutPoints; i++) {
+			below += binSizes[i];
+			drift = Math.max(drift, Math.abs(below - cutPointFractions[i] * sketch.count()) / sketch.count());
+		}
+		synchronized (this) {
+			drifts.put(caption, drift);
+		}
+		return cutPoints;
+	}
+
+	/**
+	 * Discretizes the values into at most numBins approximately
+	 * equal-frequency bins, with missing values as in
+	 * {@link EqualFrequency#discretize(double[], double[], int[])}
+	 *
+	 * @return the number of codes
+	 */
+	public int discretize(String caption, double[] values, int numBins, int[] codes) {
+		return EqualFrequency.discretize(values, cutPoints(caption, values, numBins), codes);
+	}
+
+	/**
+	 * Discretizes a column given by the value of every row, like
+	 * {@link #discretize(String, double[], int, int[])}, without copying it
+	 *
+	 * @return the number of codes
+	 */
+	public int discretize(String caption, int numberOfRows, IntToDoubleFunction values, int numBins, int[] codes) {
+		double[] cutPoints = cutPoints(caption, numberOfRows, values, numBins);
+		boolean missing = false;
+		for (int row = 0; row < numberOfRows; row++) {
+			double value = values.applyAsDouble(row);
+			if (Double.isNaN(value)) {
+				codes[row] = cutPoints.length + 1;
+				missing = true;
+			} else {
+				codes[row] = EqualFrequency.bin(value, cutPoints);
+			}
+		}
+		return cutPoints.length + (missing ? 2 : 1);
+	}
+
+	/**
+	 * Records the drift of a column discretized by an earlier run, e.g., one
+	 * whose codes were read from a cache
+	 */
+	public synchronized void drift(String caption, double drift) {
+		drifts.put(caption, drift);
+	}
+
+	/**
+	 * The drift of a column discretized so far, or NaN if it was not
+	 */
+	public synchronized double drift(String caption) {
+		Double drift = drifts.get(caption);
+		return drift == null ? Double.NaN : drift;
+	}
+
+	/**
+	 * Sketches the chunks of the values, a batch of one per thread at a time,
+	 * and merges their sketches in order. Sketching only computes, so a failure
+	 * of a chunk is unexpected and rethrown unchecked.
+	 */
+	private QuantileSketch sketch(int numberOfRows, IntToDoubleFunction values) {
+		int chunks = (numberOfRows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		int batch = Math.max(1, Math.min(threads, chunks));
+		ExecutorService pool = batch > 1 ? Executors.newFixedThreadPool(batch) : null;
+		QuantileSketch sketch = new QuantileSketch(k, chunks);
+		try {
+			for (int firstChunk = 0; firstChunk < chunks; firstChunk += batch) {
+				QuantileSketch[] sketches = new QuantileSketch[Math.min(batch, chunks - firstChunk)];
+				List<Future<?>> futures = new ArrayList<>(sketches.length);
+				for (int i = 0; i < sketches.length; i++) {
+					int index = i;
+					int chunk = firstChunk + i;
+					Runnable sketchChunk = () -> {
+						QuantileSketch chunkSketch = new QuantileSketch(k, chunk);
+						int end = (int) Math.min(numberOfRows, (chunk + 1L) * CHUNK_SIZE);
+						for (int row = chunk * CHUNK_SIZE; row < end; row++) {
+							chunkSketch.update(values.applyAsDouble(row));
+						}
+						sketches[index] = chunkSketch;
+					};
+					if (pool == null) {
+						sketchChunk.run();
+					} else {
+						futures.add(pool.submit(sketchChunk));
+					}
+				}
+				for (Future<?> future : futures) {
+					future.get();
+				}
+				for (QuantileSketch chunkSketch : sketches) {
+					sketch.merge(chunkSketch);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while sketching", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Sketching a chunk failed", e.getCause());
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+		return sketch;
+	}
+
+	public synchronized double maxDrift() {
+		double maxDrift = 0;
+		for (double drift : drifts.values()) {
+			maxDrift = Math.max(maxDrift, drift);
+		}
+		return maxDrift;
+	}
+
+	/**
+	 * The drift of every column discretized so far
+	 */
+	@Override
+	public synchronized String toString() {
+		StringBuilder columns = new StringBuilder();
+		for (Map.Entry<String, Double> drift : drifts.entrySet()) {
+			columns.append(columns.length() == 0 ? "" : ", ").append(drift.getKey()).append("=")
+					.append(String.format("%.4f", drift.getValue()));
+		}
+		return "Sketch discretization: k=" + k + ", max drift " + String.format("%.4f", maxDrift()) + " ("
+				+ columns + ")";
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.scoring;
+
+/**
+ * A stripped partition of the rows of a table, i.e., the equivalence classes
+ * of rows with equal values on an attribute set, leaving out the classes of a
+ * single row. The rows of class c are rows[classStart(c)..classStart(c+1)-1]
+ * in increasing order, and classes are ordered by their first row, so that an
+ * attribute set has the same stripped partition however it was computed.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class StrippedPartition {
+
+	private final int numberOfRows;
+
+	private final int[] rows;
+
+	private final int[] classStarts;
+
+	StrippedPartition(int numberOfRows, int[] rows, int[] classStarts) {
+		this.numberOfRows = numberOfRows;
+		this.rows = rows;
+		this.classStarts = classStarts;
+	}
+
+	/**
+	 * The stripped partition of a column of codes 0..cardinality-1
+	 */
+	public static StrippedPartition of(int[] codes, int cardinality) {
+		int[] counts = new int[cardinality];
+		for (int code : codes) {
+			counts[code]++;
+		}
+		int[] classOfCode = new int[cardinality];
+		int numberOfClasses = 0;
+		int size = 0;
+		// classes are numbered by their first row
+		for (int code : codes) {
+			if (counts[code] > 1 && classOfCode[code] == 0) {
+				classOfCode[code] = ++numberOfClasses;
+				size += counts[code];
+			}
+		}
+		int[] classStarts = new int[numberOfClasses + 1];
+		for (int code = 0; code < cardinality; code++) {
+			if (classOfCode[code] > 0) {
+				classStarts[classOfCode[code]] = counts[code];
+			}
+		}
+		for (int c = 0; c < numberOfClasses; c++) {
+			classStarts[c + 1] += classStarts[c];
+		}
+		int[] next = new int[numberOfClasses];
+		System.arraycopy(classStarts, 0, next, 0, numberOfClasses);
+		int[] rows = new int[size];
+		for (int row = 0; row < codes.length; row++) {
+			int c = classOfCode[codes[row]] - 1;
+			if (c >= 0) {
+				rows[next[c]++] = row;
+			}
+		}
+		return new StrippedPartition(codes.length, rows, classStarts);
+	}
+
+	public int numberOfRows() {
+		return numberOfRows;
+	}
+
+	public int numberOfClasses() {
+		return classStarts.length - 1;
+	}
+
+	public int classStart(int c) {
+		return classStarts[c];
+	}
+
+	public int classSize(int c) {
+		return classStarts[c + 1] - classStarts[c];
+	}
+
+	public int row(int i) {
+		return rows[i];
+	}
+
+	/**
+	 * The number of rows that are alone in their class
+	 */
+	public int singletons() {
+		return numberOfRows - rows.length;
+	}
+
+	/**
+	 * The approximate heap size of the partition in bytes
+	 */
+	public long bytes() {
+		return 48 + 4L * (rows.length + classStarts.length);
+	}
+
+}
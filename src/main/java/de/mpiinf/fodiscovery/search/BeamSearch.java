@@ -0,0 +1,354 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.search;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.mpiinf.fodiscovery.scoring.Evaluation;
+import de.mpiinf.fodiscovery.scoring.NodeEvaluator;
+import de.mpiinf.fodiscovery.scoring.OptimisticEstimator;
+
+/**
+ * Beam search for the top-k attribute sets by reliable fraction of
+ * information, with nodes evaluated by a pluggable {@link NodeEvaluator}.
+ * Every level refines all members of the beam by one attribute, evaluates each
+ * distinct refinement once, and keeps the beamWidth best for the next level.
+ * Refinements whose potential is below the k-th best score are discarded.
+ * 
+ * With more than one thread, the refinements of a level are evaluated by a
+ * thread pool, and are then offered and selected in the same order as by a
+ * single thread, so that the results do not depend on the number of threads.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class BeamSearch implements Callable<Collection<FunctionalDependency>> {
+
+	/**
+	 * ALL propagates every refinement to the selection of the next beam,
+	 * NON_REDUNDANT only those that improve on the score of the node they refine
+	 */
+	public enum RefinementPropagation {
+		ALL, NON_REDUNDANT
+	}
+
+	private final NodeEvaluator evaluator;
+
+	private int k = 1;
+
+	private int beamWidth = 1;
+
+	private OptimisticEstimator optimisticOption = OptimisticEstimator.CHAIN;
+
+	private RefinementPropagation refPropagationOption = RefinementPropagation.NON_REDUNDANT;
+
+	private int threads = 1;
+
+	private long runningTime = 0;
+
+	private int nodesCreated = 0;
+
+	private int nodesDiscarded = 0;
+
+	private int maxAttainedDepth = 0;
+
+	private int bestDepth = 0;
+
+	private int maxAttainedBoundarySize = 0;
+
+	private PrintStream progressOut = null;
+
+	private long progressInterval = 0;
+
+	private ProgressReporter progress = null;
+
+	static class Node {
+
+		final int[] attributes;
+
+		final Evaluation evaluation;
+
+		final FunctionalDependency dependency;
+
+		Node(int[] attributes, Evaluation evaluation, FunctionalDependency dependency) {
+			this.attributes = attributes;
+			this.evaluation = evaluation;
+			this.dependency = dependency;
+		}
+
+		double score() {
+			return evaluation == null ? 0 : evaluation.reliableFractionOfInformation();
+		}
+	}
+
+	public BeamSearch(NodeEvaluator evaluator) {
+		this.evaluator = evaluator;
+	}
+
+	public void topK(int k) {
+		this.k = k;
+	}
+
+	public void beamWidth(int beamWidth) {
+		this.beamWidth = beamWidth;
+	}
+
+	public void optimisticOption(OptimisticEstimator optimisticOption) {
+		this.optimisticOption = optimisticOption;
+	}
+
+	public void refPropagationOption(RefinementPropagation refPropagationOption) {
+		this.refPropagationOption = refPropagationOption;
+	}
+
+	public void threads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Writes a JSON line with the progress of the search to the given stream
+	 * every interval milliseconds, see {@link ProgressReporter}. The boundary
+	 * is the refinements of the current level, and the best open bound the
+	 * largest potential in the beam they refine.
+	 */
+	public void progress(PrintStream out, long interval) {
+		this.progressOut = out;
+		this.progressInterval = interval;
+	}
+
+	@Override
+	public Collection<FunctionalDependency> call() throws InterruptedException, ExecutionException {
+		long start = System.currentTimeMillis();
+		nodesCreated = 0;
+		nodesDiscarded = 0;
+		maxAttainedDepth = 0;
+		maxAttainedBoundarySize = 0;
+		progress = progressOut == null ? null
+				: new ProgressReporter(progressOut, progressInterval, "BEAM",
+						evaluator.table().caption(evaluator.target()));
+
+		TopK topK = new TopK(k);
+		List<Node> beam = new ArrayList<>();
+		beam.add(new Node(new int[0], null, null));
+		ExecutorService pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+		try {
+			while (!beam.isEmpty()) {
+				List<Node> candidates = refinements(beam, topK, pool);
+				maxAttainedBoundarySize = Math.max(maxAttainedBoundarySize, candidates.size());
+				beam = select(candidates, topK);
+			}
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+
+		List<FunctionalDependency> results = topK.results();
+		bestDepth = results.isEmpty() ? 0 : results.get(0).attributes().length;
+		runningTime = System.currentTimeMillis() - start;
+		if (progress != null) {
+			progress.report(nodesCreated, maxAttainedDepth, 0, topK.threshold(), Double.NaN, true);
+		}
+		return results;
+	}
+
+	/**
+	 * Creates and evaluates every distinct refinement of the beam by one
+	 * attribute, offers them to the top-k, and returns those that may be
+	 * propagated to the next beam
+	 * 
+	 * @param pool
+	 *            the threads to evaluate the refinements with, or null to
+	 *            evaluate them in the calling thread
+	 */
+	List<Node> refinements(List<Node> beam, TopK topK, ExecutorService pool)
+			throws InterruptedException, ExecutionException {
+		Set<BitSet> seen = new HashSet<>();
+		List<Node> parents = new ArrayList<>();
+		List<int[]> refinements = new ArrayList<>();
+		for (Node node : beam) {
+			for (int attribute = 0; attribute < evaluator.table().numberOfAttributes(); attribute++) {
+				if (attribute == evaluator.target() || contains(node.attributes, attribute)) {
+					continue;
+				}
+				int[] attributes = Arrays.copyOf(node.attributes, node.attributes.length + 1);
+				attributes[node.attributes.length] = attribute;
+				if (seen.add(key(attributes))) {
+					parents.add(node);
+					refinements.add(attributes);
+				}
+			}
+		}
+
+		Evaluation[] evaluations = evaluate(refinements, pool, beam, topK);
+		List<Node> candidates = new ArrayList<>();
+		for (int i = 0; i < refinements.size(); i++) {
+			int[] attributes = refinements.get(i);
+			FunctionalDependency dependency = new FunctionalDependency(attributes, evaluator.table(),
+					evaluator.target(), evaluations[i]);
+			nodesCreated++;
+			maxAttainedDepth = Math.max(maxAttainedDepth, attributes.length);
+			topK.offer(dependency);
+			Node child = new Node(attributes, evaluations[i], dependency);
+			if (refPropagationOption == RefinementPropagation.ALL || child.score() > parents.get(i).score()) {
+				candidates.add(child);
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Evaluates the attribute sets, splitting them into interleaved slices, one
+	 * per thread of the pool, and reports the progress of the search as they
+	 * are evaluated
+	 */
+	private Evaluation[] evaluate(List<int[]> refinements, ExecutorService pool, List<Node> beam, TopK topK)
+			throws InterruptedException, ExecutionException {
+		Evaluation[] evaluations = new Evaluation[refinements.size()];
+		AtomicInteger evaluated = new AtomicInteger(0);
+		double bestOpenBound = bestOpenBound(beam);
+		int depth = beam.isEmpty() ? 0 : beam.get(0).attributes.length + 1;
+		Runnable report = () -> {
+			int created = evaluated.incrementAndGet();
+			if (progress.due()) {
+				progress.report(nodesCreated + created, depth, refinements.size(), topK.threshold(), bestOpenBound,
+						false);
+			}
+		};
+		if (pool == null || refinements.size() < 2) {
+			for (int i = 0; i < refinements.size(); i++) {
+				evaluations[i] = evaluator.evaluate(refinements.get(i), optimisticOption);
+				if (progress != null) {
+					report.run();
+				}
+			}
+			return evaluations;
+		}
+		int slices = Math.min(threads, refinements.size());
+		List<Future<?>> futures = new ArrayList<>(slices);
+		for (int slice = 0; slice < slices; slice++) {
+			int first = slice;
+			futures.add(pool.submit(() -> {
+				for (int i = first; i < evaluations.length; i += slices) {
+					evaluations[i] = evaluator.evaluate(refinements.get(i), optimisticOption);
+					if (progress != null) {
+						report.run();
+					}
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		return evaluations;
+	}
+
+	/**
+	 * Discards the candidates whose potential is below the k-th best score and
+	 * returns the beamWidth best of the others
+	 */
+	List<Node> select(List<Node> candidates, TopK topK) {
+		List<Node> kept = new ArrayList<>(candidates.size());
+		for (Node candidate : candidates) {
+			if (candidate.evaluation.potential() < topK.threshold()) {
+				nodesDiscarded++;
+			} else {
+				kept.add(candidate);
+			}
+		}
+		kept.sort((first, second) -> FunctionalDependency.ORDER.compare(first.dependency, second.dependency));
+		return new ArrayList<>(kept.subList(0, Math.min(beamWidth, kept.size())));
+	}
+
+	/**
+	 * The largest potential of the members of the beam, which is infinite for
+	 * the empty set
+	 */
+	private static double bestOpenBound(List<Node> beam) {
+		double bestOpenBound = Double.NEGATIVE_INFINITY;
+		for (Node node : beam) {
+			bestOpenBound = Math.max(bestOpenBound,
+					node.evaluation == null ? Double.POSITIVE_INFINITY : node.evaluation.potential());
+		}
+		return bestOpenBound;
+	}
+
+	private static boolean contains(int[] attributes, int attribute) {
+		for (int other : attributes) {
+			if (other == attribute) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static BitSet key(int[] attributes) {
+		BitSet key = new BitSet();
+		for (int attribute : attributes) {
+			key.set(attribute);
+		}
+		return key;
+	}
+
+	public long runningTime() {
+		return runningTime;
+	}
+
+	public int nodesCreated() {
+		return nodesCreated;
+	}
+
+	public int nodesDiscarded() {
+		return nodesDiscarded;
+	}
+
+	public int maxAttainedDepth() {
+		return maxAttainedDepth;
+	}
+
+	public int bestDepth() {
+		return bestDepth;
+	}
+
+	public int maxAttainedBoundarySize() {
+		return maxAttainedBoundarySize;
+	}
+
+}
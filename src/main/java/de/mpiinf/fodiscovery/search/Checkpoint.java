@@ -0,0 +1,360 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import de.mpiinf.fodiscovery.scoring.CodedTable;
+import de.mpiinf.fodiscovery.scoring.Evaluation;
+
+/**
+ * The state of a sequential OPUS search, which is written periodically so that
+ * a search that is stopped can be resumed with the same results. A file
+ * consists of
+ *
+ * <pre>
+ * int     magic, version
+ * table:
+ *   int     number of rows, number of attributes
+ *   per attribute: string caption, int cardinality, long checksum of the codes
+ * search:
+ *   int     target, k
+ *   double  alpha
+ *   string  optimistic estimator
+ * counters:
+ *   int     nodes created, nodes discarded, nodes discarded by the pruning rules,
+ *           max depth, max boundary size
+ *   long    CPU nanoseconds spent expanding nodes, milliseconds searched
+ * top-k:
+ *   int     number of dependencies
+ *   per dependency: attribute set, double entropy, mutual information,
+ *           expected mutual information, potential
+ * boundary:
+ *   int     number of nodes
+ *   per node: attribute set, candidates, double potential
+ * </pre>
+ *
+ * Attribute sets and candidates are a length followed by attribute indices,
+ * all as variable-length integers of 7 bits per byte, and all other numbers
+ * are big-endian. The table part fingerprints the discretized table, so that a
+ * checkpoint is only resumed on the table with the same codes.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+class Checkpoint {
+
+	static final int MAGIC = 0x464f434b;
+
+	static final int VERSION = 1;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The captions, cardinalities and checksums of the codes of the attributes
+	 * of a coded table, which are computed once per search
+	 */
+	static class Fingerprint {
+
+		private final int numberOfRows;
+
+		private final String[] captions;
+
+		private final int[] cardinalities;
+
+		private final long[] checksums;
+
+		private Fingerprint(int numberOfRows, String[] captions, int[] cardinalities, long[] checksums) {
+			this.numberOfRows = numberOfRows;
+			this.captions = captions;
+			this.cardinalities = cardinalities;
+			this.checksums = checksums;
+		}
+
+		static Fingerprint of(CodedTable table) {
+			String[] captions = new String[table.numberOfAttributes()];
+			int[] cardinalities = new int[table.numberOfAttributes()];
+			long[] checksums = new long[table.numberOfAttributes()];
+			for (int attribute = 0; attribute < table.numberOfAttributes(); attribute++) {
+				captions[attribute] = table.caption(attribute);
+				cardinalities[attribute] = table.cardinality(attribute);
+				checksums[attribute] = checksum(table.codes(attribute));
+			}
+			return new Fingerprint(table.numberOfRows(), captions, cardinalities, checksums);
+		}
+
+		/**
+		 * Throws an exception if the other table differs from this one,
+		 * naming the first attribute that does
+		 */
+		void verify(Fingerprint other) {
+			if (other.numberOfRows != numberOfRows || other.captions.length != captions.length) {
+				throw new IllegalArgumentException("The checkpoint was written for a table of " + numberOfRows
+						+ " rows and " + captions.length + " attributes");
+			}
+			for (int attribute = 0; attribute < captions.length; attribute++) {
+				if (!other.captions[attribute].equals(captions[attribute])
+						|| other.cardinalities[attribute] != cardinalities[attribute]
+						|| other.checksums[attribute] != checksums[attribute]) {
+					throw new IllegalArgumentException(
+							"The checkpoint was written for another discretization of " + captions[attribute]);
+				}
+			}
+		}
+
+	}
+
+	final Fingerprint fingerprint;
+
+	final int target;
+
+	final int k;
+
+	final double alpha;
+
+	final String optimisticOption;
+
+	final OPUSSearch.Statistics statistics;
+
+	final int maxAttainedBoundarySize;
+
+	final long elapsed;
+
+	final List<FunctionalDependency> topK;
+
+	final Collection<OPUSSearch.Node> boundary;
+
+	/**
+	 * The state of a search, whose boundary and top-k are not copied
+	 */
+	Checkpoint(Fingerprint fingerprint, int target, int k, double alpha, String optimisticOption,
+			OPUSSearch.Statistics statistics, int maxAttainedBoundarySize, long elapsed,
+			List<FunctionalDependency> topK, Collection<OPUSSearch.Node> boundary) {
+		this.fingerprint = fingerprint;
+		this.target = target;
+		this.k = k;
+		this.alpha = alpha;
+		this.optimisticOption = optimisticOption;
+		this.statistics = statistics;
+		this.maxAttainedBoundarySize = maxAttainedBoundarySize;
+		this.elapsed = elapsed;
+		this.topK = topK;
+		this.boundary = boundary;
+	}
+
+	/**
+	 * Throws an exception if the checkpoint was written by a search of another
+	 * table, target or parameters
+	 */
+	void verify(Fingerprint fingerprint, int target, int k, double alpha, String optimisticOption) {
+		this.fingerprint.verify(fingerprint);
+		if (this.target != target || this.k != k || this.alpha != alpha
+				|| !this.optimisticOption.equals(optimisticOption)) {
+			throw new IllegalArgumentException("The checkpoint was written for target " + (this.target + 1) + ", k "
+					+ this.k + ", alpha " + this.alpha + " and " + this.optimisticOption);
+		}
+	}
+
+	/**
+	 * Writes the checkpoint to a temporary file that then replaces the given
+	 * one, so that a search stopped while writing leaves the previous
+	 * checkpoint intact
+	 *
+	 * @return the size of the file in bytes
+	 */
+	long write(Path file) throws IOException {
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(fingerprint.numberOfRows);
+			out.writeInt(fingerprint.captions.length);
+			for (int attribute = 0; attribute < fingerprint.captions.length; attribute++) {
+				writeString(out, fingerprint.captions[attribute]);
+				out.writeInt(fingerprint.cardinalities[attribute]);
+				out.writeLong(fingerprint.checksums[attribute]);
+			}
+			out.writeInt(target);
+			out.writeInt(k);
+			out.writeDouble(alpha);
+			writeString(out, optimisticOption);
+			out.writeInt(statistics.nodesCreated);
+			out.writeInt(statistics.nodesDiscarded);
+			out.writeInt(statistics.nodesDiscardedPruningRules);
+			out.writeInt(statistics.maxAttainedDepth);
+			out.writeInt(maxAttainedBoundarySize);
+			out.writeLong(statistics.expansionCpuNanos);
+			out.writeLong(elapsed);
+			out.writeInt(topK.size());
+			for (FunctionalDependency dependency : topK) {
+				writeAttributes(out, dependency.attributes());
+				Evaluation evaluation = dependency.evaluation();
+				out.writeDouble(evaluation.entropy());
+				out.writeDouble(evaluation.mutualInformation());
+				out.writeDouble(evaluation.expectedMutualInformation());
+				out.writeDouble(evaluation.potential());
+			}
+			out.writeInt(boundary.size());
+			for (OPUSSearch.Node node : boundary) {
+				writeAttributes(out, node.attributes);
+				writeAttributes(out, node.candidates);
+				out.writeDouble(node.potential);
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return Files.size(file);
+	}
+
+	/**
+	 * Reads a checkpoint, with the dependencies of its top-k on the given table
+	 */
+	static Checkpoint read(Path file, CodedTable table) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + " is not a checkpoint");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported checkpoint version " + version + " in " + file);
+			}
+			int numberOfRows = in.readInt();
+			int numberOfAttributes = in.readInt();
+			String[] captions = new String[numberOfAttributes];
+			int[] cardinalities = new int[numberOfAttributes];
+			long[] checksums = new long[numberOfAttributes];
+			for (int attribute = 0; attribute < numberOfAttributes; attribute++) {
+				captions[attribute] = readString(in);
+				cardinalities[attribute] = in.readInt();
+				checksums[attribute] = in.readLong();
+			}
+			int target = in.readInt();
+			int k = in.readInt();
+			double alpha = in.readDouble();
+			String optimisticOption = readString(in);
+			OPUSSearch.Statistics statistics = new OPUSSearch.Statistics();
+			statistics.nodesCreated = in.readInt();
+			statistics.nodesDiscarded = in.readInt();
+			statistics.nodesDiscardedPruningRules = in.readInt();
+			statistics.maxAttainedDepth = in.readInt();
+			int maxAttainedBoundarySize = in.readInt();
+			statistics.expansionCpuNanos = in.readLong();
+			long elapsed = in.readLong();
+			int numberOfDependencies = in.readInt();
+			List<FunctionalDependency> topK = new ArrayList<>(numberOfDependencies);
+			for (int i = 0; i < numberOfDependencies; i++) {
+				int[] attributes = readAttributes(in);
+				Evaluation evaluation = new Evaluation(in.readDouble(), in.readDouble(), in.readDouble(),
+						in.readDouble());
+				topK.add(new FunctionalDependency(attributes, table, target, evaluation));
+			}
+			int numberOfNodes = in.readInt();
+			List<OPUSSearch.Node> boundary = new ArrayList<>(numberOfNodes);
+			for (int i = 0; i < numberOfNodes; i++) {
+				int[] attributes = readAttributes(in);
+				int[] candidates = readAttributes(in);
+				// the evaluation of a boundary node is not needed to expand it
+				boundary.add(new OPUSSearch.Node(attributes, candidates, null, in.readDouble()));
+			}
+			return new Checkpoint(new Fingerprint(numberOfRows, captions, cardinalities, checksums), target, k,
+					alpha, optimisticOption, statistics, maxAttainedBoundarySize, elapsed, topK, boundary);
+		}
+	}
+
+	/**
+	 * An FNV-1a hash of the codes
+	 */
+	private static long checksum(int[] codes) {
+		long checksum = 0xcbf29ce484222325L;
+		for (int code : codes) {
+			checksum = (checksum ^ code) * 0x100000001b3L;
+		}
+		return checksum;
+	}
+
+	/**
+	 * Writes attribute indices as a length followed by the indices, all as
+	 * variable-length integers
+	 */
+	static void writeAttributes(DataOutputStream out, int[] attributes) throws IOException {
+		writeVarInt(out, attributes.length);
+		for (int attribute : attributes) {
+			writeVarInt(out, attribute);
+		}
+	}
+
+	static int[] readAttributes(DataInputStream in) throws IOException {
+		int[] attributes = new int[readVarInt(in)];
+		for (int i = 0; i < attributes.length; i++) {
+			attributes[i] = readVarInt(in);
+		}
+		return attributes;
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0;; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
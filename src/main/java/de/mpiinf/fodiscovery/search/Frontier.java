@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The nodes of a completed OPUS search that came closest to changing its
+ * top-k, so that the top-k can be checked again when the data changes. Every
+ * node that is evaluated is either expanded, and only its own score could
+ * enter the top-k, or pruned, and then the scores of all of its refinements
+ * are bounded by its potential. The relevance of an expanded node is its
+ * score, and that of a pruned node the larger of its score and its potential
+ * times alpha, which is what the pruning compares to the k-th best score.
+ * 
+ * The nodes of largest relevance are kept, and the largest relevance of the
+ * others is the bound of all nodes that are not kept.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class Frontier {
+
+	private static final Comparator<Entry> ORDER = Comparator.comparingDouble((Entry node) -> node.relevance)
+			.thenComparing((first, second) -> FunctionalDependency.ORDER.compare(second.dependency,
+					first.dependency));
+
+	private final int size;
+
+	private final double alpha;
+
+	private final PriorityQueue<Entry> nodes = new PriorityQueue<>(ORDER);
+
+	private double unrecordedBound = Double.NEGATIVE_INFINITY;
+
+	private static class Entry {
+
+		private final FunctionalDependency dependency;
+
+		private final boolean pruned;
+
+		private final double relevance;
+
+		private Entry(FunctionalDependency dependency, boolean pruned, double relevance) {
+			this.dependency = dependency;
+			this.pruned = pruned;
+			this.relevance = relevance;
+		}
+	}
+
+	/**
+	 * @param size
+	 *            the number of nodes to keep
+	 */
+	Frontier(int size, double alpha) {
+		this.size = size;
+		this.alpha = alpha;
+	}
+
+	synchronized void expanded(FunctionalDependency dependency) {
+		offer(new Entry(dependency, false, dependency.score()));
+	}
+
+	synchronized void pruned(FunctionalDependency dependency) {
+		offer(new Entry(dependency, true,
+				Math.max(dependency.score(), alpha * dependency.evaluation().potential())));
+	}
+
+	private void offer(Entry node) {
+		nodes.add(node);
+		if (nodes.size() > size) {
+			unrecordedBound = Math.max(unrecordedBound, nodes.poll().relevance);
+		}
+	}
+
+	/**
+	 * The expanded nodes that are kept, in no particular order
+	 */
+	public synchronized List<FunctionalDependency> expanded() {
+		return dependencies(false);
+	}
+
+	/**
+	 * The pruned nodes that are kept, in no particular order
+	 */
+	public synchronized List<FunctionalDependency> pruned() {
+		return dependencies(true);
+	}
+
+	private List<FunctionalDependency> dependencies(boolean pruned) {
+		List<FunctionalDependency> dependencies = new ArrayList<>();
+		for (Entry node : nodes) {
+			if (node.pruned == pruned) {
+				dependencies.add(node.dependency);
+			}
+		}
+		return dependencies;
+	}
+
+	/**
+	 * The largest relevance of the nodes that are not kept, or negative
+	 * infinity if all are kept
+	 */
+	public synchronized double unrecordedBound() {
+		return unrecordedBound;
+	}
+
+}
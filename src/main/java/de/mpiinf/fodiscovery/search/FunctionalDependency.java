@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.search;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import de.mpiinf.fodiscovery.scoring.CodedTable;
+import de.mpiinf.fodiscovery.scoring.Evaluation;
+
+/**
+ * A dependency of a target on a set of attributes discovered by the search,
+ * with its scores
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class FunctionalDependency {
+
+	/**
+	 * Orders by decreasing reliable fraction of information, then by increasing
+	 * size, then lexicographically by attribute indices, so that results do not
+	 * depend on the order in which they were found
+	 */
+	public static final Comparator<FunctionalDependency> ORDER = Comparator
+			.comparingDouble((FunctionalDependency dependency) -> -dependency.score())
+			.thenComparingInt(dependency -> dependency.sortedAttributes.length)
+			.thenComparing((first, second) -> compare(first.sortedAttributes, second.sortedAttributes));
+
+	private final int[] attributes;
+
+	private final int[] sortedAttributes;
+
+	private final String[] captions;
+
+	private final String targetCaption;
+
+	private final Evaluation evaluation;
+
+	/**
+	 * @param attributes
+	 *            the attributes in the order they were added by the search
+	 */
+	public FunctionalDependency(int[] attributes, CodedTable table, int target, Evaluation evaluation) {
+		this.attributes = attributes.clone();
+		this.sortedAttributes = attributes.clone();
+		Arrays.sort(sortedAttributes);
+		this.captions = new String[attributes.length];
+		for (int i = 0; i < attributes.length; i++) {
+			captions[i] = table.caption(attributes[i]);
+		}
+		this.targetCaption = table.caption(target);
+		this.evaluation = evaluation;
+	}
+
+	public int[] attributes() {
+		return attributes.clone();
+	}
+
+	public String[] captions() {
+		return captions.clone();
+	}
+
+	public String targetCaption() {
+		return targetCaption;
+	}
+
+	public Evaluation evaluation() {
+		return evaluation;
+	}
+
+	/**
+	 * The reliable fraction of information
+	 */
+	public double score() {
+		return evaluation.reliableFractionOfInformation();
+	}
+
+	static int compare(int[] first, int[] second) {
+		for (int i = 0; i < Math.min(first.length, second.length); i++) {
+			if (first[i] != second[i]) {
+				return Integer.compare(first[i], second[i]);
+			}
+		}
+		return Integer.compare(first.length, second.length);
+	}
+
+	@Override
+	public String toString() {
+		return "FunctionalDependency((" + Arrays.toString(captions) + ",[" + targetCaption + "]), " + evaluation
+				+ ")";
+	}
+
+}
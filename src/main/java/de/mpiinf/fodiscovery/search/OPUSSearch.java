@@ -0,0 +1,897 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.search;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.mpiinf.fodiscovery.scoring.Evaluation;
+import de.mpiinf.fodiscovery.scoring.NodeEvaluator;
+import de.mpiinf.fodiscovery.scoring.OptimisticEstimator;
+
+/**
+ * OPUS branch-and-bound search for the top-k attribute sets by reliable
+ * fraction of information, with nodes evaluated by a pluggable
+ * {@link NodeEvaluator}. The boundary is traversed in order of decreasing
+ * potential. The children of a node are ordered by increasing potential and
+ * each one may only be refined by the attributes of its later siblings, so
+ * that every attribute set is visited at most once and the least promising
+ * nodes get the largest subtrees. A node is pruned if alpha times its potential
+ * is below the k-th best score, which guarantees results within a factor alpha
+ * of the optimum.
+ * 
+ * With more than one thread, subtrees are expanded as fork/join tasks that idle
+ * threads steal, and all threads prune against the same top-k. Since pruning
+ * only discards nodes that cannot reach the k-th best score, the results with
+ * alpha 1 are the same as those of the sequential search.
+ * 
+ * With a timeout, nodes are no longer expanded once it expires, and the search
+ * returns the top-k found so far. The largest potential of the nodes left on
+ * the boundary bounds the score of everything not visited, so the results are
+ * within a factor of the effective alpha, the k-th best score divided by that
+ * bound, of the optimum.
+ * 
+ * The sequential search can write its boundary, top-k and counters to a
+ * checkpoint file periodically, and a search resumed from a checkpoint
+ * continues with the same nodes and returns the same results as one that was
+ * never stopped. A checkpoint is also written when the timeout expires, and
+ * the file is deleted once the search completes.
+ * 
+ * With a boundary budget, the sequential search keeps the boundary in a
+ * {@link SpillingBoundary}, which writes the less promising nodes to sorted
+ * runs on disk, and the search is the same as with the boundary in memory.
+ * 
+ * The sequential search can also sweep several alphas in one pass. It searches
+ * with the largest of them, and the guarantee of each smaller alpha is met as
+ * soon as alpha times the largest potential left on the boundary falls below
+ * the k-th best score, since every node not visited, or pruned with the larger
+ * alpha, scores at most that potential. The top-k at that point is within a
+ * factor alpha of the optimum, although it may differ from the results of a
+ * search with that alpha alone, which prunes other nodes.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class OPUSSearch implements Callable<Collection<FunctionalDependency>> {
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	private final NodeEvaluator evaluator;
+
+	private int k = 1;
+
+	private double alpha = 1;
+
+	private double[] sweep = new double[0];
+
+	private List<Guarantee> guarantees = new ArrayList<>();
+
+	private int threads = 1;
+
+	private List<int[]> initialCandidates = new ArrayList<>();
+
+	private long timeout = 0;
+
+	private long deadline = Long.MAX_VALUE;
+
+	private boolean timedOut = false;
+
+	private double remainingBound = Double.NEGATIVE_INFINITY;
+
+	private double effectiveAlpha = 1;
+
+	private Path checkpointFile = null;
+
+	private long checkpointInterval = 0;
+
+	private Checkpoint resumed = null;
+
+	private Checkpoint.Fingerprint fingerprint = null;
+
+	private long start = 0;
+
+	private int checkpointsWritten = 0;
+
+	private long checkpointBytes = 0;
+
+	private long checkpointTime = 0;
+
+	private PrintStream progressOut = null;
+
+	private long progressInterval = 0;
+
+	private ProgressReporter progress = null;
+
+	private int boundaryMB = 0;
+
+	private int frontierSize = 0;
+
+	private Frontier frontier = null;
+
+	private Path spillDirectory = null;
+
+	private int boundaryRuns = 0;
+
+	private int boundaryMerges = 0;
+
+	private long spilledNodes = 0;
+
+	private long spilledBytes = 0;
+
+	private OptimisticEstimator optimisticOption = OptimisticEstimator.CHAIN;
+
+	private long runningTime = 0;
+
+	private int nodesCreated = 0;
+
+	private int nodesDiscarded = 0;
+
+	private int nodesDiscardedPruningRules = 0;
+
+	private int maxAttainedDepth = 0;
+
+	private int bestDepth = 0;
+
+	private int maxAttainedBoundarySize = 0;
+
+	private int[] nodesCreatedPerThread = new int[0];
+
+	private double cpuUtilization = 1;
+
+	/**
+	 * The counters of one thread
+	 */
+	static class Statistics {
+
+		int nodesCreated = 0;
+
+		int nodesDiscarded = 0;
+
+		int nodesDiscardedPruningRules = 0;
+
+		int maxAttainedDepth = 0;
+
+		long expansionCpuNanos = 0;
+
+	}
+
+	/**
+	 * The point of the search at which the guarantee of an alpha was met
+	 */
+	public static class Guarantee {
+
+		private final double alpha;
+
+		private final long runningTime;
+
+		private final int nodesCreated;
+
+		private final List<FunctionalDependency> results;
+
+		private Guarantee(double alpha, long runningTime, int nodesCreated, List<FunctionalDependency> results) {
+			this.alpha = alpha;
+			this.runningTime = runningTime;
+			this.nodesCreated = nodesCreated;
+			this.results = results;
+		}
+
+		public double alpha() {
+			return alpha;
+		}
+
+		public long runningTime() {
+			return runningTime;
+		}
+
+		public int nodesCreated() {
+			return nodesCreated;
+		}
+
+		/**
+		 * The top-k when the guarantee was met, in order
+		 */
+		public List<FunctionalDependency> results() {
+			return results;
+		}
+
+		@Override
+		public String toString() {
+			return "alpha " + alpha + ", time " + runningTime / 1000.0 + ", nodes created " + nodesCreated + ", best "
+					+ (results.isEmpty() ? "none" : results.get(0).toString());
+		}
+	}
+
+	static class Node {
+
+		/**
+		 * Orders by decreasing potential, then by increasing depth
+		 */
+		static final Comparator<Node> ORDER = Comparator.comparingDouble((Node node) -> -node.potential)
+				.thenComparingInt(node -> node.attributes.length)
+				.thenComparing((first, second) -> FunctionalDependency.compare(first.attributes, second.attributes));
+
+		final int[] attributes;
+
+		int[] candidates;
+
+		final Evaluation evaluation;
+
+		final double potential;
+
+		Node(int[] attributes, int[] candidates, Evaluation evaluation, double potential) {
+			this.attributes = attributes;
+			this.candidates = candidates;
+			this.evaluation = evaluation;
+			this.potential = potential;
+		}
+
+		int lastAttribute() {
+			return attributes[attributes.length - 1];
+		}
+	}
+
+	public OPUSSearch(NodeEvaluator evaluator) {
+		this.evaluator = evaluator;
+	}
+
+	public void topK(int k) {
+		this.k = k;
+	}
+
+	public void alpha(double alpha) {
+		this.alpha = alpha;
+		this.sweep = new double[0];
+	}
+
+	/**
+	 * Searches with the largest of the given alphas and records the point at
+	 * which the guarantee of each one is met, see {@link #guarantees()}.
+	 * Requires a single thread and cannot be combined with resuming.
+	 */
+	public void alphas(double... alphas) {
+		this.sweep = alphas.clone();
+		Arrays.sort(sweep);
+		this.alpha = sweep[sweep.length - 1];
+	}
+
+	public void optimisticOption(OptimisticEstimator optimisticOption) {
+		this.optimisticOption = optimisticOption;
+	}
+
+	public void threads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * The wall-clock budget of the search in milliseconds, or 0 for none
+	 */
+	public void timeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Writes the state of the search to the given file every interval
+	 * milliseconds. Requires a single thread.
+	 */
+	public void checkpoint(Path file, long interval) {
+		this.checkpointFile = file;
+		this.checkpointInterval = interval;
+	}
+
+	/**
+	 * Keeps the nodes of the boundary within about the given heap in megabytes,
+	 * or all of them in memory if 0, and spills the others to a temporary
+	 * directory in the given one. Requires a single thread.
+	 */
+	public void boundaryMB(int boundaryMB, Path spillDirectory) {
+		this.boundaryMB = boundaryMB;
+		this.spillDirectory = spillDirectory;
+	}
+
+	/**
+	 * Keeps the given number of nodes that came closest to changing the top-k,
+	 * or none if 0. Cannot be combined with resuming or a boundary budget,
+	 * whose nodes are restored without their scores.
+	 */
+	public void frontier(int size) {
+		this.frontierSize = size;
+	}
+
+	/**
+	 * Writes a JSON line with the progress of the search to the given stream
+	 * every interval milliseconds, see {@link ProgressReporter}. With more than
+	 * one thread, the best open bound is not known and reported as null.
+	 */
+	public void progress(PrintStream out, long interval) {
+		this.progressOut = out;
+		this.progressInterval = interval;
+	}
+
+	/**
+	 * Continues the search from a checkpoint instead of the root. The
+	 * checkpoint must have been written by a search of the same table, target,
+	 * k, alpha and optimistic estimator, which is verified when the search
+	 * starts. Requires a single thread.
+	 */
+	public void resume(Path file) throws IOException {
+		this.resumed = Checkpoint.read(file, evaluator.table());
+	}
+
+	/**
+	 * Attribute sets that are evaluated and offered to the top-k before the
+	 * search starts, e.g., the results of a search on a sample, so that nodes
+	 * are pruned against their scores from the start. They are not counted as
+	 * created nodes. Since they are scored like any other node, the results
+	 * are the same as without them.
+	 */
+	public void initialCandidates(Collection<int[]> initialCandidates) {
+		this.initialCandidates = new ArrayList<>(initialCandidates);
+	}
+
+	@Override
+	public Collection<FunctionalDependency> call() {
+		start = System.currentTimeMillis();
+		deadline = timeout > 0 ? start + timeout : Long.MAX_VALUE;
+		timedOut = false;
+		remainingBound = Double.NEGATIVE_INFINITY;
+		checkpointsWritten = 0;
+		checkpointBytes = 0;
+		checkpointTime = 0;
+		if ((checkpointFile != null || resumed != null) && threads > 1) {
+			throw new IllegalStateException("Checkpoints require a single thread");
+		}
+		if (boundaryMB > 0 && threads > 1) {
+			throw new IllegalStateException("A boundary budget requires a single thread");
+		}
+		if (sweep.length > 0 && (threads > 1 || resumed != null)) {
+			throw new IllegalStateException("An alpha sweep requires a single thread and cannot be resumed");
+		}
+		guarantees = new ArrayList<>();
+		if (frontierSize > 0 && (resumed != null || boundaryMB > 0)) {
+			throw new IllegalStateException("A frontier cannot be combined with resuming or a boundary budget");
+		}
+		frontier = frontierSize > 0 ? new Frontier(frontierSize, alpha) : null;
+		fingerprint = checkpointFile != null || resumed != null ? Checkpoint.Fingerprint.of(evaluator.table()) : null;
+		progress = progressOut == null ? null
+				: new ProgressReporter(progressOut, progressInterval, "OPUS",
+						evaluator.table().caption(evaluator.target()));
+		TopK topK = new TopK(k);
+		if (resumed != null) {
+			resumed.verify(fingerprint, evaluator.target(), k, alpha, optimisticOption.toString());
+			for (FunctionalDependency dependency : resumed.topK) {
+				topK.offer(dependency);
+			}
+		}
+		for (int[] attributes : initialCandidates) {
+			topK.offer(new FunctionalDependency(attributes, evaluator.table(), evaluator.target(),
+					evaluator.evaluate(attributes, optimisticOption)));
+		}
+		List<Statistics> statistics = threads > 1 ? parallel(topK) : sequential(topK);
+
+		nodesCreated = 0;
+		nodesDiscarded = 0;
+		nodesDiscardedPruningRules = 0;
+		maxAttainedDepth = 0;
+		nodesCreatedPerThread = new int[statistics.size()];
+		long expansionCpuNanos = 0;
+		for (int i = 0; i < statistics.size(); i++) {
+			Statistics threadStatistics = statistics.get(i);
+			nodesCreated += threadStatistics.nodesCreated;
+			nodesDiscarded += threadStatistics.nodesDiscarded;
+			nodesDiscardedPruningRules += threadStatistics.nodesDiscardedPruningRules;
+			maxAttainedDepth = Math.max(maxAttainedDepth, threadStatistics.maxAttainedDepth);
+			nodesCreatedPerThread[i] = threadStatistics.nodesCreated;
+			expansionCpuNanos += threadStatistics.expansionCpuNanos;
+		}
+		List<FunctionalDependency> results = topK.results();
+		bestDepth = results.isEmpty() ? 0 : results.get(0).attributes().length;
+		// every node left unexpanded scores at most the remaining bound, and
+		// every pruned one at most the threshold divided by alpha
+		effectiveAlpha = !timedOut || remainingBound <= 0 ? alpha
+				: Math.max(0, Math.min(alpha, topK.threshold() / remainingBound));
+		runningTime = elapsed();
+		cpuUtilization = expansionCpuNanos / (1e6 * Math.max(1, runningTime));
+		if (progress != null) {
+			progress.report(nodesCreated, maxAttainedDepth, 0, topK.threshold(), timedOut ? remainingBound : Double.NaN,
+					true);
+		}
+		return results;
+	}
+
+	private List<Statistics> sequential(TopK topK) {
+		boundaryRuns = 0;
+		boundaryMerges = 0;
+		spilledNodes = 0;
+		spilledBytes = 0;
+		if (boundaryMB == 0) {
+			return sequential(topK, new PriorityQueue<>(Node.ORDER));
+		}
+		SpillingBoundary boundary;
+		try {
+			boundary = new SpillingBoundary(boundaryMB, spillDirectory);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not create a spill directory in " + spillDirectory, e);
+		}
+		try {
+			return sequential(topK, boundary);
+		} finally {
+			boundaryRuns = boundary.runs();
+			boundaryMerges = boundary.merges();
+			spilledNodes = boundary.spilledNodes();
+			spilledBytes = boundary.spilledBytes();
+			try {
+				boundary.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException("Could not delete the boundary runs", e);
+			}
+		}
+	}
+
+	private List<Statistics> sequential(TopK topK, Queue<Node> boundary) {
+		Statistics statistics = new Statistics();
+		maxAttainedBoundarySize = 0;
+		if (resumed == null) {
+			boundary.add(root());
+		} else {
+			statistics = resumed.statistics;
+			maxAttainedBoundarySize = resumed.maxAttainedBoundarySize;
+			boundary.addAll(resumed.boundary);
+		}
+		long nextCheckpoint = start + checkpointInterval;
+		while (!boundary.isEmpty()) {
+			if (checkpointFile != null && System.currentTimeMillis() >= nextCheckpoint) {
+				writeCheckpoint(topK, statistics, boundary);
+				nextCheckpoint = System.currentTimeMillis() + checkpointInterval;
+			}
+			Node node = boundary.poll();
+			// the boundary is ordered by potential, so this node bounds the
+			// score of every node not visited yet
+			recordGuarantees(node.potential, topK, statistics);
+			if (prunable(node.potential, topK)) {
+				statistics.nodesDiscarded++;
+				recordPruned(node);
+				continue;
+			}
+			if (System.currentTimeMillis() >= deadline) {
+				// the boundary is ordered by potential, so this node has the
+				// largest one left
+				timedOut(node.potential);
+				if (checkpointFile != null) {
+					boundary.add(node);
+					writeCheckpoint(topK, statistics, boundary);
+				}
+				break;
+			}
+			if (progress != null && progress.due()) {
+				// the boundary is ordered by potential, so this node has the
+				// best open bound
+				progress.report(statistics.nodesCreated, node.attributes.length, boundary.size() + 1,
+						topK.threshold(), node.potential, false);
+			}
+			recordExpanded(node);
+			long expansionStart = cpuTime();
+			boundary.addAll(expand(node, topK, statistics));
+			statistics.expansionCpuNanos += cpuTime() - expansionStart;
+			maxAttainedBoundarySize = Math.max(maxAttainedBoundarySize, boundary.size());
+		}
+		if (!timedOut) {
+			recordGuarantees(Double.NEGATIVE_INFINITY, topK, statistics);
+		}
+		if (checkpointFile != null && !timedOut) {
+			try {
+				Files.deleteIfExists(checkpointFile);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Could not delete checkpoint " + checkpointFile, e);
+			}
+		}
+		List<Statistics> statisticsPerThread = new ArrayList<>();
+		statisticsPerThread.add(statistics);
+		return statisticsPerThread;
+	}
+
+	/**
+	 * Expands the tree with a fork/join pool, where the boundary is the set of
+	 * tasks that have been forked but not started
+	 */
+	private List<Statistics> parallel(TopK topK) {
+		List<Statistics> statisticsPerThread = new ArrayList<>();
+		ThreadLocal<Statistics> statistics = ThreadLocal.withInitial(() -> {
+			Statistics threadStatistics = new Statistics();
+			synchronized (statisticsPerThread) {
+				statisticsPerThread.add(threadStatistics);
+			}
+			return threadStatistics;
+		});
+		AtomicInteger boundarySize = new AtomicInteger(1);
+		AtomicInteger maxBoundarySize = new AtomicInteger(1);
+		AtomicInteger nodesCreated = new AtomicInteger(0);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new Expansion(root(), topK, statistics, boundarySize, maxBoundarySize, nodesCreated));
+		} finally {
+			pool.shutdown();
+		}
+		maxAttainedBoundarySize = maxBoundarySize.get();
+		synchronized (statisticsPerThread) {
+			return new ArrayList<>(statisticsPerThread);
+		}
+	}
+
+	private class Expansion extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Node node;
+
+		private final TopK topK;
+
+		private final ThreadLocal<Statistics> statistics;
+
+		private final AtomicInteger boundarySize;
+
+		private final AtomicInteger maxBoundarySize;
+
+		/**
+		 * The nodes created by all threads, which is only counted for the
+		 * progress reports
+		 */
+		private final AtomicInteger nodesCreated;
+
+		private Expansion(Node node, TopK topK, ThreadLocal<Statistics> statistics, AtomicInteger boundarySize,
+				AtomicInteger maxBoundarySize, AtomicInteger nodesCreated) {
+			this.node = node;
+			this.topK = topK;
+			this.statistics = statistics;
+			this.boundarySize = boundarySize;
+			this.maxBoundarySize = maxBoundarySize;
+			this.nodesCreated = nodesCreated;
+		}
+
+		@Override
+		protected void compute() {
+			boundarySize.decrementAndGet();
+			Statistics threadStatistics = statistics.get();
+			// the threshold may have risen since the node was forked
+			if (prunable(node.potential, topK)) {
+				threadStatistics.nodesDiscarded++;
+				recordPruned(node);
+				return;
+			}
+			if (System.currentTimeMillis() >= deadline) {
+				timedOut(node.potential);
+				return;
+			}
+			recordExpanded(node);
+			long expansionStart = cpuTime();
+			List<Node> refinable = expand(node, topK, threadStatistics);
+			threadStatistics.expansionCpuNanos += cpuTime() - expansionStart;
+			if (progress != null) {
+				int created = nodesCreated.addAndGet(node.candidates.length);
+				if (progress.due()) {
+					progress.report(created, node.attributes.length, boundarySize.get(), topK.threshold(), Double.NaN,
+							false);
+				}
+			}
+			if (refinable.isEmpty()) {
+				return;
+			}
+			// the most promising child is expanded by this thread, the others
+			// are left to be stolen
+			refinable.sort(Node.ORDER);
+			List<Expansion> subtasks = new ArrayList<>(refinable.size());
+			for (Node child : refinable) {
+				subtasks.add(new Expansion(child, topK, statistics, boundarySize, maxBoundarySize, nodesCreated));
+			}
+			maxBoundarySize.accumulateAndGet(boundarySize.addAndGet(subtasks.size()), Math::max);
+			invokeAll(subtasks);
+		}
+	}
+
+	Node root() {
+		int[] descriptors = new int[evaluator.table().numberOfAttributes() - 1];
+		for (int attribute = 0, i = 0; attribute < evaluator.table().numberOfAttributes(); attribute++) {
+			if (attribute != evaluator.target()) {
+				descriptors[i++] = attribute;
+			}
+		}
+		return new Node(new int[0], descriptors, null, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Creates and evaluates the children of a node, offers them to the top-k,
+	 * and returns those that are not pruned and can be refined further
+	 */
+	List<Node> expand(Node node, TopK topK, Statistics statistics) {
+		List<Node> children = new ArrayList<>(node.candidates.length);
+		for (int candidate : node.candidates) {
+			int[] attributes = Arrays.copyOf(node.attributes, node.attributes.length + 1);
+			attributes[node.attributes.length] = candidate;
+			Evaluation evaluation = evaluator.evaluate(attributes, optimisticOption);
+			children.add(new Node(attributes, null, evaluation, evaluation.potential()));
+			topK.offer(new FunctionalDependency(attributes, evaluator.table(), evaluator.target(), evaluation));
+		}
+		statistics.nodesCreated += children.size();
+		statistics.maxAttainedDepth = Math.max(statistics.maxAttainedDepth, node.attributes.length + 1);
+
+		// the potential of every child is compared to the threshold after all
+		// of them have been offered
+		List<Node> kept = new ArrayList<>(children.size());
+		children.sort(Comparator.comparingDouble((Node child) -> child.potential)
+				.thenComparing(Comparator.comparingInt(Node::lastAttribute).reversed()));
+		for (Node child : children) {
+			if (prunable(child.potential, topK)) {
+				statistics.nodesDiscarded++;
+				recordPruned(child);
+				// the pruned attribute is left out of the candidates of the
+				// siblings before it, whose refinements with it are supersets
+				statistics.nodesDiscardedPruningRules += kept.size();
+			} else {
+				kept.add(child);
+			}
+		}
+		List<Node> refinable = new ArrayList<>(kept.size());
+		for (int i = 0; i < kept.size(); i++) {
+			Node child = kept.get(i);
+			child.candidates = new int[kept.size() - i - 1];
+			for (int j = i + 1; j < kept.size(); j++) {
+				child.candidates[j - i - 1] = kept.get(j).lastAttribute();
+			}
+			if (child.candidates.length > 0) {
+				evaluator.expandable(child.attributes);
+				refinable.add(child);
+			} else {
+				recordExpanded(child);
+			}
+		}
+		return refinable;
+	}
+
+	/**
+	 * Records the alphas of the sweep whose guarantee is met now that no node
+	 * left scores more than the given bound
+	 */
+	private void recordGuarantees(double bound, TopK topK, Statistics statistics) {
+		while (guarantees.size() < sweep.length
+				&& (bound == Double.NEGATIVE_INFINITY || sweep[guarantees.size()] * bound < topK.threshold())) {
+			guarantees.add(new Guarantee(sweep[guarantees.size()], elapsed(), statistics.nodesCreated, topK.results()));
+		}
+	}
+
+	/**
+	 * Records in the frontier a node whose refinements are not searched
+	 */
+	private void recordPruned(Node node) {
+		if (frontier != null) {
+			frontier.pruned(new FunctionalDependency(node.attributes, evaluator.table(), evaluator.target(),
+					node.evaluation));
+		}
+	}
+
+	/**
+	 * Records in the frontier a node that is expanded, or that has no
+	 * refinements left to search
+	 */
+	private void recordExpanded(Node node) {
+		if (frontier != null && node.attributes.length > 0) {
+			frontier.expanded(new FunctionalDependency(node.attributes, evaluator.table(), evaluator.target(),
+					node.evaluation));
+		}
+	}
+
+	/**
+	 * The milliseconds searched so far, including those before the checkpoint
+	 * the search was resumed from
+	 */
+	private long elapsed() {
+		return System.currentTimeMillis() - start + (resumed == null ? 0 : resumed.elapsed);
+	}
+
+	private void writeCheckpoint(TopK topK, Statistics statistics, Collection<Node> boundary) {
+		long writeStart = System.currentTimeMillis();
+		try {
+			checkpointBytes = new Checkpoint(fingerprint, evaluator.target(), k, alpha, optimisticOption.toString(),
+					statistics, maxAttainedBoundarySize, elapsed(), topK.results(), boundary).write(checkpointFile);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write checkpoint " + checkpointFile, e);
+		}
+		checkpointsWritten++;
+		checkpointTime += System.currentTimeMillis() - writeStart;
+	}
+
+	/**
+	 * The CPU time of the current thread in nanoseconds, or the wall-clock time
+	 * if the JVM does not measure it
+	 */
+	private static long cpuTime() {
+		return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+	}
+
+	/**
+	 * Records that a node with the given potential is left unexpanded because
+	 * the timeout expired
+	 */
+	private synchronized void timedOut(double potential) {
+		timedOut = true;
+		remainingBound = Math.max(remainingBound, potential);
+	}
+
+	boolean prunable(double potential, TopK topK) {
+		return alpha * potential < topK.threshold();
+	}
+
+	/**
+	 * Whether the last search stopped because the timeout expired
+	 */
+	public boolean timedOut() {
+		return timedOut;
+	}
+
+	/**
+	 * The largest potential of the nodes left unexpanded when the timeout
+	 * expired, or negative infinity if it did not
+	 */
+	public double remainingBound() {
+		return remainingBound;
+	}
+
+	/**
+	 * The factor of the optimum that the results of the last search are
+	 * guaranteed to be within, alpha unless the timeout expired. It is 0 if the
+	 * timeout expired before k dependencies were found.
+	 */
+	public double effectiveAlpha() {
+		return effectiveAlpha;
+	}
+
+	/**
+	 * The alphas of the sweep of the last search whose guarantee was met, in
+	 * increasing order, which are all of them unless the timeout expired
+	 */
+	public List<Guarantee> guarantees() {
+		return guarantees;
+	}
+
+	/**
+	 * The nodes of the last search that came closest to changing the top-k, or
+	 * null if none were kept
+	 */
+	public Frontier frontier() {
+		return frontier;
+	}
+
+	/**
+	 * The number of sorted runs the boundary was spilled to
+	 */
+	public int boundaryRuns() {
+		return boundaryRuns;
+	}
+
+	/**
+	 * The number of times runs of the boundary were merged to keep at most
+	 * {@link SpillingBoundary#FAN_IN} of them open
+	 */
+	public int boundaryMerges() {
+		return boundaryMerges;
+	}
+
+	public long spilledNodes() {
+		return spilledNodes;
+	}
+
+	public long spilledBytes() {
+		return spilledBytes;
+	}
+
+	public int checkpointsWritten() {
+		return checkpointsWritten;
+	}
+
+	/**
+	 * The size of the last checkpoint written in bytes
+	 */
+	public long checkpointBytes() {
+		return checkpointBytes;
+	}
+
+	/**
+	 * The milliseconds spent writing checkpoints, which are part of the running
+	 * time
+	 */
+	public long checkpointTime() {
+		return checkpointTime;
+	}
+
+	/**
+	 * The milliseconds searched before the checkpoint the search was resumed
+	 * from, or 0
+	 */
+	public long resumedTime() {
+		return resumed == null ? 0 : resumed.elapsed;
+	}
+
+	public long runningTime() {
+		return runningTime;
+	}
+
+	public int nodesCreated() {
+		return nodesCreated;
+	}
+
+	public int nodesDiscarded() {
+		return nodesDiscarded;
+	}
+
+	public int nodesDiscardedPruningRules() {
+		return nodesDiscardedPruningRules;
+	}
+
+	public int maxAttainedDepth() {
+		return maxAttainedDepth;
+	}
+
+	public int bestDepth() {
+		return bestDepth;
+	}
+
+	public int maxAttainedBoundarySize() {
+		return maxAttainedBoundarySize;
+	}
+
+	/**
+	 * The nodes created by each thread that took part in the last search
+	 */
+	public int[] nodesCreatedPerThread() {
+		return nodesCreatedPerThread;
+	}
+
+	/**
+	 * The CPU time spent expanding nodes summed over all threads, divided by the
+	 * running time, i.e., the number of cores the search kept busy. This is not
+	 * a speedup over the sequential search, since threads that contend for the
+	 * partition cache or the top-k keep their cores busy too.
+	 */
+	public double cpuUtilization() {
+		return cpuUtilization;
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.search;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes snapshots of a running search as JSON lines, at most one per
+ * interval. The searches ask whether a snapshot is due as they go and report
+ * their counters, and every snapshot adds the rate of nodes created since the
+ * previous one and the heap and garbage collection figures of the JVM. A
+ * snapshot is
+ *
+ * <pre>
+ * {"search":"OPUS","target":"Rings","elapsed":12.5,"nodesCreated":5230,"nodesPerSecond":410.2,"depth":3,
+ *  "boundarySize":118,"kthBestScore":0.18,"bestOpenBound":0.41,"heapUsed":183500800,"gcTime":0.35,"done":false}
+ * </pre>
+ *
+ * on one line, where elapsed and gcTime are in seconds, heapUsed is in bytes,
+ * and scores that are not known yet are null.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+class ProgressReporter {
+
+	private final PrintStream out;
+
+	private final long interval;
+
+	private final String search;
+
+	private final String target;
+
+	private final long start;
+
+	private final AtomicLong next;
+
+	private long lastTime;
+
+	private long lastNodesCreated = 0;
+
+	/**
+	 * @param interval
+	 *            the milliseconds between snapshots
+	 */
+	ProgressReporter(PrintStream out, long interval, String search, String target) {
+		this.out = out;
+		this.interval = interval;
+		this.search = search;
+		this.target = target;
+		this.start = System.currentTimeMillis();
+		this.lastTime = start;
+		this.next = new AtomicLong(start + interval);
+	}
+
+	/**
+	 * Whether a snapshot is due, which is true for only one of the threads
+	 * asking per interval
+	 */
+	boolean due() {
+		long now = System.currentTimeMillis();
+		long due = next.get();
+		return now >= due && next.compareAndSet(due, now + interval);
+	}
+
+	/**
+	 * @param depth
+	 *            the depth of the nodes being expanded
+	 * @param kthBestScore
+	 *            the score of the k-th best dependency, or negative infinity if
+	 *            fewer than k have been found
+	 * @param bestOpenBound
+	 *            the largest potential of the nodes not expanded yet, or NaN if
+	 *            it is not known
+	 */
+	synchronized void report(long nodesCreated, int depth, int boundarySize, double kthBestScore,
+			double bestOpenBound, boolean done) {
+		long now = System.currentTimeMillis();
+		double nodesPerSecond = now > lastTime ? 1000.0 * (nodesCreated - lastNodesCreated) / (now - lastTime) : 0;
+		lastTime = now;
+		lastNodesCreated = nodesCreated;
+		long gcTime = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcTime += Math.max(0, collector.getCollectionTime());
+		}
+		out.println("{\"search\":" + quote(search) + ",\"target\":" + quote(target) + ",\"elapsed\":"
+				+ (now - start) / 1000.0 + ",\"nodesCreated\":" + nodesCreated + ",\"nodesPerSecond\":"
+				+ number(nodesPerSecond) + ",\"depth\":" + depth + ",\"boundarySize\":" + boundarySize
+				+ ",\"kthBestScore\":" + number(kthBestScore) + ",\"bestOpenBound\":" + number(bestOpenBound)
+				+ ",\"heapUsed\":" + ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed()
+				+ ",\"gcTime\":" + gcTime / 1000.0 + ",\"done\":" + done + "}");
+	}
+
+	/**
+	 * JSON has no infinities or NaN, which become null
+	 */
+	private static String number(double value) {
+		return Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value);
+	}
+
+	private static String quote(String string) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for (char c : string.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if (c < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) c));
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+}
@@ -0,0 +1,434 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.search;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import de.mpiinf.fodiscovery.scoring.CodedTable;
+import de.mpiinf.fodiscovery.scoring.FractionOfInformation;
+import de.mpiinf.fodiscovery.scoring.OptimisticEstimator;
+import de.mpiinf.fodiscovery.scoring.PartitionCache;
+
+/**
+ * OPUS search on growing random samples of the rows, e.g., 1%, 5%, 25% and
+ * 100%. The samples are nested, each one taking the first rows of the same
+ * random permutation. Every stage starts from the top-k of the previous one,
+ * rescored on its sample, so that it prunes against their scores from the
+ * start. The k-th best score of the previous stage itself is not carried over,
+ * since it need not be reached on the larger sample, and pruning against it
+ * could lose the top-k of the stage. The search stops early once the top-k has been stable for a number of
+ * consecutive stages, where stable means the same attribute sets in the same
+ * order ({@link Stability#RANKING}) or in any order ({@link Stability#SET}).
+ *
+ * After an early stop the top-k of the last stage is rescored on all rows, k
+ * evaluations, so that the results carry the scores of the full table; the
+ * stages keep the scores on their samples. The results are then not
+ * guaranteed to be the top-k of all rows.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class ProgressiveSearch implements Callable<Collection<FunctionalDependency>> {
+
+	public enum Stability {
+		RANKING, SET
+	}
+
+	/**
+	 * The outcome of one stage
+	 */
+	public static class Stage {
+
+		private final double fraction;
+
+		private final int rows;
+
+		private final long runningTime;
+
+		private final int nodesCreated;
+
+		private final List<FunctionalDependency> results;
+
+		private final List<String> entered;
+
+		private final List<String> left;
+
+		private final boolean stable;
+
+		private Stage(double fraction, int rows, long runningTime, int nodesCreated, List<FunctionalDependency> results,
+				List<String> entered, List<String> left, boolean stable) {
+			this.fraction = fraction;
+			this.rows = rows;
+			this.runningTime = runningTime;
+			this.nodesCreated = nodesCreated;
+			this.results = results;
+			this.entered = entered;
+			this.left = left;
+			this.stable = stable;
+		}
+
+		public double fraction() {
+			return fraction;
+		}
+
+		public int rows() {
+			return rows;
+		}
+
+		public long runningTime() {
+			return runningTime;
+		}
+
+		public int nodesCreated() {
+			return nodesCreated;
+		}
+
+		public List<FunctionalDependency> results() {
+			return results;
+		}
+
+		/**
+		 * The attribute sets in the top-k of this stage but not of the previous
+		 * one
+		 */
+		public List<String> entered() {
+			return entered;
+		}
+
+		/**
+		 * The attribute sets in the top-k of the previous stage but not of this
+		 * one
+		 */
+		public List<String> left() {
+			return left;
+		}
+
+		/**
+		 * Whether the top-k is stable since the previous stage
+		 */
+		public boolean stable() {
+			return stable;
+		}
+
+		@Override
+		public String toString() {
+			return "fraction " + fraction + ", rows " + rows + ", time " + runningTime / 1000.0 + ", nodes created "
+					+ nodesCreated + ", entered " + entered + ", left " + left + ", stable " + stable + ", best "
+					+ (results.isEmpty() ? "none" : results.get(0).toString());
+		}
+	}
+
+	private final CodedTable table;
+
+	private final int target;
+
+	private final double[] fractions;
+
+	private final long seed;
+
+	private int k = 1;
+
+	private double alpha = 1;
+
+	private int threads = 1;
+
+	private OptimisticEstimator optimisticOption = OptimisticEstimator.CHAIN;
+
+	private int partitionCacheMB = PartitionCache.BUDGET_MB;
+
+	private Stability stability = Stability.RANKING;
+
+	private int stableStages = 1;
+
+	private PrintStream progressOut = null;
+
+	private long progressInterval = 0;
+
+	private List<Stage> stages = new ArrayList<>();
+
+	private PartitionCache partitionCache;
+
+	private long runningTime = 0;
+
+	private int nodesCreated = 0;
+
+	private int nodesDiscarded = 0;
+
+	private int nodesDiscardedPruningRules = 0;
+
+	private int maxAttainedDepth = 0;
+
+	private int bestDepth = 0;
+
+	private int maxAttainedBoundarySize = 0;
+
+	private long rescoringTime = 0;
+
+	/**
+	 * @param fractions
+	 *            the increasing fractions of the rows of every stage
+	 * @param seed
+	 *            the seed of the random permutation of the rows
+	 */
+	public ProgressiveSearch(CodedTable table, int target, double[] fractions, long seed) {
+		this.table = table;
+		this.target = target;
+		this.fractions = fractions.clone();
+		this.seed = seed;
+	}
+
+	public void topK(int k) {
+		this.k = k;
+	}
+
+	public void alpha(double alpha) {
+		this.alpha = alpha;
+	}
+
+	public void optimisticOption(OptimisticEstimator optimisticOption) {
+		this.optimisticOption = optimisticOption;
+	}
+
+	public void threads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * The heap budget of the partition cache of every stage
+	 */
+	public void partitionCacheMB(int partitionCacheMB) {
+		this.partitionCacheMB = partitionCacheMB;
+	}
+
+	public void stability(Stability stability) {
+		this.stability = stability;
+	}
+
+	/**
+	 * The number of consecutive stable stages to stop after
+	 */
+	public void stableStages(int stableStages) {
+		this.stableStages = stableStages;
+	}
+
+	/**
+	 * Reports the progress of the search of every stage, see
+	 * {@link OPUSSearch#progress(PrintStream, long)}
+	 */
+	public void progress(PrintStream out, long interval) {
+		this.progressOut = out;
+		this.progressInterval = interval;
+	}
+
+	@Override
+	public Collection<FunctionalDependency> call() {
+		long start = System.currentTimeMillis();
+		stages = new ArrayList<>();
+		nodesCreated = 0;
+		nodesDiscarded = 0;
+		nodesDiscardedPruningRules = 0;
+		maxAttainedDepth = 0;
+		maxAttainedBoundarySize = 0;
+		rescoringTime = 0;
+
+		int[] permutation = permutation(table.numberOfRows());
+		List<FunctionalDependency> results = new ArrayList<>();
+		List<int[]> candidates = new ArrayList<>();
+		int stableSince = 0;
+		for (double fraction : fractions) {
+			int rows = (int) Math.max(1, Math.min(table.numberOfRows(), Math.round(fraction * table.numberOfRows())));
+			CodedTable sample = table;
+			if (rows < table.numberOfRows()) {
+				int[] sampleRows = Arrays.copyOf(permutation, rows);
+				// rows in table order, so that the codes are read sequentially
+				Arrays.sort(sampleRows);
+				sample = table.sample(sampleRows);
+			}
+			FractionOfInformation evaluator = new FractionOfInformation(sample, target,
+					new PartitionCache(partitionCacheMB));
+			partitionCache = evaluator.partitionCache();
+			OPUSSearch search = new OPUSSearch(evaluator);
+			search.topK(k);
+			search.alpha(alpha);
+			search.optimisticOption(optimisticOption);
+			search.threads(threads);
+			search.initialCandidates(candidates);
+			if (progressOut != null) {
+				search.progress(progressOut, progressInterval);
+			}
+			List<FunctionalDependency> stageResults = new ArrayList<>(search.call());
+
+			nodesCreated += search.nodesCreated();
+			nodesDiscarded += search.nodesDiscarded();
+			nodesDiscardedPruningRules += search.nodesDiscardedPruningRules();
+			maxAttainedDepth = Math.max(maxAttainedDepth, search.maxAttainedDepth());
+			maxAttainedBoundarySize = Math.max(maxAttainedBoundarySize, search.maxAttainedBoundarySize());
+
+			List<String> previousKeys = keys(results);
+			List<String> keys = keys(stageResults);
+			List<String> entered = new ArrayList<>(keys);
+			entered.removeAll(previousKeys);
+			List<String> left = new ArrayList<>(previousKeys);
+			left.removeAll(keys);
+			boolean stable = !stages.isEmpty() && (stability == Stability.RANKING ? keys.equals(previousKeys)
+					: new LinkedHashSet<>(keys).equals(new LinkedHashSet<>(previousKeys)));
+			stableSince = stable ? stableSince + 1 : 0;
+			stages.add(new Stage(fraction, rows, search.runningTime(), search.nodesCreated(), stageResults, entered,
+					left, stable));
+
+			results = stageResults;
+			candidates = new ArrayList<>();
+			for (FunctionalDependency dependency : results) {
+				candidates.add(dependency.attributes());
+			}
+			if (stableSince >= stableStages) {
+				break;
+			}
+		}
+		if (stoppedEarly()) {
+			results = rescore(results);
+		}
+		bestDepth = results.isEmpty() ? 0 : results.get(0).attributes().length;
+		runningTime = System.currentTimeMillis() - start;
+		return results;
+	}
+
+	/**
+	 * The dependencies with their scores on all rows, in the order of these
+	 * scores
+	 */
+	private List<FunctionalDependency> rescore(List<FunctionalDependency> dependencies) {
+		long start = System.currentTimeMillis();
+		FractionOfInformation evaluator = new FractionOfInformation(table, target,
+				new PartitionCache(partitionCacheMB));
+		List<FunctionalDependency> rescored = new ArrayList<>(dependencies.size());
+		for (FunctionalDependency dependency : dependencies) {
+			int[] attributes = dependency.attributes();
+			rescored.add(new FunctionalDependency(attributes, table, target,
+					evaluator.evaluate(attributes, optimisticOption)));
+		}
+		rescored.sort(FunctionalDependency.ORDER);
+		rescoringTime = System.currentTimeMillis() - start;
+		return rescored;
+	}
+
+	private int[] permutation(int numberOfRows) {
+		int[] permutation = new int[numberOfRows];
+		for (int row = 0; row < numberOfRows; row++) {
+			permutation[row] = row;
+		}
+		Random random = new Random(seed);
+		for (int i = numberOfRows - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int row = permutation[i];
+			permutation[i] = permutation[j];
+			permutation[j] = row;
+		}
+		return permutation;
+	}
+
+	/**
+	 * The attribute sets of the dependencies as sorted captions, in the order
+	 * of the dependencies
+	 */
+	private static List<String> keys(List<FunctionalDependency> dependencies) {
+		List<String> keys = new ArrayList<>(dependencies.size());
+		for (FunctionalDependency dependency : dependencies) {
+			String[] captions = dependency.captions().clone();
+			Arrays.sort(captions);
+			keys.add(Arrays.toString(captions));
+		}
+		return keys;
+	}
+
+	/**
+	 * The stages run by the last search, which stopped after the last one
+	 */
+	public List<Stage> stages() {
+		return stages;
+	}
+
+	/**
+	 * Whether the last search stopped before the stage with all rows
+	 */
+	public boolean stoppedEarly() {
+		return !stages.isEmpty() && stages.get(stages.size() - 1).rows < table.numberOfRows();
+	}
+
+	/**
+	 * The time of rescoring the results of an early stop on all rows, included
+	 * in the running time
+	 */
+	public long rescoringTime() {
+		return rescoringTime;
+	}
+
+	/**
+	 * The partition cache of the last stage
+	 */
+	public PartitionCache partitionCache() {
+		return partitionCache;
+	}
+
+	public long runningTime() {
+		return runningTime;
+	}
+
+	/**
+	 * The nodes created by all stages
+	 */
+	public int nodesCreated() {
+		return nodesCreated;
+	}
+
+	public int nodesDiscarded() {
+		return nodesDiscarded;
+	}
+
+	public int nodesDiscardedPruningRules() {
+		return nodesDiscardedPruningRules;
+	}
+
+	public int maxAttainedDepth() {
+		return maxAttainedDepth;
+	}
+
+	public int bestDepth() {
+		return bestDepth;
+	}
+
+	public int maxAttainedBoundarySize() {
+		return maxAttainedBoundarySize;
+	}
+
+}
@@ -0,0 +1,410 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * The boundary of the sequential OPUS search with a memory budget. Nodes are
+ * kept in a priority queue until their estimated size exceeds the budget, and
+ * then the less promising half of them is sorted and written to a run file in
+ * a temporary directory. Nodes are polled in the same order as from a single
+ * priority queue, by merging the queue with the heads of the runs, which are
+ * read back lazily. At most {@link #FAN_IN} runs are open at a time, each with
+ * one stream and its buffer, and once that many have been written the half of
+ * them with the fewest nodes left are merged into one, so larger runs are
+ * rewritten rarely. Spilled nodes are written with their attributes,
+ * candidates and potential, as in a {@link Checkpoint}, and without their
+ * evaluation, which is not needed to expand them.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+class SpillingBoundary extends AbstractQueue<OPUSSearch.Node> implements Closeable {
+
+	/**
+	 * The estimated bytes of a node on the heap besides its attribute arrays,
+	 * including its evaluation and its slot in the queue
+	 */
+	private static final long NODE_BYTES = 112;
+
+	private static final int BUFFER_SIZE = 1 << 13;
+
+	/**
+	 * The number of runs at which some of them are merged
+	 */
+	static final int FAN_IN = 16;
+
+	private final long budget;
+
+	private final Path directory;
+
+	private final PriorityQueue<OPUSSearch.Node> memory = new PriorityQueue<>(OPUSSearch.Node.ORDER);
+
+	private final PriorityQueue<Run> runs = new PriorityQueue<>(
+			(first, second) -> OPUSSearch.Node.ORDER.compare(first.head, second.head));
+
+	private long bytes = 0;
+
+	private int spilledSize = 0;
+
+	private int numberOfRuns = 0;
+
+	private long spilledNodes = 0;
+
+	private long spilledBytes = 0;
+
+	private int merges = 0;
+
+	/**
+	 * A run file of nodes in order, read one node ahead
+	 */
+	private static class Run implements Closeable {
+
+		private final Path file;
+
+		private final int size;
+
+		private final DataInputStream in;
+
+		private OPUSSearch.Node head;
+
+		private int read = 0;
+
+		private Run(Path file, int size) throws IOException {
+			this.file = file;
+			this.size = size;
+			this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+			advance();
+		}
+
+		/**
+		 * Reads the next node into the head, or null at the end of the run
+		 */
+		private void advance() throws IOException {
+			head = read < size ? readNode(in) : null;
+			read++;
+		}
+
+		/**
+		 * The number of nodes left, including the head
+		 */
+		private int left() {
+			return size - read + 1;
+		}
+
+		/**
+		 * The nodes of the run from the head on, read with a stream of their own
+		 */
+		private Iterator<OPUSSearch.Node> remaining() throws IOException {
+			DataInputStream reader = new DataInputStream(
+					new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+			for (int i = 0; i < read - 1; i++) {
+				readNode(reader);
+			}
+			return new Iterator<OPUSSearch.Node>() {
+
+				private int next = read - 1;
+
+				@Override
+				public boolean hasNext() {
+					if (next < size) {
+						return true;
+					}
+					try {
+						reader.close();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					return false;
+				}
+
+				@Override
+				public OPUSSearch.Node next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					next++;
+					try {
+						return readNode(reader);
+					} catch (IOException e) {
+						throw new UncheckedIOException("Could not read boundary run " + file, e);
+					}
+				}
+			};
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * @param budgetMB
+	 *            the estimated heap of the nodes in memory in megabytes
+	 * @param parent
+	 *            the directory to create the temporary directory of the runs
+	 *            in, or null for the default temporary directory
+	 */
+	SpillingBoundary(int budgetMB, Path parent) throws IOException {
+		this.budget = budgetMB * 1024L * 1024L;
+		this.directory = parent == null ? Files.createTempDirectory("boundary")
+				: Files.createTempDirectory(parent, "boundary");
+	}
+
+	@Override
+	public boolean offer(OPUSSearch.Node node) {
+		memory.add(node);
+		bytes += bytes(node);
+		if (bytes > budget && memory.size() > 1) {
+			spill();
+		}
+		return true;
+	}
+
+	@Override
+	public OPUSSearch.Node poll() {
+		OPUSSearch.Node inMemory = memory.peek();
+		Run run = runs.peek();
+		if (run == null || (inMemory != null && OPUSSearch.Node.ORDER.compare(inMemory, run.head) <= 0)) {
+			if (inMemory != null) {
+				bytes -= bytes(memory.poll());
+			}
+			return inMemory;
+		}
+		runs.poll();
+		OPUSSearch.Node node = run.head;
+		spilledSize--;
+		try {
+			run.advance();
+			if (run.head == null) {
+				run.close();
+			} else {
+				runs.add(run);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not read boundary run " + run.file, e);
+		}
+		return node;
+	}
+
+	@Override
+	public OPUSSearch.Node peek() {
+		OPUSSearch.Node inMemory = memory.peek();
+		Run run = runs.peek();
+		if (run == null || (inMemory != null && OPUSSearch.Node.ORDER.compare(inMemory, run.head) <= 0)) {
+			return inMemory;
+		}
+		return run.head;
+	}
+
+	@Override
+	public int size() {
+		return memory.size() + spilledSize;
+	}
+
+	/**
+	 * The nodes in memory followed by those of every run, in no particular
+	 * order. The runs are read with streams of their own.
+	 */
+	@Override
+	public Iterator<OPUSSearch.Node> iterator() {
+		List<Iterator<OPUSSearch.Node>> iterators = new ArrayList<>();
+		iterators.add(memory.iterator());
+		try {
+			for (Run run : runs) {
+				iterators.add(run.remaining());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not read boundary runs in " + directory, e);
+		}
+		return new Iterator<OPUSSearch.Node>() {
+
+			private int current = 0;
+
+			@Override
+			public boolean hasNext() {
+				while (current < iterators.size() && !iterators.get(current).hasNext()) {
+					current++;
+				}
+				return current < iterators.size();
+			}
+
+			@Override
+			public OPUSSearch.Node next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return iterators.get(current).next();
+			}
+		};
+	}
+
+	/**
+	 * Writes the less promising half of the nodes in memory to a new run
+	 */
+	private void spill() {
+		OPUSSearch.Node[] nodes = memory.toArray(new OPUSSearch.Node[memory.size()]);
+		Arrays.sort(nodes, OPUSSearch.Node.ORDER);
+		int kept = nodes.length / 2;
+		memory.clear();
+		bytes = 0;
+		for (int i = 0; i < kept; i++) {
+			memory.add(nodes[i]);
+			bytes += bytes(nodes[i]);
+		}
+		Path file = directory.resolve("run" + numberOfRuns + ".bin");
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+				for (int i = kept; i < nodes.length; i++) {
+					Checkpoint.writeAttributes(out, nodes[i].attributes);
+					Checkpoint.writeAttributes(out, nodes[i].candidates);
+					out.writeDouble(nodes[i].potential);
+				}
+			}
+			spilledBytes += Files.size(file);
+			runs.add(new Run(file, nodes.length - kept));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write boundary run " + file, e);
+		}
+		numberOfRuns++;
+		spilledSize += nodes.length - kept;
+		spilledNodes += nodes.length - kept;
+		if (runs.size() >= FAN_IN) {
+			merge();
+		}
+	}
+
+	/**
+	 * Merges the half of the runs with the fewest nodes left into one run
+	 */
+	private void merge() {
+		List<Run> merged = new ArrayList<>(runs);
+		merged.sort((first, second) -> Integer.compare(first.left(), second.left()));
+		merged = merged.subList(0, FAN_IN / 2);
+		PriorityQueue<Run> heads = new PriorityQueue<>(
+				(first, second) -> OPUSSearch.Node.ORDER.compare(first.head, second.head));
+		int size = 0;
+		for (Run run : merged) {
+			runs.remove(run);
+			heads.add(run);
+			size += run.left();
+		}
+		Path file = directory.resolve("run" + numberOfRuns + ".bin");
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+				while (!heads.isEmpty()) {
+					Run run = heads.poll();
+					Checkpoint.writeAttributes(out, run.head.attributes);
+					Checkpoint.writeAttributes(out, run.head.candidates);
+					out.writeDouble(run.head.potential);
+					run.advance();
+					if (run.head == null) {
+						run.close();
+					} else {
+						heads.add(run);
+					}
+				}
+			}
+			spilledBytes += Files.size(file);
+			runs.add(new Run(file, size));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not merge boundary runs into " + file, e);
+		}
+		numberOfRuns++;
+		merges++;
+	}
+
+	private static OPUSSearch.Node readNode(DataInputStream in) throws IOException {
+		int[] attributes = Checkpoint.readAttributes(in);
+		int[] candidates = Checkpoint.readAttributes(in);
+		return new OPUSSearch.Node(attributes, candidates, null, in.readDouble());
+	}
+
+	private static long bytes(OPUSSearch.Node node) {
+		return NODE_BYTES + 4L * (node.attributes.length + node.candidates.length);
+	}
+
+	/**
+	 * The number of runs written, including those written by merges
+	 */
+	int runs() {
+		return numberOfRuns;
+	}
+
+	/**
+	 * The number of times runs were merged into one
+	 */
+	int merges() {
+		return merges;
+	}
+
+	/**
+	 * The number of nodes written to runs, not counting merges
+	 */
+	long spilledNodes() {
+		return spilledNodes;
+	}
+
+	/**
+	 * The bytes written to runs, including those written by merges
+	 */
+	long spilledBytes() {
+		return spilledBytes;
+	}
+
+	/**
+	 * Deletes the runs and their directory
+	 */
+	@Override
+	public void close() throws IOException {
+		for (Run run : runs) {
+			run.close();
+		}
+		runs.clear();
+		Files.deleteIfExists(directory);
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package de.mpiinf.fodiscovery.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * The k best dependencies found so far. The score of the k-th best, which the
+ * searches prune against, can be read without locking, and dependencies below
+ * it are rejected without locking.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+class TopK {
+
+	private final int k;
+
+	private final TreeSet<FunctionalDependency> dependencies = new TreeSet<>(FunctionalDependency.ORDER);
+
+	private volatile double threshold = Double.NEGATIVE_INFINITY;
+
+	TopK(int k) {
+		this.k = k;
+	}
+
+	/**
+	 * Adds the dependency if it is among the k best
+	 * 
+	 * @return whether it was added
+	 */
+	boolean offer(FunctionalDependency dependency) {
+		if (dependency.score() < threshold) {
+			return false;
+		}
+		synchronized (this) {
+			return add(dependency);
+		}
+	}
+
+	private boolean add(FunctionalDependency dependency) {
+		if (dependencies.size() == k && FunctionalDependency.ORDER.compare(dependency, dependencies.last()) >= 0) {
+			return false;
+		}
+		if (!dependencies.add(dependency)) {
+			return false;
+		}
+		if (dependencies.size() > k) {
+			dependencies.pollLast();
+		}
+		if (dependencies.size() == k) {
+			threshold = dependencies.last().score();
+		}
+		return true;
+	}
+
+	/**
+	 * The score of the k-th best dependency, or negative infinity if fewer than k
+	 * have been found
+	 */
+	double threshold() {
+		return threshold;
+	}
+
+	synchronized List<FunctionalDependency> results() {
+		return new ArrayList<>(dependencies);
+	}
+
+}
@@ -0,0 +1,274 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.mpiinf.fodiscovery.io.ResultsWriter;
+import de.mpiinf.fodiscovery.singleexp.FoBeam;
+import de.mpiinf.fodiscovery.singleexp.FoOPUS;
+import utils.DataTableCache;
+import utils.DiscretizedTableCache;
+import utils.Utilities;
+
+/**
+ * A class for a long-running discovery server, which keeps parsed and
+ * discretized datasets, and the compiled code of the searches, between jobs.
+ * A job is posted to /opus or /beam on the loopback interface, with the
+ * arguments of FoOPUS or FoBeam separated by whitespace as its body, e.g.,
+ * 
+ * <pre>
+ * curl --data '-DATASET data.arff -TARGET 3 -ENGINE NATIVE' http://localhost:8642/opus
+ * </pre>
+ * 
+ * The job writes its output files as on the command line, and the response is
+ * the output file of every target in the format of -FORMAT. Jobs run -JOBS at
+ * a time, up to -QUEUE more wait, and the others are rejected with status 503.
+ * The exchange of a job waits for it on one of -JOBS plus -QUEUE threads, and
+ * {@value #CONTROL_THREADS} more answer /status, /shutdown and rejected jobs,
+ * so the threads of the server stay bounded however many requests arrive.
+ * Missing or invalid arguments are answered with status 400. GET /status
+ * reports the jobs and the caches, and POST /shutdown stops the server after
+ * the jobs accepted so far.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class DiscoveryServer {
+
+	public static final int CONTROL_THREADS = 2;
+
+	private final DataTableCache dataTableCache;
+
+	private final DiscretizedTableCache discretizedTableCache;
+
+	private final ThreadPoolExecutor jobs;
+
+	private final ExecutorService exchanges;
+
+	private final HttpServer server;
+
+	private final AtomicLong submitted = new AtomicLong();
+
+	private final AtomicLong completed = new AtomicLong();
+
+	private final AtomicLong failed = new AtomicLong();
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	public static void main(String[] args) throws Exception {
+		DiscoveryServer server = new DiscoveryServer(args);
+		server.start();
+		System.out.println("Listening on http://" + server.address());
+	}
+
+	/**
+	 * Creates a server with the caches of -CACHE_MB and -DISC_CACHE, on -PORT
+	 * with -JOBS jobs at a time and -QUEUE waiting
+	 */
+	public DiscoveryServer(String[] args) throws IOException {
+		this.dataTableCache = new DataTableCache(Utilities.cacheMB(args));
+		this.discretizedTableCache = new DiscretizedTableCache(dataTableCache, Utilities.discCache(args));
+		int threads = Utilities.jobs(args);
+		int queue = Utilities.queue(args);
+		this.jobs = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queue));
+		// at most one exchange waits for every job running or queued
+		this.exchanges = Executors.newFixedThreadPool(threads + queue + CONTROL_THREADS);
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), Utilities.port(args)),
+				0);
+		server.createContext("/opus", exchange -> job(exchange, true));
+		server.createContext("/beam", exchange -> job(exchange, false));
+		server.createContext("/status", this::status);
+		server.createContext("/shutdown", this::shutdown);
+		server.setExecutor(exchanges);
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting jobs, waits for those accepted so far and closes the
+	 * server
+	 */
+	public void stop() throws InterruptedException {
+		jobs.shutdown();
+		jobs.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		server.stop(0);
+		exchanges.shutdown();
+	}
+
+	/**
+	 * The host and port the server listens on
+	 */
+	public String address() {
+		InetSocketAddress address = server.getAddress();
+		return address.getHostString() + ":" + address.getPort();
+	}
+
+	private void job(HttpExchange exchange, boolean opus) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			respond(exchange, 405, "text/plain", "Jobs are posted with their arguments as the body\n");
+			return;
+		}
+		String[] args = arguments(exchange.getRequestBody());
+		// the job number keeps the output files of jobs started in the same second apart
+		String timeStamp = new SimpleDateFormat("dd.MM.yyyy.HH.mm.ss").format(new Date()) + "_Job="
+				+ submitted.incrementAndGet();
+		Future<List<String>> job;
+		try {
+			job = jobs.submit(() -> run(args, opus, timeStamp));
+		} catch (RejectedExecutionException e) {
+			rejected.incrementAndGet();
+			respond(exchange, 503, "text/plain", "The queue of jobs is full\n");
+			return;
+		}
+		try {
+			List<String> outputFiles = job.get();
+			StringBuilder results = new StringBuilder();
+			for (String outputFile : outputFiles) {
+				results.append(new String(Files.readAllBytes(Paths.get(outputFile)), StandardCharsets.UTF_8));
+			}
+			completed.incrementAndGet();
+			respond(exchange, 200, contentType(Utilities.format(args)), results.toString());
+		} catch (ExecutionException e) {
+			failed.incrementAndGet();
+			Throwable cause = e.getCause();
+			// missing and invalid arguments are reported with these
+			boolean arguments = cause instanceof IllegalArgumentException || cause instanceof IllegalStateException;
+			respond(exchange, arguments ? 400 : 500, "text/plain", cause + "\n");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			respond(exchange, 503, "text/plain", "The server is stopping\n");
+		}
+	}
+
+	/**
+	 * Runs a job with the caches of the server
+	 * 
+	 * @return the output files of the job in the format of its arguments
+	 */
+	private List<String> run(String[] args, boolean opus, String timeStamp) throws Exception {
+		List<String> textFiles = opus ? FoOPUS.run(args, dataTableCache, discretizedTableCache, timeStamp)
+				: Collections.singletonList(FoBeam.run(args, dataTableCache, discretizedTableCache, timeStamp));
+		ResultsWriter.Format format = Utilities.format(args);
+		if (format == ResultsWriter.Format.TEXT) {
+			return textFiles;
+		}
+		ResultsWriter results = new ResultsWriter(format);
+		List<String> outputFiles = new ArrayList<>(textFiles.size());
+		for (String textFile : textFiles) {
+			outputFiles.add(results.fileName(textFile));
+		}
+		return outputFiles;
+	}
+
+	private void status(HttpExchange exchange) throws IOException {
+		String status = "Jobs: running " + jobs.getActiveCount() + ", queued " + jobs.getQueue().size()
+				+ ", completed " + completed.get() + ", failed " + failed.get() + ", rejected " + rejected.get()
+				+ "\n" + dataTableCache + "\n" + discretizedTableCache + "\n";
+		respond(exchange, 200, "text/plain", status);
+	}
+
+	private void shutdown(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			respond(exchange, 405, "text/plain", "The server is stopped with a post\n");
+			return;
+		}
+		respond(exchange, 200, "text/plain", "Stopping after " + (jobs.getActiveCount() + jobs.getQueue().size())
+				+ " jobs\n");
+		new Thread(() -> {
+			try {
+				stop();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}).start();
+	}
+
+	/**
+	 * The arguments of a job, separated by whitespace in the body of its
+	 * request
+	 */
+	private static String[] arguments(InputStream body) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = body.read(buffer)) != -1) {
+			bytes.write(buffer, 0, read);
+		}
+		String line = new String(bytes.toByteArray(), StandardCharsets.UTF_8).trim();
+		return line.isEmpty() ? new String[0] : line.split("\\s+");
+	}
+
+	private static String contentType(ResultsWriter.Format format) {
+		switch (format) {
+		case JSON:
+			return "application/json";
+		case CSV:
+			return "text/csv";
+		default:
+			return "text/plain";
+		}
+	}
+
+	private static void respond(HttpExchange exchange, int status, String contentType, String body)
+			throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+}
@@ -27,14 +27,21 @@ package de.mpiinf.fodiscovery.singleexp;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashSet;
 
+import de.mpiinf.fodiscovery.io.ResultsWriter;
+import de.mpiinf.fodiscovery.scoring.CodedTable;
+import de.mpiinf.fodiscovery.scoring.FractionOfInformation;
+import de.mpiinf.fodiscovery.scoring.OptimisticEstimator;
+import de.mpiinf.fodiscovery.scoring.PartitionCache;
+import de.mpiinf.fodiscovery.scoring.SketchDiscretization;
+import de.mpiinf.fodiscovery.search.BeamSearch;
 import de.unibonn.realkd.algorithms.beamsearch.NewBeamSearch.RefinementPropagation;
 import de.unibonn.realkd.algorithms.functional.BeamFunctionalPatternSearch;
 import de.unibonn.realkd.algorithms.functional.BeamFunctionalPatternSearch.DiscretizationTypeOption;
@@ -42,10 +49,10 @@ import de.unibonn.realkd.algorithms.functional.BeamFunctionalPatternSearch.Optim
 import de.unibonn.realkd.common.workspace.Workspace;
 import de.unibonn.realkd.common.workspace.Workspaces;
 import de.unibonn.realkd.data.table.DataTable;
-import de.unibonn.realkd.data.table.DataTables;
-import de.unibonn.realkd.data.xarf.XarfImport;
-import de.unibonn.realkd.patterns.Pattern;
 import de.unibonn.realkd.patterns.functional.FunctionalPattern;
+import utils.DataTableCache;
+import utils.DataTableColumns;
+import utils.DiscretizedTableCache;
 import utils.Utilities;
 
 /**
@@ -56,6 +63,24 @@ import utils.Utilities;
  */
 public class FoBeam {
 	public static void main(String[] args) throws Exception {
+		DataTableCache dataTableCache = new DataTableCache(Utilities.cacheMB(args));
+		DiscretizedTableCache discretizedTableCache = new DiscretizedTableCache(dataTableCache,
+				Utilities.discCache(args));
+		run(args, dataTableCache, discretizedTableCache,
+				new SimpleDateFormat("dd.MM.yyyy.HH.mm.ss").format(new Date()));
+	}
+
+	/**
+	 * Searches the dependencies of the target and writes the output file,
+	 * taking the parsed and discretized dataset from caches that may be shared
+	 * between runs
+	 * 
+	 * @param timeStamp
+	 *            the suffix of the output file
+	 * @return the text output file
+	 */
+	public static String run(String[] args, DataTableCache dataTableCache,
+			DiscretizedTableCache discretizedTableCache, String timeStamp) throws Exception {
 		String dataset = Utilities.dataset(args);
 		String outputFolder = Utilities.outputFolder(args);
 		int target = Utilities.target(args);
@@ -67,66 +92,134 @@ public class FoBeam {
 		int cutPointMultiplier = Utilities.cutPointMultiplier(args);
 		RefinementPropagation refOption = Utilities.refOpt(args);
 		DiscretizationTypeOption discTypeOption = Utilities.discTypeGreedy(args);
+		int threads = Utilities.threads(args);
+		long progress = Utilities.progress(args);
 
 		Path pathToOutput = Paths.get(outputFolder);
 		if (!Files.exists(pathToOutput)) {
 
-			Files.createDirectory(pathToOutput);
+			Files.createDirectories(pathToOutput);
 			System.out.println("Did not find the output folder. Created one instead.");
 		}
-		String timeStamp = new SimpleDateFormat("dd.MM.yyyy.HH.mm.ss").format(new Date());
 
 		Workspace workspace = Workspaces.workspace();
-		XarfImport builder = XarfImport.xarfImport(dataset);
-		DataTable dataTable = builder.get();
+		long loadStart = System.currentTimeMillis();
+		DataTable dataTable = dataTableCache.get(dataset);
+		long loadTime = System.currentTimeMillis() - loadStart;
 		int numberOfAttrs = dataTable.numberOfAttributes();
 		if (target == 0) {
 			target = numberOfAttrs;
 		}
-		HashSet<Integer> targetToDiscretize = new HashSet<>();
-		targetToDiscretize.add(target - 1);
-		DataTable dataWithPreDiscretizedAttributes = DataTables.preDiscretizeTable(dataTable,
-				DataTables.equalFrequencyDiscretization(numBinsTarget), targetToDiscretize);
-		workspace.add(dataWithPreDiscretizedAttributes);
-		BeamFunctionalPatternSearch functionalPatternSearch = new BeamFunctionalPatternSearch(workspace);
-
-		functionalPatternSearch.target(dataWithPreDiscretizedAttributes.attribute(target - 1));
-		functionalPatternSearch.topK(k);
-		functionalPatternSearch.beamWidth(beamWidth);
-		functionalPatternSearch.optimisticOption(optOption);
-		functionalPatternSearch.refPropagationOption(refOption);
-		functionalPatternSearch.maxBins(maxBins);
-		functionalPatternSearch.cutPointMultiplier(cutPointMultiplier);
-		functionalPatternSearch.discTypeOption(discTypeOption);
-
+		SketchDiscretization sketch = Utilities.sketchDiscretization(args)
+				? new SketchDiscretization(Utilities.sketchK(args), threads)
+				: null;
+		long discretizationStart = System.currentTimeMillis();
+		DataTable dataWithPreDiscretizedAttributes = discretizedTableCache.get(dataset, dataTable, target - 1,
+				numBinsTarget, sketch);
+		long discretizationTime = System.currentTimeMillis() - discretizationStart;
 		String datasetName = dataTable.caption();
 		String experimentResultsFile = null;
 		if (discTypeOption == DiscretizationTypeOption.COP) {
 			experimentResultsFile = outputFolder + File.separator + datasetName + "_Target=" + (target) + "_BeamWidth="
 					+ beamWidth + "_Topk=" + k + "_Opt=" + optOption.toString() + "_L=" + maxBins + "_DiscType="
-					+ discTypeOption.toString() + "_C=" + cutPointMultiplier + "_" + timeStamp + ".txt";
+					+ Utilities.discTypeName(args) + "_C=" + cutPointMultiplier + "_" + timeStamp + ".txt";
 		} else {
 			experimentResultsFile = outputFolder + File.separator + datasetName + "_Target=" + (target) + "_BeamWidth="
 					+ beamWidth + "_Topk=" + k + "_Opt=" + optOption.toString() + "_L=" + maxBins + "_DiscType="
-					+ discTypeOption.toString() + "_" + timeStamp + ".txt";
+					+ Utilities.discTypeName(args) + "_" + timeStamp + ".txt";
 		}
 
-		Collection<FunctionalPattern> resultPatterns = functionalPatternSearch.call();
-		long time = functionalPatternSearch.runningTime();
-		int nodes = functionalPatternSearch.nodesCreated();
-		int nodesDiscardedPotential = functionalPatternSearch.nodesDiscarded();
-		int max_depth = functionalPatternSearch.maxAttainedDepth();
-		int solution_depth = functionalPatternSearch.bestDepth();
-		int boundary_max_size = functionalPatternSearch.maxAttainedBoundarySize();
+		Collection<?> resultPatterns;
+		long time;
+		int nodes;
+		int nodesDiscardedPotential;
+		int max_depth;
+		int solution_depth;
+		int boundary_max_size;
+		PartitionCache partitionCache = null;
+		if (Utilities.nativeEngine(args)) {
+			if (discTypeOption == DiscretizationTypeOption.COP || discTypeOption == DiscretizationTypeOption.PRE) {
+				throw new IllegalArgumentException(
+						discTypeOption + " discretization is only available with -ENGINE REALKD");
+			}
+			long codingStart = System.currentTimeMillis();
+			CodedTable codedTable = DataTableColumns.codedTable(dataWithPreDiscretizedAttributes, target - 1, maxBins,
+					numBinsTarget, sketch);
+			discretizationTime += System.currentTimeMillis() - codingStart;
+			FractionOfInformation evaluator = new FractionOfInformation(codedTable, target - 1,
+					new PartitionCache(Utilities.partitionCacheMB(args)));
+			partitionCache = evaluator.partitionCache();
+			BeamSearch search = new BeamSearch(evaluator);
+			search.topK(k);
+			search.beamWidth(beamWidth);
+			search.optimisticOption(OptimisticEstimator.valueOf(optOption.toString()));
+			search.refPropagationOption(BeamSearch.RefinementPropagation.valueOf(refOption.toString()));
+			search.threads(threads);
+			PrintStream progressStream = progress > 0 ? Utilities.progressStream(args) : null;
+			if (progressStream != null) {
+				search.progress(progressStream, progress);
+			}
+			try {
+				resultPatterns = search.call();
+			} finally {
+				if (progressStream != null && progressStream != System.err) {
+					progressStream.close();
+				}
+			}
+			time = search.runningTime();
+			nodes = search.nodesCreated();
+			nodesDiscardedPotential = search.nodesDiscarded();
+			max_depth = search.maxAttainedDepth();
+			solution_depth = search.bestDepth();
+			boundary_max_size = search.maxAttainedBoundarySize();
+		} else {
+			if (Utilities.sketchDiscretization(args)) {
+				throw new IllegalArgumentException("EF_SKETCH discretization is only available with -ENGINE NATIVE");
+			}
+			if (threads > 1) {
+				throw new IllegalArgumentException("Searching with more than one thread requires -ENGINE NATIVE");
+			}
+			if (progress > 0) {
+				throw new IllegalArgumentException("Progress reports require -ENGINE NATIVE");
+			}
+			workspace.add(dataWithPreDiscretizedAttributes);
+			BeamFunctionalPatternSearch functionalPatternSearch = new BeamFunctionalPatternSearch(workspace);
+
+			functionalPatternSearch.target(dataWithPreDiscretizedAttributes.attribute(target - 1));
+			functionalPatternSearch.topK(k);
+			functionalPatternSearch.beamWidth(beamWidth);
+			functionalPatternSearch.optimisticOption(optOption);
+			functionalPatternSearch.refPropagationOption(refOption);
+			functionalPatternSearch.maxBins(maxBins);
+			functionalPatternSearch.cutPointMultiplier(cutPointMultiplier);
+			functionalPatternSearch.discTypeOption(discTypeOption);
+
+			resultPatterns = functionalPatternSearch.call();
+			time = functionalPatternSearch.runningTime();
+			nodes = functionalPatternSearch.nodesCreated();
+			nodesDiscardedPotential = functionalPatternSearch.nodesDiscarded();
+			max_depth = functionalPatternSearch.maxAttainedDepth();
+			solution_depth = functionalPatternSearch.bestDepth();
+			boundary_max_size = functionalPatternSearch.maxAttainedBoundarySize();
+		}
 		System.out.println(time / 1000.0);
 
+		ResultsWriter results = new ResultsWriter(Utilities.format(args)).phase("load", loadTime)
+				.phase("discretization", discretizationTime).phase("search", time);
+		long writeStart = System.currentTimeMillis();
 		try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(experimentResultsFile))) {
 			writer.write("time: " + time / 1000);
 			writer.write("\n");
+			writer.write(results.phasesLine());
+			writer.write("\n");
 			writer.write("Search space: " + (Math.pow(2, dataTable.numberOfAttributes() - 1)));
 			writer.write("\n");
 			writer.write("Nodes created: " + nodes);
 			writer.write("\n");
+			if (threads > 1) {
+				writer.write("Threads: " + threads);
+				writer.write("\n");
+			}
 			writer.write("Nodes discarded potential: " + nodesDiscardedPotential);
 			writer.write("\n");
 			writer.write("Pruned search space percentage: "
@@ -138,12 +231,35 @@ public class FoBeam {
 			writer.write("\n");
 			writer.write("Max boundary size: " + boundary_max_size);
 			writer.write("\n");
+			if (partitionCache != null) {
+				writer.write("Partition cache size: " + partitionCache.size());
+				writer.write("\n");
+				writer.write("Partition cache hit rate: " + partitionCache.hitRate());
+				writer.write("\n");
+				writer.write("Partition cache evictions: " + partitionCache.evictions());
+				writer.write("\n");
+				writer.write("Partition cache bytes: " + partitionCache.bytes() + " (saved by compression: "
+						+ partitionCache.bytesSaved() + ")");
+				writer.write("\n");
+			}
+			if (sketch != null) {
+				writer.write(sketch.toString());
+				writer.write("\n");
+			}
 			writer.write("Dependencies: ");
 			writer.write("\n");
-			for (Pattern<?> pattern : resultPatterns) {
+			for (Object pattern : resultPatterns) {
 				writer.write(pattern.toString());
 				writer.write("\n");
 			}
 		}
+		results.phase("write", System.currentTimeMillis() - writeStart);
+		results.field("dataset", datasetName).field("algorithm", "BEAM")
+				.field("engine", Utilities.nativeEngine(args) ? "NATIVE" : "REALKD").field("k", k)
+				.field("beamWidth", beamWidth).field("nodesCreated", nodes)
+				.field("nodesDiscarded", nodesDiscardedPotential).field("maxDepth", max_depth)
+				.field("solutionDepth", solution_depth).field("maxBoundarySize", boundary_max_size);
+		results.write(experimentResultsFile, resultPatterns);
+		return experimentResultsFile;
 	}
 }
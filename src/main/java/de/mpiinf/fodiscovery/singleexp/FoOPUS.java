@@ -27,14 +27,30 @@ package de.mpiinf.fodiscovery.singleexp;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import de.mpiinf.fodiscovery.io.OPUSReport;
+import de.mpiinf.fodiscovery.io.ResultsWriter;
+import de.mpiinf.fodiscovery.scoring.CodedTable;
+import de.mpiinf.fodiscovery.scoring.FractionOfInformation;
+import de.mpiinf.fodiscovery.scoring.OptimisticEstimator;
+import de.mpiinf.fodiscovery.scoring.PartitionCache;
+import de.mpiinf.fodiscovery.scoring.SketchDiscretization;
+import de.mpiinf.fodiscovery.search.FunctionalDependency;
+import de.mpiinf.fodiscovery.search.OPUSSearch;
+import de.mpiinf.fodiscovery.search.ProgressiveSearch;
 import de.unibonn.realkd.algorithms.branchbound.OPUS.OperatorOrder;
 import de.unibonn.realkd.algorithms.branchbound.OPUS.TraverseOrder;
 import de.unibonn.realkd.algorithms.functional.OPUSFunctionalPatternSearch.DiscretizationTypeOption;
@@ -44,10 +60,11 @@ import de.unibonn.realkd.algorithms.functional.OPUSFunctionalPatternSearch.Optim
 import de.unibonn.realkd.common.workspace.Workspace;
 import de.unibonn.realkd.common.workspace.Workspaces;
 import de.unibonn.realkd.data.table.DataTable;
-import de.unibonn.realkd.data.table.DataTables;
-import de.unibonn.realkd.data.xarf.XarfImport;
-import de.unibonn.realkd.patterns.Pattern;
 import de.unibonn.realkd.patterns.functional.FunctionalPattern;
+import utils.DataTableCache;
+import utils.DataTableColumns;
+import utils.DiscretizedTableCache;
+import utils.IncrementalState;
 import utils.Utilities;
 
 /**
@@ -66,106 +83,566 @@ public class FoOPUS {
 	public static TraverseOrder traverseOption = TraverseOrder.BREADTHFSPOTENTIAL;
 
 	public static void main(String[] args) throws Exception {
+		DataTableCache dataTableCache = new DataTableCache(Utilities.cacheMB(args));
+		DiscretizedTableCache discretizedTableCache = new DiscretizedTableCache(dataTableCache,
+				Utilities.discCache(args));
+		run(args, dataTableCache, discretizedTableCache,
+				new SimpleDateFormat("dd.MM.yyyy.HH.mm.ss").format(new Date()));
+	}
+
+	/**
+	 * Searches the dependencies of the targets and writes the output files,
+	 * taking the parsed and discretized dataset from caches that may be shared
+	 * between runs
+	 * 
+	 * @param timeStamp
+	 *            the suffix of the output files
+	 * @return the text output file of every target, in the order of the
+	 *         targets
+	 */
+	public static List<String> run(String[] args, DataTableCache dataTableCache,
+			DiscretizedTableCache discretizedTableCache, String timeStamp) throws Exception {
 		String dataset = Utilities.dataset(args);
 		String outputFolder = Utilities.outputFolder(args);
-		int target = Utilities.target(args);
-		
+
+		Path pathToOutput = Paths.get(outputFolder);
+		if (!Files.exists(pathToOutput)) {
+			Files.createDirectories(pathToOutput);
+			System.out.println("Did not find the output folder. Created one instead.");
+		}
+
+		long loadStart = System.currentTimeMillis();
+		DataTable dataTable = dataTableCache.get(dataset);
+		long loadTime = System.currentTimeMillis() - loadStart;
+
+		int[] targets = Utilities.targets(args, dataTable.numberOfAttributes());
+		PrintStream progress = Utilities.progress(args) > 0 ? Utilities.progressStream(args) : null;
+		try {
+			if (targets.length == 1) {
+				search(args, dataset, dataTable, targets[0], discretizedTableCache, null, null,
+						Utilities.threads(args), progress, loadTime, 0, timeStamp);
+			} else {
+				searchTargets(args, dataset, dataTable, targets, discretizedTableCache, progress, loadTime,
+						timeStamp);
+			}
+		} finally {
+			if (progress != null && progress != System.err) {
+				progress.close();
+			}
+		}
+		List<String> outputFiles = new ArrayList<>(targets.length);
+		for (int target : targets) {
+			outputFiles.add(experimentResultsFile(args, dataTable.caption(), target, timeStamp));
+		}
+		return outputFiles;
+	}
+
+	/**
+	 * Searches every target with its own sequential search, running the
+	 * searches for -THREADS targets at a time. The dataset is parsed and its
+	 * descriptors are discretized once, and the partitions of attribute sets
+	 * are shared by all targets. Writes one output file per target and a
+	 * summary file.
+	 */
+	private static void searchTargets(String[] args, String dataset, DataTable dataTable, int[] targets,
+			DiscretizedTableCache discretizedTableCache, PrintStream progress, long loadTime, String timeStamp)
+			throws Exception {
+		if (!Utilities.nativeEngine(args)) {
+			throw new IllegalArgumentException("Searching more than one target requires -ENGINE NATIVE");
+		}
+		if (Utilities.checkpoint(args) > 0 || !Utilities.resume(args).isEmpty()) {
+			throw new IllegalArgumentException("Checkpoints require a single target");
+		}
+		if (!Utilities.state(args).isEmpty()) {
+			throw new IllegalArgumentException("An incremental state requires a single target");
+		}
+		long start = System.currentTimeMillis();
+		SketchDiscretization sketch = Utilities.sketchDiscretization(args)
+				? new SketchDiscretization(Utilities.sketchK(args), Utilities.threads(args))
+				: null;
+		CodedTable descriptors = DataTableColumns.codedTable(dataTable, -1, Utilities.maxBins(args),
+				Utilities.numBinsForTarget(args), sketch);
+		long descriptorsTime = System.currentTimeMillis() - start;
+		PartitionCache partitionCache = new PartitionCache(Utilities.partitionCacheMB(args));
+		int threads = Math.min(Utilities.threads(args), targets.length);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<String> summaries = new ArrayList<>();
+		try {
+			List<Future<String>> futures = new ArrayList<>();
+			for (int target : targets) {
+				futures.add(executor.submit(() -> search(args, dataset, dataTable, target, discretizedTableCache,
+						descriptors, partitionCache, 1, progress, loadTime, descriptorsTime, timeStamp)));
+			}
+			for (Future<String> future : futures) {
+				summaries.add(future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		long time = System.currentTimeMillis() - start;
+
+		String summaryFile = Utilities.outputFolder(args) + File.separator + dataTable.caption() + "_Targets="
+				+ targets.length + "_Alpha=" + Utilities.alphaName(args) + "_Topk=" + Utilities.numResults(args)
+				+ "_Opt=" + Utilities.optOPUS(args).toString() + "_L=" + Utilities.maxBins(args) + "_DiscType="
+				+ Utilities.discTypeName(args) + "_" + traverseOption.toString() + timeStamp
+				+ "_Summary.txt";
+		System.out.println(time / 1000.0);
+		try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(summaryFile))) {
+			writer.write("time: " + time / 1000);
+			writer.write("\n");
+			writer.write("Targets: " + targets.length);
+			writer.write("\n");
+			writer.write("Threads: " + threads);
+			writer.write("\n");
+			writer.write("Partition cache size: " + partitionCache.size());
+			writer.write("\n");
+			writer.write("Partition cache hit rate: " + partitionCache.hitRate());
+			writer.write("\n");
+			writer.write("Partition cache evictions: " + partitionCache.evictions());
+			writer.write("\n");
+			writer.write("Partition cache bytes: " + partitionCache.bytes() + " (saved by compression: "
+					+ partitionCache.bytesSaved() + ")");
+			writer.write("\n");
+			if (sketch != null) {
+				writer.write(sketch.toString());
+				writer.write("\n");
+			}
+			writer.write("Best dependency per target: ");
+			writer.write("\n");
+			for (String summary : summaries) {
+				writer.write(summary);
+				writer.write("\n");
+			}
+		}
+	}
+
+	/**
+	 * The text output file of a target
+	 */
+	private static String experimentResultsFile(String[] args, String datasetName, int target, String timeStamp) {
+		String outputFolder = Utilities.outputFolder(args);
+		int k = Utilities.numResults(args);
+		OptimisticEstimatorOption optOption = Utilities.optOPUS(args);
+		String alpha = Utilities.alphaName(args);
+		int maxBins = Utilities.maxBins(args);
+		int cutPointMultiplier = Utilities.cutPointMultiplier(args);
+		if (Utilities.discTypeOPUS(args) == DiscretizationTypeOption.COP) {
+			return outputFolder + File.separator + datasetName + "_Target=" + (target) + "_Alpha=" + (alpha)
+					+ "_Topk=" + k + "_Opt=" + optOption.toString() + "_L=" + maxBins + "_DiscType="
+					+ Utilities.discTypeName(args) + "_C=" + cutPointMultiplier + "_" + traverseOption.toString()
+					+ timeStamp + ".txt";
+		}
+		return outputFolder + File.separator + datasetName + "_Target=" + (target) + "_Alpha=" + (alpha) + "_Topk="
+				+ k + "_Opt=" + optOption.toString() + "_L=" + maxBins + "_DiscType=" + Utilities.discTypeName(args)
+				+ "_" + traverseOption.toString() + timeStamp + ".txt";
+	}
+
+	/**
+	 * Searches the dependencies of one target and writes its output file
+	 * 
+	 * @param target
+	 *            the index of the target, starting from 1
+	 * @param descriptors
+	 *            the coded table to take all attributes but the target from, or
+	 *            null to code the table for this target only
+	 * @param sharedPartitionCache
+	 *            the partition cache to use, or null for one of this search only
+	 * @param progress
+	 *            the stream to report the progress of the search to, or null
+	 * @param loadTime
+	 *            the milliseconds spent loading the dataset
+	 * @param descriptorsTime
+	 *            the milliseconds spent discretizing the descriptors, if they
+	 *            are given
+	 * @return a line with the target, the running time and the best dependency
+	 */
+	private static String search(String[] args, String dataset, DataTable dataTable, int target,
+			DiscretizedTableCache discretizedTableCache, CodedTable descriptors, PartitionCache sharedPartitionCache,
+			int threads, PrintStream progress, long loadTime, long descriptorsTime, String timeStamp)
+			throws Exception {
+		String outputFolder = Utilities.outputFolder(args);
 		int k = Utilities.numResults(args);
 		OptimisticEstimatorOption optOption = Utilities.optOPUS(args);
 		double alpha = Utilities.alpha(args);
+		double[] alphas = Utilities.alphas(args);
 		int maxBins = Utilities.maxBins(args);
 		int numBinsTarget = Utilities.numBinsForTarget(args);
 		int cutPointMultiplier = Utilities.cutPointMultiplier(args);
 		DiscretizationTypeOption discTypeOption = Utilities.discTypeOPUS(args);
 
-		Path pathToOutput = Paths.get(outputFolder);
-		if (!Files.exists(pathToOutput)) {
-			Files.createDirectory(pathToOutput);
-			System.out.println("Did not find the output folder. Created one instead.");
+		String datasetName = dataTable.caption();
+
+		String experimentResultsFile = experimentResultsFile(args, datasetName, target, timeStamp);
+
+		String state = Utilities.state(args);
+		String settings = "Target=" + target + "_Topk=" + k + "_Alpha=" + alpha + "_Opt=" + optOption + "_L=" + maxBins
+				+ "_NumBinsTarget=" + numBinsTarget + "_DiscType=" + Utilities.discTypeName(args);
+		String revalidation = null;
+		if (alphas.length > 1) {
+			if (!Utilities.nativeEngine(args)) {
+				throw new IllegalArgumentException("A list of alphas requires -ENGINE NATIVE");
+			}
+			if (threads > 1) {
+				throw new IllegalArgumentException("A list of alphas requires -THREADS 1");
+			}
+			if (Utilities.progressive(args).length > 0 || !Utilities.resume(args).isEmpty() || !state.isEmpty()) {
+				throw new IllegalArgumentException(
+						"A list of alphas cannot be combined with -PROGRESSIVE, -RESUME or -STATE");
+			}
 		}
-		String timeStamp = new SimpleDateFormat("dd.MM.yyyy.HH.mm.ss").format(new Date());
-
-		Workspace workspace = Workspaces.workspace();
-		XarfImport builder = XarfImport.xarfImport(dataset);
-		DataTable dataTable = builder.get();
-		
-		int numberOfAttrs=dataTable.numberOfAttributes();
-		if(target==0) {
-			target=numberOfAttrs;
-		}		
-		HashSet<Integer> targetToDiscretize=new HashSet<>();
-		targetToDiscretize.add(target-1);
-		DataTable dataWithPreDiscretizedAttributes = DataTables.preDiscretizeTable(dataTable,
-				DataTables.equalFrequencyDiscretization(numBinsTarget), targetToDiscretize);
-		workspace.add(dataWithPreDiscretizedAttributes);
-		OPUSFunctionalPatternSearch functionalPatternSearch = new OPUSFunctionalPatternSearch(workspace);
-
-
-		functionalPatternSearch.target(dataWithPreDiscretizedAttributes
-				.attribute(target-1));
-		functionalPatternSearch.topK(k);
-		functionalPatternSearch.alpha(alpha);
-		functionalPatternSearch.operatorOrder(operatorOrder);
-		functionalPatternSearch.languageOption(langOption);
-		functionalPatternSearch.optimisticOption(optOption);
-		functionalPatternSearch.traverseOrderOption(traverseOption);
-		functionalPatternSearch.maxBins(maxBins);
-		functionalPatternSearch.cutPointMultiplier(cutPointMultiplier);
-		functionalPatternSearch.discTypeOption(discTypeOption);
+		if (!state.isEmpty()) {
+			if (!Utilities.nativeEngine(args)) {
+				throw new IllegalArgumentException("An incremental state requires -ENGINE NATIVE");
+			}
+			if (Utilities.progressive(args).length > 0 || Utilities.timeout(args) > 0 || Utilities.checkpoint(args) > 0
+					|| !Utilities.resume(args).isEmpty() || Utilities.boundaryMB(args) > 0) {
+				throw new IllegalArgumentException("An incremental state cannot be combined with -PROGRESSIVE, "
+						+ "-TIMEOUT, -CHECKPOINT, -RESUME or -BOUNDARY_MB");
+			}
+		}
+		long stateTime = 0;
+		long stateBytes = 0;
+		int statePatterns = 0;
 
-		String datasetName = dataTable.caption();
+		SketchDiscretization sketch = Utilities.sketchDiscretization(args)
+				? new SketchDiscretization(Utilities.sketchK(args), threads)
+				: null;
 
-		String experimentResultsFile = null;
-		if (discTypeOption == DiscretizationTypeOption.COP) {
-			experimentResultsFile = outputFolder + File.separator + datasetName + "_Target=" + (target) + "_Alpha="
-					+ (alpha) + "_Topk=" + k + "_Opt=" + optOption.toString() + "_L=" + maxBins + "_DiscType="
-					+ discTypeOption.toString() + "_C=" + cutPointMultiplier + "_" + traverseOption.toString()
-					+ timeStamp + ".txt";
+		long discretizationStart = System.currentTimeMillis();
+		DataTable dataWithPreDiscretizedAttributes = discretizedTableCache.get(dataset, dataTable, target - 1,
+				numBinsTarget, sketch);
+		long discretizationTime = System.currentTimeMillis() - discretizationStart + descriptorsTime;
+
+		Collection<?> resultPatterns;
+		long time;
+		int nodes;
+		int nodesDiscardedPotential;
+		int nodesDiscardedPruning;
+		int max_depth;
+		int solution_depth;
+		int boundary_max_size;
+		PartitionCache partitionCache = null;
+		int[] nodesPerThread = null;
+		double cpuUtilization = 1;
+		long timeout = Utilities.timeout(args);
+		boolean timedOut = false;
+		double remainingBound = Double.NEGATIVE_INFINITY;
+		double effectiveAlpha = alpha;
+		long checkpoint = Utilities.checkpoint(args);
+		String resume = Utilities.resume(args);
+		String checkpointFile = null;
+		int checkpointsWritten = 0;
+		long checkpointBytes = 0;
+		long checkpointTime = 0;
+		long resumedTime = 0;
+		int boundaryMB = Utilities.boundaryMB(args);
+		int boundaryRuns = 0;
+		int boundaryMerges = 0;
+		long spilledNodes = 0;
+		long spilledBytes = 0;
+		double[] progressive = Utilities.progressive(args);
+		ProgressiveSearch progressiveSearch = null;
+		List<OPUSSearch.Guarantee> guarantees = null;
+		if (Utilities.nativeEngine(args)) {
+			if (discTypeOption == DiscretizationTypeOption.COP || discTypeOption == DiscretizationTypeOption.PRE) {
+				throw new IllegalArgumentException(
+						discTypeOption + " discretization is only available with -ENGINE REALKD");
+			}
+			long codingStart = System.currentTimeMillis();
+			CodedTable codedTable = descriptors == null
+					? DataTableColumns.codedTable(dataWithPreDiscretizedAttributes, target - 1, maxBins, numBinsTarget,
+							sketch)
+					: DataTableColumns.withTarget(descriptors, dataWithPreDiscretizedAttributes, target - 1);
+			discretizationTime += System.currentTimeMillis() - codingStart;
+			if (!state.isEmpty() && Files.exists(Paths.get(state))) {
+				IncrementalState incrementalState = null;
+				try {
+					incrementalState = IncrementalState.read(Paths.get(state));
+				} catch (IOException e) {
+					revalidation = "the state could not be read (" + e.getMessage() + ")";
+				}
+				if (incrementalState != null && !incrementalState.matches(settings)) {
+					revalidation = "the state was written with other arguments";
+				} else if (incrementalState != null) {
+					IncrementalState.Revalidation outcome = incrementalState.revalidate(dataTable, codedTable,
+							Utilities.revalidation(args));
+					if (outcome.holds()) {
+						stateBytes = incrementalState.write(Paths.get(state));
+						return revalidated(args, dataTable, target, experimentResultsFile, incrementalState, outcome,
+								stateBytes, loadTime, System.currentTimeMillis() - discretizationStart);
+					}
+					revalidation = outcome.reason();
+				}
+			}
+			if (progressive.length > 0) {
+				if (timeout > 0) {
+					throw new IllegalArgumentException("A timeout cannot be combined with -PROGRESSIVE");
+				}
+				if (checkpoint > 0 || !resume.isEmpty()) {
+					throw new IllegalArgumentException("Checkpoints cannot be combined with -PROGRESSIVE");
+				}
+				if (boundaryMB > 0) {
+					throw new IllegalArgumentException("A boundary budget cannot be combined with -PROGRESSIVE");
+				}
+				progressiveSearch = new ProgressiveSearch(codedTable, target - 1, progressive, Utilities.seed(args));
+				progressiveSearch.topK(k);
+				progressiveSearch.alpha(alpha);
+				progressiveSearch.optimisticOption(OptimisticEstimator.valueOf(optOption.toString()));
+				progressiveSearch.threads(threads);
+				progressiveSearch.partitionCacheMB(Utilities.partitionCacheMB(args));
+				progressiveSearch.stability(Utilities.stability(args));
+				progressiveSearch.stableStages(Utilities.stableStages(args));
+				if (progress != null) {
+					progressiveSearch.progress(progress, Utilities.progress(args));
+				}
+				resultPatterns = progressiveSearch.call();
+				partitionCache = progressiveSearch.partitionCache();
+				time = progressiveSearch.runningTime();
+				nodes = progressiveSearch.nodesCreated();
+				nodesDiscardedPotential = progressiveSearch.nodesDiscarded();
+				nodesDiscardedPruning = progressiveSearch.nodesDiscardedPruningRules();
+				max_depth = progressiveSearch.maxAttainedDepth();
+				solution_depth = progressiveSearch.bestDepth();
+				boundary_max_size = progressiveSearch.maxAttainedBoundarySize();
+			} else {
+				FractionOfInformation evaluator = new FractionOfInformation(codedTable, target - 1,
+						sharedPartitionCache == null ? new PartitionCache(Utilities.partitionCacheMB(args))
+								: sharedPartitionCache);
+				partitionCache = evaluator.partitionCache();
+				OPUSSearch search = new OPUSSearch(evaluator);
+				search.topK(k);
+				if (alphas.length > 1) {
+					search.alphas(alphas);
+				} else {
+					search.alpha(alpha);
+				}
+				search.optimisticOption(OptimisticEstimator.valueOf(optOption.toString()));
+				search.threads(threads);
+				search.timeout(timeout);
+				if (progress != null) {
+					search.progress(progress, Utilities.progress(args));
+				}
+				if (checkpoint > 0 || !resume.isEmpty()) {
+					if (threads > 1) {
+						throw new IllegalArgumentException("Checkpoints require -THREADS 1");
+					}
+					if (checkpoint > 0) {
+						checkpointFile = outputFolder + File.separator + datasetName + "_Target=" + target
+								+ "_Checkpoint.bin";
+						search.checkpoint(Paths.get(checkpointFile), checkpoint);
+					}
+					if (!resume.isEmpty()) {
+						search.resume(Paths.get(resume));
+					}
+				}
+				if (boundaryMB > 0) {
+					if (threads > 1) {
+						throw new IllegalArgumentException("A boundary budget requires -THREADS 1");
+					}
+					search.boundaryMB(boundaryMB, Paths.get(Utilities.spillDirectory(args)));
+				}
+				if (!state.isEmpty()) {
+					search.frontier(Utilities.frontier(args));
+				}
+				Collection<FunctionalDependency> dependencies = search.call();
+				resultPatterns = dependencies;
+				if (!state.isEmpty()) {
+					long stateStart = System.currentTimeMillis();
+					IncrementalState incrementalState = IncrementalState.of(settings, dataTable, codedTable, target - 1,
+							k, alpha, OptimisticEstimator.valueOf(optOption.toString()), dependencies,
+							search.frontier());
+					stateBytes = incrementalState.write(Paths.get(state));
+					statePatterns = incrementalState.numberOfPatterns();
+					stateTime = System.currentTimeMillis() - stateStart;
+				}
+				time = search.runningTime();
+				nodes = search.nodesCreated();
+				nodesDiscardedPotential = search.nodesDiscarded();
+				nodesDiscardedPruning = search.nodesDiscardedPruningRules();
+				max_depth = search.maxAttainedDepth();
+				solution_depth = search.bestDepth();
+				boundary_max_size = search.maxAttainedBoundarySize();
+				nodesPerThread = search.nodesCreatedPerThread();
+				cpuUtilization = search.cpuUtilization();
+				timedOut = search.timedOut();
+				remainingBound = search.remainingBound();
+				effectiveAlpha = search.effectiveAlpha();
+				checkpointsWritten = search.checkpointsWritten();
+				checkpointBytes = search.checkpointBytes();
+				checkpointTime = search.checkpointTime();
+				resumedTime = search.resumedTime();
+				boundaryRuns = search.boundaryRuns();
+				boundaryMerges = search.boundaryMerges();
+				spilledNodes = search.spilledNodes();
+				spilledBytes = search.spilledBytes();
+				if (alphas.length > 1) {
+					guarantees = search.guarantees();
+				}
+			}
 		} else {
-			experimentResultsFile = outputFolder + File.separator + datasetName + "_Target=" + (target) + "_Alpha="
-					+ (alpha) + "_Topk=" + k + "_Opt=" + optOption.toString() + "_L=" + maxBins + "_DiscType="
-					+ discTypeOption.toString() + "_" + traverseOption.toString()
-					+ timeStamp + ".txt";
-		}
+			if (Utilities.sketchDiscretization(args)) {
+				throw new IllegalArgumentException("EF_SKETCH discretization is only available with -ENGINE NATIVE");
+			}
+			if (threads > 1) {
+				throw new IllegalArgumentException("Searching with more than one thread requires -ENGINE NATIVE");
+			}
+			if (timeout > 0) {
+				throw new IllegalArgumentException("A timeout requires -ENGINE NATIVE");
+			}
+			if (progressive.length > 0) {
+				throw new IllegalArgumentException("Progressive search requires -ENGINE NATIVE");
+			}
+			if (checkpoint > 0 || !resume.isEmpty()) {
+				throw new IllegalArgumentException("Checkpoints require -ENGINE NATIVE");
+			}
+			if (boundaryMB > 0) {
+				throw new IllegalArgumentException("A boundary budget requires -ENGINE NATIVE");
+			}
+			if (progress != null) {
+				throw new IllegalArgumentException("Progress reports require -ENGINE NATIVE");
+			}
+			Workspace workspace = Workspaces.workspace();
+			workspace.add(dataWithPreDiscretizedAttributes);
+			OPUSFunctionalPatternSearch functionalPatternSearch = new OPUSFunctionalPatternSearch(workspace);
 
-		Collection<FunctionalPattern> resultPatterns = functionalPatternSearch.call();
-		long time = functionalPatternSearch.runningTime();
-		int nodes = functionalPatternSearch.nodesCreated();
-		int nodesDiscardedPotential = functionalPatternSearch.nodesDiscarded();
-		int nodesDiscardedPruning = functionalPatternSearch.nodesDiscardedPruningRules();
-		int max_depth = functionalPatternSearch.maxAttainedDepth();
-		int solution_depth = functionalPatternSearch.bestDepth();
-		int boundary_max_size = functionalPatternSearch.maxAttainedBoundarySize();
+
+			functionalPatternSearch.target(dataWithPreDiscretizedAttributes
+					.attribute(target-1));
+			functionalPatternSearch.topK(k);
+			functionalPatternSearch.alpha(alpha);
+			functionalPatternSearch.operatorOrder(operatorOrder);
+			functionalPatternSearch.languageOption(langOption);
+			functionalPatternSearch.optimisticOption(optOption);
+			functionalPatternSearch.traverseOrderOption(traverseOption);
+			functionalPatternSearch.maxBins(maxBins);
+			functionalPatternSearch.cutPointMultiplier(cutPointMultiplier);
+			functionalPatternSearch.discTypeOption(discTypeOption);
+
+			resultPatterns = functionalPatternSearch.call();
+			time = functionalPatternSearch.runningTime();
+			nodes = functionalPatternSearch.nodesCreated();
+			nodesDiscardedPotential = functionalPatternSearch.nodesDiscarded();
+			nodesDiscardedPruning = functionalPatternSearch.nodesDiscardedPruningRules();
+			max_depth = functionalPatternSearch.maxAttainedDepth();
+			solution_depth = functionalPatternSearch.bestDepth();
+			boundary_max_size = functionalPatternSearch.maxAttainedBoundarySize();
+		}
 		System.out.println(time / 1000.0);
+		OPUSReport report = new OPUSReport(dataTable.numberOfAttributes() - 1).alpha(alpha, effectiveAlpha)
+				.guarantees(Utilities.alphaName(args), alphas.length, guarantees)
+				.timeout(timeout, timedOut, remainingBound)
+				.boundary(boundaryMB, boundaryRuns, boundaryMerges, spilledNodes, spilledBytes)
+				.nodes(nodes, nodesDiscardedPotential, nodesDiscardedPruning)
+				.threads(threads, nodesPerThread, cpuUtilization)
+				.depths(max_depth, solution_depth, boundary_max_size).partitionCache(partitionCache);
+		ResultsWriter results = new ResultsWriter(Utilities.format(args)).phase("load", loadTime)
+				.phase("discretization", discretizationTime).phase("search", time);
+		if (!state.isEmpty()) {
+			results.phase("state", stateTime);
+		}
+		long writeStart = System.currentTimeMillis();
 		try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(experimentResultsFile))) {
 			writer.write("time: " + time / 1000);
 			writer.write("\n");
-			writer.write("Alpha used: " + alpha);
-			writer.write("\n");
-			writer.write("Search space: " + (Math.pow(2, dataTable.numberOfAttributes() - 1)));
+			writer.write(results.phasesLine());
 			writer.write("\n");
-			writer.write("Nodes created: " + nodes);
-			writer.write("\n");
-			writer.write("Nodes discarded potential: " + nodesDiscardedPotential);
+			report.writeAlphas(writer);
+			if (!resume.isEmpty()) {
+				writer.write("Resumed from: " + resume + " (after " + resumedTime / 1000.0 + " seconds)");
+				writer.write("\n");
+			}
+			if (checkpoint > 0) {
+				writer.write("Checkpoints: " + checkpointsWritten + " every " + checkpoint / 1000.0 + " seconds to "
+						+ checkpointFile + ", last " + checkpointBytes + " bytes, writing took " + checkpointTime / 1000.0
+						+ " seconds");
+				writer.write("\n");
+			}
+			if (!state.isEmpty()) {
+				if (revalidation != null) {
+					writer.write("Revalidation: " + revalidation + ", searched again");
+					writer.write("\n");
+				}
+				writer.write("Incremental state: " + state + ", " + statePatterns + " dependencies, " + stateBytes
+						+ " bytes, writing took " + stateTime / 1000.0 + " seconds");
+				writer.write("\n");
+			}
+			report.writeStatistics(writer);
+			if (sketch != null) {
+				writer.write(sketch.toString());
+				writer.write("\n");
+			}
+			if (progressiveSearch != null) {
+				List<ProgressiveSearch.Stage> stages = progressiveSearch.stages();
+				writer.write("Progressive stages: " + stages.size() + " of " + progressive.length
+						+ (progressiveSearch.stoppedEarly()
+								? ", stopped early, results rescored on all rows in "
+										+ progressiveSearch.rescoringTime() / 1000.0
+										+ " seconds, without a guarantee that they are the top-k of all rows"
+								: "")
+						+ " (stability " + Utilities.stability(args) + " for " + Utilities.stableStages(args) + " stage(s))");
+				writer.write("\n");
+				for (int stage = 0; stage < stages.size(); stage++) {
+					writer.write("Stage " + (stage + 1) + ": " + stages.get(stage));
+					writer.write("\n");
+				}
+			}
+			writer.write("Dependencies: ");
 			writer.write("\n");
-			writer.write("Nodes discarded rules: " + nodesDiscardedPruning);
+
+			for (Object pattern : resultPatterns) {
+				writer.write(pattern.toString());
+				writer.write("\n");
+			}
+		}
+		results.phase("write", System.currentTimeMillis() - writeStart);
+		report.fields(results, datasetName, Utilities.nativeEngine(args), k);
+		results.write(experimentResultsFile, resultPatterns);
+		return "Target=" + target + " (" + dataTable.attribute(target - 1).caption() + "), time: " + time / 1000.0
+				+ ", nodes created: " + nodes + ", best: "
+				+ (resultPatterns.isEmpty() ? "none" : resultPatterns.iterator().next().toString());
+	}
+
+	/**
+	 * Writes the output file of a top-k that still holds on the appended rows,
+	 * without searching again
+	 * 
+	 * @return a line with the target, the running time and the best dependency
+	 */
+	private static String revalidated(String[] args, DataTable dataTable, int target, String experimentResultsFile,
+			IncrementalState incrementalState, IncrementalState.Revalidation outcome, long stateBytes, long loadTime,
+			long time) throws IOException {
+		System.out.println(time / 1000.0);
+		ResultsWriter results = new ResultsWriter(Utilities.format(args)).phase("load", loadTime)
+				.phase("revalidation", time);
+		long writeStart = System.currentTimeMillis();
+		try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(experimentResultsFile))) {
+			writer.write("time: " + time / 1000);
 			writer.write("\n");
-			writer.write("Pruned search space percentage: "
-					+ (100 - (1.0 * 100 * nodes) / (Math.pow(2, dataTable.numberOfAttributes() - 1))));
+			writer.write(results.phasesLine());
 			writer.write("\n");
-			writer.write("Max depth: " + max_depth);
+			writer.write("Alpha used: " + Utilities.alpha(args));
 			writer.write("\n");
-			writer.write("Solution depth: " + solution_depth);
+			writer.write("Revalidation: " + outcome.appendedRows() + " appended rows, " + incrementalState.numberOfRows()
+					+ " in all, the top-k holds since " + outcome.reason()
+					+ (outcome.heuristic() ? " (heuristic, the nodes outside the frontier are not bounded)" : ""));
 			writer.write("\n");
-			writer.write("Max boundary size: " + boundary_max_size);
+			writer.write("Incremental state: " + Utilities.state(args) + ", " + incrementalState.numberOfPatterns()
+					+ " dependencies, " + stateBytes + " bytes");
 			writer.write("\n");
 			writer.write("Dependencies: ");
 			writer.write("\n");
-
-			for (Pattern<?> pattern : resultPatterns) {
-				writer.write(pattern.toString());
+			for (FunctionalDependency dependency : outcome.topK()) {
+				writer.write(dependency.toString());
 				writer.write("\n");
 			}
 		}
+		results.phase("write", System.currentTimeMillis() - writeStart);
+		results.field("dataset", dataTable.caption()).field("algorithm", "OPUS").field("engine", "NATIVE")
+				.field("k", Utilities.numResults(args)).field("alpha", Utilities.alpha(args))
+				.field("revalidated", true).field("appendedRows", outcome.appendedRows())
+				.field("revalidation", outcome.heuristic() ? "HEURISTIC" : "SOUND");
+		results.write(experimentResultsFile, outcome.topK());
+		return "Target=" + target + " (" + dataTable.attribute(target - 1).caption() + "), time: " + time / 1000.0
+				+ ", revalidated, best: " + (outcome.topK().isEmpty() ? "none" : outcome.topK().get(0).toString());
 	}
 }
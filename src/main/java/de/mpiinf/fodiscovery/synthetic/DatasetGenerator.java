@@ -0,0 +1,300 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.synthetic;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import de.mpiinf.fodiscovery.io.ColumnarFormat;
+import de.mpiinf.fodiscovery.io.ColumnarWriter;
+import utils.Utilities;
+
+/**
+ * A class for generating datasets with a planted functional dependency. Every
+ * descriptor takes one of cardinality levels uniformly at random. Categorical
+ * descriptors have the level as value, and numeric ones the level plus uniform
+ * noise within it, so that equal-frequency discretization into cardinality
+ * bins recovers the levels. The target, the last attribute, is categorical
+ * with cardinality values: the sum of the levels of the planted descriptors
+ * split into cardinality ranges, replaced by a random value in a noise fraction
+ * of the rows.
+ *
+ * The dataset is written as ARFF, CSV or in the binary columnar format,
+ * depending on the extension of the output file.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class DatasetGenerator {
+
+	public static final String TARGET = "Y";
+
+	private final String caption;
+
+	private final int rows;
+
+	private final int cardinality;
+
+	private final double noise;
+
+	private final String[] captions;
+
+	private final boolean[] categoric;
+
+	private final int[] dependency;
+
+	private final int[][] levels;
+
+	private final double[][] values;
+
+	/**
+	 * @param numberOfAttributes
+	 *            the number of attributes including the target
+	 * @param categoricFraction
+	 *            the fraction of the descriptors that are categorical
+	 * @param dependencySize
+	 *            the number of descriptors that determine the target
+	 */
+	public DatasetGenerator(String caption, int rows, int numberOfAttributes, double categoricFraction,
+			int cardinality, int dependencySize, double noise, long seed) {
+		int numberOfDescriptors = numberOfAttributes - 1;
+		if (dependencySize > numberOfDescriptors) {
+			throw new IllegalArgumentException("Illegal value for dependency size. Should be at most the number of descriptors");
+		}
+		this.caption = caption;
+		this.rows = rows;
+		this.cardinality = cardinality;
+		this.noise = noise;
+		Random random = new Random(seed);
+
+		this.captions = new String[numberOfAttributes];
+		this.categoric = new boolean[numberOfAttributes];
+		int numberOfCategoric = (int) Math.round(categoricFraction * numberOfDescriptors);
+		for (int column = 0; column < numberOfDescriptors; column++) {
+			captions[column] = "A" + (column + 1);
+			categoric[column] = column < numberOfCategoric;
+		}
+		captions[numberOfDescriptors] = TARGET;
+		categoric[numberOfDescriptors] = true;
+
+		// a random choice of descriptors, so that it mixes categorical and numeric ones
+		List<Integer> descriptors = new ArrayList<>();
+		for (int column = 0; column < numberOfDescriptors; column++) {
+			descriptors.add(column);
+		}
+		Collections.shuffle(descriptors, random);
+		this.dependency = new int[dependencySize];
+		for (int i = 0; i < dependencySize; i++) {
+			dependency[i] = descriptors.get(i);
+		}
+		Arrays.sort(dependency);
+
+		this.levels = new int[numberOfAttributes][rows];
+		this.values = new double[numberOfAttributes][];
+		for (int column = 0; column < numberOfDescriptors; column++) {
+			for (int row = 0; row < rows; row++) {
+				levels[column][row] = random.nextInt(cardinality);
+			}
+			if (!categoric[column]) {
+				values[column] = new double[rows];
+				for (int row = 0; row < rows; row++) {
+					// four decimals, so that text and binary files hold the same values
+					values[column][row] = Math.round((levels[column][row] + random.nextDouble()) * 1e4) / 1e4;
+				}
+			}
+		}
+		int maxSum = dependencySize * (cardinality - 1);
+		for (int row = 0; row < rows; row++) {
+			if (random.nextDouble() < noise) {
+				levels[numberOfDescriptors][row] = random.nextInt(cardinality);
+			} else {
+				int sum = 0;
+				for (int column : dependency) {
+					sum += levels[column][row];
+				}
+				levels[numberOfDescriptors][row] = (int) ((long) sum * cardinality / (maxSum + 1));
+			}
+		}
+	}
+
+	/**
+	 * A generator with the options -ROWS, -ATTRIBUTES, -CATEGORIC,
+	 * -CARDINALITY, -DEPENDENCY_SIZE, -NOISE and -SEED
+	 */
+	public static DatasetGenerator of(String caption, String args[]) {
+		return new DatasetGenerator(caption, Utilities.rows(args), Utilities.numberOfAttributes(args),
+				Utilities.categoric(args), Utilities.cardinality(args), Utilities.dependencySize(args),
+				Utilities.noise(args), Utilities.seed(args));
+	}
+
+	public int numberOfRows() {
+		return rows;
+	}
+
+	public int numberOfAttributes() {
+		return captions.length;
+	}
+
+	public int cardinality() {
+		return cardinality;
+	}
+
+	public double noise() {
+		return noise;
+	}
+
+	/**
+	 * The indices of the planted descriptors, starting from 0
+	 */
+	public int[] dependency() {
+		return dependency.clone();
+	}
+
+	/**
+	 * The captions of the planted descriptors
+	 */
+	public List<String> dependencyCaptions() {
+		List<String> dependencyCaptions = new ArrayList<>();
+		for (int column : dependency) {
+			dependencyCaptions.add(captions[column]);
+		}
+		return dependencyCaptions;
+	}
+
+	public int numberOfCategoric() {
+		int numberOfCategoric = 0;
+		for (int column = 0; column < captions.length - 1; column++) {
+			if (categoric[column]) {
+				numberOfCategoric++;
+			}
+		}
+		return numberOfCategoric;
+	}
+
+	/**
+	 * Writes the dataset as ARFF or CSV with header, or in the binary columnar
+	 * format if the file has the {@value ColumnarFormat#EXTENSION} extension
+	 */
+	public void write(String file) throws IOException {
+		Path path = Paths.get(file);
+		if (ColumnarFormat.isColumnar(file)) {
+			writeColumnar(path);
+		} else if (file.endsWith(".csv")) {
+			writeText(path, false);
+		} else if (file.endsWith(".arff")) {
+			writeText(path, true);
+		} else {
+			throw new IllegalArgumentException("Illegal dataset file " + file + ". Should end with .arff, .csv or "
+					+ ColumnarFormat.EXTENSION);
+		}
+	}
+
+	private String label(int column, int level) {
+		return (column == captions.length - 1 ? "y" : "v") + level;
+	}
+
+	private List<String> labels(int column) {
+		List<String> labels = new ArrayList<>(cardinality);
+		for (int level = 0; level < cardinality; level++) {
+			labels.add(label(column, level));
+		}
+		return labels;
+	}
+
+	private void writeText(Path path, boolean arff) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+			if (arff) {
+				writer.write("@relation " + caption);
+				writer.write("\n\n");
+				for (int column = 0; column < captions.length; column++) {
+					writer.write("@attribute " + captions[column] + " "
+							+ (categoric[column] ? "{" + String.join(",", labels(column)) + "}" : "numeric"));
+					writer.write("\n");
+				}
+				writer.write("\n@data\n");
+			} else {
+				writer.write(String.join(",", captions));
+				writer.write("\n");
+			}
+			StringBuilder line = new StringBuilder();
+			for (int row = 0; row < rows; row++) {
+				line.setLength(0);
+				for (int column = 0; column < captions.length; column++) {
+					if (column > 0) {
+						line.append(',');
+					}
+					if (categoric[column]) {
+						line.append(label(column, levels[column][row]));
+					} else {
+						line.append(values[column][row]);
+					}
+				}
+				line.append('\n');
+				writer.write(line.toString());
+			}
+		}
+	}
+
+	private void writeColumnar(Path path) throws IOException {
+		ColumnarWriter writer = new ColumnarWriter(caption, "", rows);
+		for (int column = 0; column < captions.length; column++) {
+			int[] columnLevels = levels[column];
+			double[] columnValues = values[column];
+			if (categoric[column]) {
+				writer.addCategoric(captions[column], "", labels(column), row -> columnLevels[row]);
+			} else {
+				writer.addNumeric(captions[column], "", row -> columnValues[row]);
+			}
+		}
+		writer.write(path);
+	}
+
+	public static void main(String[] args) throws Exception {
+		String output = Utilities.output(args);
+		if (output.isEmpty()) {
+			throw new IllegalStateException("Missing -OUTPUT");
+		}
+		String fileName = Paths.get(output).getFileName().toString();
+		String caption = fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+		DatasetGenerator generator = DatasetGenerator.of(caption, args);
+
+		long start = System.currentTimeMillis();
+		generator.write(output);
+		System.out.println("Wrote " + output + " (" + generator.numberOfRows() + " rows, "
+				+ generator.numberOfAttributes() + " attributes) in " + (System.currentTimeMillis() - start) / 1000.0
+				+ "s");
+		System.out.println("Planted dependency: " + generator.dependencyCaptions() + " -> " + TARGET);
+	}
+
+}
@@ -0,0 +1,211 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package de.mpiinf.fodiscovery.synthetic;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import de.mpiinf.fodiscovery.singleexp.FoBeam;
+import de.mpiinf.fodiscovery.singleexp.FoOPUS;
+import utils.Utilities;
+
+/**
+ * A class for scaling studies on generated datasets. For every combination of
+ * the comma-separated values of -ROWS, -ATTRIBUTES, -CATEGORIC, -CARDINALITY,
+ * -DEPENDENCY_SIZE and -NOISE, a dataset is generated and searched with FoOPUS
+ * and FoBeam for the top dependency. The time, the nodes created and whether
+ * the top dependency is the planted one, or contains it, are written to a CSV
+ * file, one line per search.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class ScalingSweep {
+
+	public static final String[] DIMENSIONS = { "-ROWS", "-ATTRIBUTES", "-CATEGORIC", "-CARDINALITY",
+			"-DEPENDENCY_SIZE", "-NOISE" };
+
+	public static final String[] ALGORITHMS = { "OPUS", "BEAM" };
+
+	public static void main(String[] args) throws Exception {
+		String outputFolder = Utilities.outputFolder(args);
+		String extension = "." + Utilities.datasetFormat(args);
+		String[] searchArgs = Utilities.searchArgs(args);
+		String[] algorithms = Utilities.values(args, "-ALGORITHMS");
+		if (algorithms.length == 0) {
+			algorithms = ALGORITHMS;
+		}
+		for (String algorithm : algorithms) {
+			if (!Arrays.asList(ALGORITHMS).contains(algorithm)) {
+				throw new IllegalArgumentException("Illegal value for algorithm. Should be OPUS or BEAM");
+			}
+		}
+
+		Path datasets = Paths.get(outputFolder, "datasets");
+		String timeStamp = new SimpleDateFormat("dd.MM.yyyy.HH.mm.ss").format(new Date());
+		Path runs = Paths.get(outputFolder, "runs" + timeStamp);
+		Files.createDirectories(datasets);
+		Files.createDirectories(runs);
+		String sweepFile = outputFolder + File.separator + "Sweep" + timeStamp + ".csv";
+
+		List<String[]> combinations = new ArrayList<>();
+		combinations(args, 0, new ArrayList<>(), combinations);
+		try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(sweepFile))) {
+			writer.write("rows,attributes,categoric,cardinality,dependencySize,noise,algorithm,time,nodesCreated,found,"
+					+ "containsPlanted,planted,best");
+			writer.write("\n");
+			for (String[] combination : combinations) {
+				String caption = "Synthetic" + String.join("", combination).replace("-", "_");
+				String[] generatorArgs = Arrays.copyOf(combination, combination.length + 2);
+				generatorArgs[combination.length] = "-SEED";
+				generatorArgs[combination.length + 1] = String.valueOf(Utilities.seed(args));
+				DatasetGenerator generator;
+				try {
+					generator = DatasetGenerator.of(caption, generatorArgs);
+				} catch (IllegalArgumentException e) {
+					System.out.println("Skipping " + String.join(" ", combination) + ": " + e.getMessage());
+					continue;
+				}
+				String dataset = datasets.resolve(caption + extension).toString();
+				generator.write(dataset);
+
+				for (String algorithm : algorithms) {
+					Path runFolder = runs.resolve(caption + "_" + algorithm);
+					Files.createDirectories(runFolder);
+					Run run = search(algorithm, dataset, runFolder, generator.cardinality(), searchArgs);
+					boolean found = run.best.equals(new HashSet<>(generator.dependencyCaptions()));
+					boolean containsPlanted = run.best.containsAll(generator.dependencyCaptions());
+					String line = generator.numberOfRows() + "," + generator.numberOfAttributes() + ","
+							+ generator.numberOfCategoric() + "," + generator.cardinality() + ","
+							+ generator.dependencyCaptions().size() + "," + generator.noise() + "," + algorithm + ","
+							+ run.time / 1000.0 + "," + run.nodesCreated + "," + found + "," + containsPlanted + ","
+							+ String.join(" ", generator.dependencyCaptions()) + "," + String.join(" ", run.best);
+					System.out.println(line);
+					writer.write(line);
+					writer.write("\n");
+					writer.flush();
+				}
+			}
+		}
+		System.out.println("Wrote " + sweepFile);
+	}
+
+	/**
+	 * Adds the arguments of every combination of the values of the dimensions
+	 * from the given one on. Dimensions without values keep their default.
+	 */
+	private static void combinations(String[] args, int dimension, List<String> prefix, List<String[]> combinations) {
+		if (dimension == DIMENSIONS.length) {
+			combinations.add(prefix.toArray(new String[0]));
+			return;
+		}
+		String[] values = Utilities.values(args, DIMENSIONS[dimension]);
+		if (values.length == 0) {
+			combinations(args, dimension + 1, prefix, combinations);
+			return;
+		}
+		for (String value : values) {
+			prefix.add(DIMENSIONS[dimension]);
+			prefix.add(value.trim());
+			combinations(args, dimension + 1, prefix, combinations);
+			prefix.remove(prefix.size() - 1);
+			prefix.remove(prefix.size() - 1);
+		}
+	}
+
+	private static class Run {
+		private long time;
+		private long nodesCreated;
+		private HashSet<String> best = new HashSet<>();
+	}
+
+	/**
+	 * Searches the dataset for its top dependency, with the search arguments
+	 * before the ones of the sweep so that they take precedence, and reads the
+	 * nodes created and the top dependency from the output file, the only one
+	 * in the run folder. The time is the wall-clock time of the whole run,
+	 * including loading the dataset.
+	 */
+	private static Run search(String algorithm, String dataset, Path runFolder, int cardinality, String[] searchArgs)
+			throws Exception {
+		List<String> arguments = new ArrayList<>(Arrays.asList(searchArgs));
+		arguments.addAll(Arrays.asList("-DATASET", dataset, "-OUTPUTFOLDER", runFolder.toString(), "-K", "1", "-L",
+				String.valueOf(cardinality)));
+		String[] searchArguments = arguments.toArray(new String[0]);
+
+		Run run = new Run();
+		long start = System.currentTimeMillis();
+		if (algorithm.equals("OPUS")) {
+			FoOPUS.main(searchArguments);
+		} else {
+			FoBeam.main(searchArguments);
+		}
+		run.time = System.currentTimeMillis() - start;
+
+		Path output;
+		try (Stream<Path> files = Files.list(runFolder)) {
+			output = files.filter(file -> file.toString().endsWith(".txt")).findFirst().orElse(null);
+		}
+		if (output == null) {
+			throw new IOException("No output file in " + runFolder);
+		}
+		List<String> lines = Files.readAllLines(output);
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i);
+			if (line.startsWith("Nodes created: ")) {
+				run.nodesCreated = Long.parseLong(line.substring("Nodes created: ".length()).trim());
+			} else if (line.startsWith("Dependencies:") && i + 1 < lines.size()) {
+				run.best.addAll(descriptors(lines.get(i + 1)));
+			}
+		}
+		return run;
+	}
+
+	/**
+	 * The descriptor captions of a dependency as written to an output file,
+	 * e.g. FunctionalDependency(([A1, A4],[Y]), ...)
+	 */
+	static List<String> descriptors(String dependency) {
+		int start = dependency.indexOf("([");
+		int end = dependency.indexOf("],[", start);
+		if (start < 0 || end < 0 || end == start + 2) {
+			return new ArrayList<>();
+		}
+		return Arrays.asList(dependency.substring(start + 2, end).split(", "));
+	}
+
+}
@@ -0,0 +1,213 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package utils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import de.mpiinf.fodiscovery.io.ColumnarFile;
+import de.mpiinf.fodiscovery.io.ColumnarFormat;
+import de.unibonn.realkd.data.table.DataTable;
+import de.unibonn.realkd.data.xarf.XarfImport;
+
+/**
+ * A cache of parsed datasets, so that experiments on the same file parse it
+ * only once. Entries are keyed by the absolute path and the modification time
+ * of the file, and the least recently used ones are evicted when the estimated
+ * heap size of the cached tables exceeds the budget. Tables are shared between
+ * experiments and must not be modified.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class DataTableCache {
+
+	// rough heap cost of one cell of a parsed table (reference plus boxed value)
+	private static final long BYTES_PER_CELL = 24;
+
+	private final long budgetBytes;
+
+	private final LinkedHashMap<String, Entry> tables = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long usedBytes = 0;
+
+	private int hits = 0;
+
+	private int misses = 0;
+
+	private int evictions = 0;
+
+	private static class Entry {
+		private final Path path;
+		private final long modified;
+		private final FutureTask<DataTable> table;
+		private long bytes = 0;
+
+		private Entry(Path path, long modified, FutureTask<DataTable> table) {
+			this.path = path;
+			this.modified = modified;
+			this.table = table;
+		}
+	}
+
+	/**
+	 * @param budgetMB
+	 *            the heap budget of the cache in megabytes, 0 disables caching
+	 */
+	public DataTableCache(int budgetMB) {
+		this.budgetBytes = budgetMB * 1024L * 1024L;
+	}
+
+	/**
+	 * Returns the parsed table of the dataset, parsing the file only if it is not
+	 * in the cache or has been modified since it was parsed. Concurrent requests
+	 * for the same file wait for a single parse.
+	 */
+	public DataTable get(String dataset) throws Exception {
+		return get(dataset, "", () -> parse(dataset));
+	}
+
+	/**
+	 * Parses a dataset, memory-mapping it if it is in the binary columnar format
+	 * and through XarfImport otherwise
+	 */
+	public static DataTable parse(String dataset) throws Exception {
+		if (ColumnarFormat.isColumnar(dataset)) {
+			return ColumnarFile.load(dataset);
+		}
+		XarfImport builder = XarfImport.xarfImport(dataset);
+		return builder.get();
+	}
+
+	/**
+	 * Returns a table derived from the dataset, e.g. a discretized version,
+	 * computing it with the loader only if it is not in the cache under the
+	 * given variant or the file has been modified since. Derived tables share
+	 * the heap budget with the parsed ones, but only the parsed ones count as
+	 * hits and misses.
+	 */
+	public DataTable get(String dataset, String variant, Callable<DataTable> loader) throws Exception {
+		Path path = Paths.get(dataset).toAbsolutePath().normalize();
+		long modified = Files.getLastModifiedTime(path).toMillis();
+		String key = path.toString() + "@" + modified + "#" + variant;
+		Entry entry;
+		boolean parse = false;
+		synchronized (this) {
+			entry = tables.get(key);
+			if (variant.isEmpty()) {
+				if (entry != null) {
+					hits++;
+				} else {
+					misses++;
+				}
+			}
+			if (entry == null) {
+				removeStale(path, modified);
+				entry = new Entry(path, modified, new FutureTask<>(loader));
+				tables.put(key, entry);
+				parse = true;
+			}
+		}
+		if (parse) {
+			entry.table.run();
+		}
+		DataTable dataTable;
+		try {
+			dataTable = entry.table.get();
+		} catch (ExecutionException e) {
+			synchronized (this) {
+				tables.remove(key, entry);
+			}
+			throw e;
+		}
+		if (parse) {
+			synchronized (this) {
+				if (tables.get(key) == entry) {
+					entry.bytes = BYTES_PER_CELL * dataTable.population().size() * dataTable.numberOfAttributes();
+					usedBytes += entry.bytes;
+					evict(key);
+				}
+			}
+		}
+		return dataTable;
+	}
+
+	private void removeStale(Path path, long modified) {
+		Iterator<Entry> it = tables.values().iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			if (entry.path.equals(path) && entry.modified != modified) {
+				usedBytes -= entry.bytes;
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Evicts least recently used tables until the budget is met. The table that
+	 * was just parsed is evicted last, and only if it alone exceeds the budget.
+	 */
+	private void evict(String justParsed) {
+		Iterator<Map.Entry<String, Entry>> it = tables.entrySet().iterator();
+		while (usedBytes > budgetBytes && it.hasNext()) {
+			Map.Entry<String, Entry> next = it.next();
+			if (!next.getKey().equals(justParsed) && next.getValue().table.isDone()) {
+				usedBytes -= next.getValue().bytes;
+				it.remove();
+				evictions++;
+			}
+		}
+		if (usedBytes > budgetBytes) {
+			usedBytes -= tables.remove(justParsed).bytes;
+			evictions++;
+		}
+	}
+
+	public synchronized int hits() {
+		return hits;
+	}
+
+	public synchronized int misses() {
+		return misses;
+	}
+
+	public synchronized int evictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Dataset cache: hits " + hits + ", misses " + misses + ", evictions " + evictions + ", cached "
+				+ tables.size() + " (" + usedBytes / (1024 * 1024) + " of " + budgetBytes / (1024 * 1024) + " MB)";
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.mpiinf.fodiscovery.scoring.CodedTable;
+import de.mpiinf.fodiscovery.scoring.EqualFrequency;
+import de.mpiinf.fodiscovery.scoring.SketchDiscretization;
+import de.unibonn.realkd.common.base.Identifier;
+import de.unibonn.realkd.data.table.DataTable;
+import de.unibonn.realkd.data.table.DataTables;
+import de.unibonn.realkd.data.table.attribute.Attribute;
+import de.unibonn.realkd.data.table.attribute.Attributes;
+import de.unibonn.realkd.data.table.attribute.MetricAttribute;
+
+/**
+ * A class to provide functions for reading and replacing columns of a data
+ * table as integer codes
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class DataTableColumns {
+
+	public static final int MISSING = -1;
+
+	/**
+	 * Encodes the values of a column as codes 0..labels.size()-1, in the order of
+	 * first appearance, with MISSING for missing values
+	 *
+	 * @param labels
+	 *            an empty list that receives the string label of every code
+	 */
+	public static int[] codes(DataTable dataTable, int column, List<String> labels) {
+		Attribute<?> attribute = dataTable.attribute(column);
+		int size = dataTable.population().size();
+		int[] codes = new int[size];
+		Map<String, Integer> codeOfLabel = new HashMap<>();
+		for (int row = 0; row < size; row++) {
+			if (attribute.valueMissing(row)) {
+				codes[row] = MISSING;
+				continue;
+			}
+			String label = String.valueOf(attribute.value(row));
+			Integer code = codeOfLabel.get(label);
+			if (code == null) {
+				code = labels.size();
+				codeOfLabel.put(label, code);
+				labels.add(label);
+			}
+			codes[row] = code;
+		}
+		return codes;
+	}
+
+	/**
+	 * Returns a table with the same population and attributes, except that the
+	 * given column is replaced by a categorical attribute with the given codes
+	 */
+	public static DataTable withCategoricColumn(DataTable dataTable, int column, List<String> labels, int[] codes) {
+		Attribute<?> attribute = dataTable.attribute(column);
+		List<String> values = new ArrayList<>(codes.length);
+		for (int code : codes) {
+			values.add(code == MISSING ? null : labels.get(code));
+		}
+		List<Attribute<?>> attributes = new ArrayList<>(dataTable.attributes());
+		attributes.set(column, Attributes.categoricalAttribute(identifier(attribute.caption()), attribute.caption(),
+				attribute.description(), values, String.class));
+		return DataTables.table(identifier(dataTable.caption()), dataTable.caption(), dataTable.description(),
+				dataTable.population(), attributes);
+	}
+
+	/**
+	 * Encodes every attribute of a table as integer codes. Metric attributes are
+	 * discretized into equal-frequency bins, numBinsTarget for the target and
+	 * maxBins for all others, and missing values get a code of their own.
+	 *
+	 * @param target
+	 *            the index of the target attribute, starting from 0, or -1 to
+	 *            discretize all attributes into maxBins bins
+	 */
+	public static CodedTable codedTable(DataTable dataTable, int target, int maxBins, int numBinsTarget) {
+		return codedTable(dataTable, target, maxBins, numBinsTarget, null);
+	}
+
+	/**
+	 * Encodes every attribute of a table as integer codes, like
+	 * {@link #codedTable(DataTable, int, int, int)}
+	 *
+	 * @param sketch
+	 *            the discretization to pick the cut points of metric
+	 *            attributes from quantile sketches with, or null to pick them
+	 *            from the sorted values
+	 */
+	public static CodedTable codedTable(DataTable dataTable, int target, int maxBins, int numBinsTarget,
+			SketchDiscretization sketch) {
+		int size = dataTable.population().size();
+		int numberOfAttributes = dataTable.numberOfAttributes();
+		String[] captions = new String[numberOfAttributes];
+		int[][] codes = new int[numberOfAttributes][];
+		int[] cardinalities = new int[numberOfAttributes];
+		for (int column = 0; column < numberOfAttributes; column++) {
+			Attribute<?> attribute = dataTable.attribute(column);
+			captions[column] = attribute.caption();
+			if (attribute instanceof MetricAttribute) {
+				MetricAttribute metric = (MetricAttribute) attribute;
+				codes[column] = new int[size];
+				int numBins = column == target ? numBinsTarget : maxBins;
+				if (sketch != null) {
+					// the sketch reads the attribute itself instead of a copy
+					cardinalities[column] = sketch.discretize(captions[column], size,
+							row -> metric.valueMissing(row) ? Double.NaN : metric.value(row), numBins, codes[column]);
+				} else {
+					double[] values = new double[size];
+					for (int row = 0; row < size; row++) {
+						values[row] = metric.valueMissing(row) ? Double.NaN : metric.value(row);
+					}
+					cardinalities[column] = EqualFrequency.discretize(values, numBins, codes[column]);
+				}
+			} else {
+				List<String> labels = new ArrayList<>();
+				codes[column] = codes(dataTable, column, labels);
+				cardinalities[column] = missingAsCode(codes[column], labels.size());
+			}
+		}
+		return new CodedTable(dataTable.caption(), captions, codes, cardinalities);
+	}
+
+	/**
+	 * Returns the coded table with the target replaced by the codes of the
+	 * pre-discretized target of the given table, so that tables for different
+	 * targets share the codes of all other attributes
+	 *
+	 * @param target
+	 *            the index of the target attribute, starting from 0
+	 */
+	public static CodedTable withTarget(CodedTable codedTable, DataTable dataWithPreDiscretizedAttributes, int target) {
+		List<String> labels = new ArrayList<>();
+		int[] codes = codes(dataWithPreDiscretizedAttributes, target, labels);
+		return codedTable.withAttribute(target, codes, missingAsCode(codes, labels.size()));
+	}
+
+	/**
+	 * Replaces MISSING by a code of its own and returns the resulting number of
+	 * codes
+	 */
+	private static int missingAsCode(int[] codes, int numberOfLabels) {
+		int cardinality = numberOfLabels;
+		for (int row = 0; row < codes.length; row++) {
+			if (codes[row] == MISSING) {
+				codes[row] = numberOfLabels;
+				cardinality = numberOfLabels + 1;
+			}
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Identifiers only allow letters, digits and underscores
+	 */
+	public static Identifier identifier(String caption) {
+		String id = caption.replaceAll("[^A-Za-z0-9_]", "_");
+		if (id.isEmpty() || Character.isDigit(id.charAt(0))) {
+			id = "_" + id;
+		}
+		return Identifier.identifier(id);
+	}
+
+}
@@ -0,0 +1,278 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.mpiinf.fodiscovery.scoring.EqualFrequency;
+import de.mpiinf.fodiscovery.scoring.SketchDiscretization;
+import de.unibonn.realkd.data.table.DataTable;
+import de.unibonn.realkd.data.table.DataTables;
+import de.unibonn.realkd.data.table.attribute.Attribute;
+import de.unibonn.realkd.data.table.attribute.MetricAttribute;
+
+/**
+ * A cache of tables whose target has been pre-discretized with equal-frequency
+ * discretization, keyed by dataset (path and modification time), target index,
+ * number of target bins and the sketch size if the cut points come from a
+ * sketch. Within one JVM the tables are kept in the given dataset cache. If a
+ * folder is given, the discretized target is also written there, so that
+ * later runs on the same file skip sorting the target. A metric target is
+ * always rebuilt from its codes and labels, on a miss as on a disk hit, so
+ * that every run gets the same categoric attribute with its categories in the
+ * same order. A categoric target is not discretized and not kept. With a
+ * sketch, the drift of the target is kept too and recorded in the sketch on a
+ * hit, from memory or disk, so that it is reported like that of a cold run.
+ *
+ * @author Panagiotis Mandros
+ *
+ */
+public class DiscretizedTableCache {
+
+	private static final int MAGIC = 0x46444954;
+
+	private final DataTableCache dataTableCache;
+
+	private final Path folder;
+
+	private int lookups = 0;
+
+	private int misses = 0;
+
+	private int diskHits = 0;
+
+	/**
+	 * The drift of every target discretized with a sketch, by dataset and
+	 * variant of the table
+	 */
+	private final Map<String, Double> drifts = new ConcurrentHashMap<>();
+
+	/**
+	 * @param folder
+	 *            the folder to persist discretized targets to, or empty to keep
+	 *            them in memory only
+	 */
+	public DiscretizedTableCache(DataTableCache dataTableCache, String folder) throws IOException {
+		this.dataTableCache = dataTableCache;
+		if (folder.isEmpty()) {
+			this.folder = null;
+		} else {
+			this.folder = Paths.get(folder);
+			Files.createDirectories(this.folder);
+		}
+	}
+
+	/**
+	 * Returns the dataset with the target pre-discretized into numBinsTarget
+	 * equal-frequency bins
+	 *
+	 * @param dataTable
+	 *            the parsed dataset, discretized on a miss
+	 * @param target
+	 *            the index of the target attribute, starting from 0
+	 */
+	public DataTable get(String dataset, DataTable dataTable, int target, int numBinsTarget) throws Exception {
+		return get(dataset, dataTable, target, numBinsTarget, null);
+	}
+
+	/**
+	 * Returns the dataset with the target pre-discretized, like
+	 * {@link #get(String, DataTable, int, int)}
+	 *
+	 * @param sketch
+	 *            the discretization to pick the cut points of a metric target
+	 *            from a quantile sketch with, or null to pick them from the
+	 *            sorted values
+	 */
+	public DataTable get(String dataset, DataTable dataTable, int target, int numBinsTarget,
+			SketchDiscretization sketch) throws Exception {
+		synchronized (this) {
+			lookups++;
+		}
+		String variant = sketch == null ? "" : "_SketchK=" + sketch.k();
+		String name = "Target=" + target + "_Bins=" + numBinsTarget + variant;
+		DataTable dataWithPreDiscretizedAttributes = dataTableCache.get(dataset, name,
+				() -> discretize(dataset, dataTable, target, numBinsTarget, sketch, variant));
+		Double drift = drifts.get(dataset + "#" + name);
+		if (sketch != null && drift != null) {
+			sketch.drift(dataTable.attribute(target).caption(), drift);
+		}
+		return dataWithPreDiscretizedAttributes;
+	}
+
+	private DataTable discretize(String dataset, DataTable dataTable, int target, int numBinsTarget,
+			SketchDiscretization sketch, String variant) throws Exception {
+		synchronized (this) {
+			misses++;
+		}
+		DataTable dataWithPreDiscretizedAttributes = discretizeOrRead(dataset, dataTable, target, numBinsTarget,
+				sketch, variant);
+		double drift = sketch == null ? Double.NaN : sketch.drift(dataTable.attribute(target).caption());
+		if (!Double.isNaN(drift)) {
+			drifts.put(dataset + "#Target=" + target + "_Bins=" + numBinsTarget + variant, drift);
+		}
+		return dataWithPreDiscretizedAttributes;
+	}
+
+	private DataTable discretizeOrRead(String dataset, DataTable dataTable, int target, int numBinsTarget,
+			SketchDiscretization sketch, String variant) throws Exception {
+		Path path = Paths.get(dataset).toAbsolutePath().normalize();
+		String key = path.toString() + "@" + Files.getLastModifiedTime(path).toMillis() + "#" + target + "#"
+				+ numBinsTarget + variant;
+		Attribute<?> attribute = dataTable.attribute(target);
+		if (!(attribute instanceof MetricAttribute)) {
+			// a categoric target is left as it is, so there is nothing to keep
+			HashSet<Integer> targetToDiscretize = new HashSet<>();
+			targetToDiscretize.add(target);
+			return DataTables.preDiscretizeTable(dataTable, DataTables.equalFrequencyDiscretization(numBinsTarget),
+					targetToDiscretize);
+		}
+		Path file = null;
+		if (folder != null) {
+			file = folder.resolve(path.getFileName() + "_" + Integer.toHexString(path.toString().hashCode())
+					+ "_Target=" + (target + 1) + "_Bins=" + numBinsTarget + variant + ".disc");
+			DataTable persisted = read(file, key, dataTable, target, sketch);
+			if (persisted != null) {
+				synchronized (this) {
+					diskHits++;
+				}
+				return persisted;
+			}
+		}
+
+		if (sketch != null) {
+			MetricAttribute metric = (MetricAttribute) attribute;
+			// the sketch reads the attribute itself instead of a copy
+			int size = dataTable.population().size();
+			double[] cutPoints = sketch.cutPoints(attribute.caption(), size,
+					row -> metric.valueMissing(row) ? Double.NaN : metric.value(row), numBinsTarget);
+			int[] codes = new int[size];
+			for (int row = 0; row < size; row++) {
+				codes[row] = metric.valueMissing(row) ? DataTableColumns.MISSING
+						: EqualFrequency.bin(metric.value(row), cutPoints);
+			}
+			DataTable dataWithPreDiscretizedAttributes = DataTableColumns.withCategoricColumn(dataTable, target,
+					EqualFrequency.labels(cutPoints), codes);
+			if (file != null) {
+				write(file, key, EqualFrequency.labels(cutPoints), codes, sketch.drift(attribute.caption()));
+			}
+			return dataWithPreDiscretizedAttributes;
+		}
+
+		HashSet<Integer> targetToDiscretize = new HashSet<>();
+		targetToDiscretize.add(target);
+		DataTable discretizedByRealKD = DataTables.preDiscretizeTable(dataTable,
+				DataTables.equalFrequencyDiscretization(numBinsTarget), targetToDiscretize);
+		// the target is rebuilt from its codes and labels as when it is read
+		// from disk, so that a cold run and a cached one get the same attribute
+		List<String> labels = new ArrayList<>();
+		int[] codes = DataTableColumns.codes(discretizedByRealKD, target, labels);
+		DataTable dataWithPreDiscretizedAttributes = DataTableColumns.withCategoricColumn(dataTable, target, labels,
+				codes);
+		if (file != null) {
+			write(file, key, labels, codes, Double.NaN);
+		}
+		return dataWithPreDiscretizedAttributes;
+	}
+
+	/**
+	 * @param sketch
+	 *            the sketch to record the drift of the target in, or null
+	 */
+	private static DataTable read(Path file, String key, DataTable dataTable, int target,
+			SketchDiscretization sketch) throws IOException {
+		if (!Files.exists(file)) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || !in.readUTF().equals(key)) {
+				return null;
+			}
+			double drift = in.readDouble();
+			int numberOfLabels = in.readInt();
+			List<String> labels = new ArrayList<>(numberOfLabels);
+			for (int i = 0; i < numberOfLabels; i++) {
+				labels.add(in.readUTF());
+			}
+			int[] codes = new int[in.readInt()];
+			if (codes.length != dataTable.population().size()) {
+				return null;
+			}
+			for (int row = 0; row < codes.length; row++) {
+				codes[row] = in.readInt();
+			}
+			if (sketch != null && !Double.isNaN(drift)) {
+				sketch.drift(dataTable.attribute(target).caption(), drift);
+			}
+			return DataTableColumns.withCategoricColumn(dataTable, target, labels, codes);
+		}
+	}
+
+	/**
+	 * Writes to a temporary file first, so that concurrent runs never read a
+	 * partially written one
+	 * 
+	 * @param drift
+	 *            the drift of a target discretized with a sketch, or NaN
+	 */
+	private static void write(Path file, String key, List<String> labels, int[] codes, double drift)
+			throws IOException {
+		Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			out.writeInt(MAGIC);
+			out.writeUTF(key);
+			out.writeDouble(drift);
+			out.writeInt(labels.size());
+			for (String label : labels) {
+				out.writeUTF(label);
+			}
+			out.writeInt(codes.length);
+			for (int code : codes) {
+				out.writeInt(code);
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Target discretization cache: hits " + (lookups - misses) + ", misses " + misses + " (" + diskHits
+				+ " read from disk)";
+	}
+}
@@ -0,0 +1,707 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2014-16 The Contributors of the realKD Project
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.mpiinf.fodiscovery.scoring.CodedTable;
+import de.mpiinf.fodiscovery.scoring.ContingencyTable;
+import de.mpiinf.fodiscovery.scoring.EqualFrequency;
+import de.mpiinf.fodiscovery.scoring.Evaluation;
+import de.mpiinf.fodiscovery.scoring.ExpectedMutualInformation;
+import de.mpiinf.fodiscovery.scoring.FractionOfInformation;
+import de.mpiinf.fodiscovery.scoring.OptimisticEstimator;
+import de.mpiinf.fodiscovery.search.Frontier;
+import de.mpiinf.fodiscovery.search.FunctionalDependency;
+import de.unibonn.realkd.data.table.DataTable;
+import de.unibonn.realkd.data.table.attribute.Attribute;
+import de.unibonn.realkd.data.table.attribute.MetricAttribute;
+
+/**
+ * A class for checking the top-k of an OPUS search again after rows are
+ * appended to its dataset, without searching again. It keeps the contingency
+ * tables of the top-k and of the frontier of the search, i.e., the nodes that
+ * came closest to changing the top-k, and the coding of every attribute, so
+ * that appended rows are coded like the others. Appended rows only update the
+ * counts, and the dependencies are scored again exactly.
+ * 
+ * The top-k still holds if no expanded node of the frontier scores above the
+ * new k-th best score, no pruned node would escape pruning, and the nodes
+ * outside the frontier stay below it. Their relevance is only known up to the
+ * bound of the frontier from the last search, which does not bound it on the
+ * appended rows: the expected mutual information of a node depends on its own
+ * marginals, which are not kept. A {@link Mode#SOUND} check therefore only
+ * holds if the frontier kept every node of the search, which is why a search
+ * with the default mode keeps an unbounded frontier: the state grows with the
+ * number of nodes evaluated, in exchange for never having to assume anything
+ * about the others. A {@link Mode#HEURISTIC} check keeps a frontier of bounded
+ * size and assumes that the nodes outside of it rise by no more than those of
+ * the frontier did. Otherwise the dataset has to be searched again.
+ * 
+ * The coding is frozen at the search: metric values fall into the bin with
+ * the largest smallest value not above them, and values and labels not seen
+ * before get codes of their own. A new search discretizes all rows again, so
+ * the top-k only holds if discretizing all rows again puts them into the same
+ * bins as the frozen coding does.
+ * 
+ * @author Panagiotis Mandros
+ *
+ */
+public class IncrementalState {
+
+	public enum Mode {
+		SOUND, HEURISTIC
+	}
+
+	private static final int MAGIC = 0x464f4953;
+
+	private static final int VERSION = 1;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final String settings;
+
+	private final String caption;
+
+	private final String[] captions;
+
+	private final Coding[] codings;
+
+	private final int target;
+
+	private final int k;
+
+	private final double alpha;
+
+	private final OptimisticEstimator estimator;
+
+	private final double unrecordedBound;
+
+	private final List<Pattern> patterns;
+
+	private int numberOfRows;
+
+	private long[] checksums;
+
+	private int[] targetMarginals;
+
+	/**
+	 * The codes of the values of an attribute
+	 */
+	private static class Coding {
+
+		private final boolean metric;
+
+		/**
+		 * The smallest value of every bin of a metric attribute, increasing
+		 */
+		private double[] lowerBounds = new double[0];
+
+		private int[] binCodes = new int[0];
+
+		private final Map<String, Integer> labelCodes = new HashMap<>();
+
+		private int missingCode = -1;
+
+		private int cardinality;
+
+		private Coding(boolean metric, int cardinality) {
+			this.metric = metric;
+			this.cardinality = cardinality;
+		}
+
+		/**
+		 * The coding of an attribute that gives its rows the given codes
+		 */
+		private static Coding of(Attribute<?> attribute, int[] codes, int cardinality) {
+			Coding coding = new Coding(attribute instanceof MetricAttribute, cardinality);
+			if (coding.metric) {
+				MetricAttribute metric = (MetricAttribute) attribute;
+				double[] smallest = new double[cardinality];
+				Arrays.fill(smallest, Double.NaN);
+				for (int row = 0; row < codes.length; row++) {
+					if (metric.valueMissing(row)) {
+						coding.missingCode = codes[row];
+					} else if (Double.isNaN(smallest[codes[row]]) || metric.value(row) < smallest[codes[row]]) {
+						smallest[codes[row]] = metric.value(row);
+					}
+				}
+				List<Integer> bins = new ArrayList<>();
+				for (int code = 0; code < cardinality; code++) {
+					if (!Double.isNaN(smallest[code])) {
+						bins.add(code);
+					}
+				}
+				bins.sort((first, second) -> Double.compare(smallest[first], smallest[second]));
+				coding.lowerBounds = new double[bins.size()];
+				coding.binCodes = new int[bins.size()];
+				for (int i = 0; i < bins.size(); i++) {
+					coding.lowerBounds[i] = smallest[bins.get(i)];
+					coding.binCodes[i] = bins.get(i);
+				}
+			} else {
+				for (int row = 0; row < codes.length; row++) {
+					if (attribute.valueMissing(row)) {
+						coding.missingCode = codes[row];
+					} else {
+						coding.labelCodes.put(String.valueOf(attribute.value(row)), codes[row]);
+					}
+				}
+			}
+			return coding;
+		}
+
+		private int code(Attribute<?> attribute, int row) {
+			if (attribute.valueMissing(row)) {
+				if (missingCode < 0) {
+					missingCode = cardinality++;
+				}
+				return missingCode;
+			}
+			if (metric) {
+				if (lowerBounds.length == 0) {
+					lowerBounds = new double[] { Double.NEGATIVE_INFINITY };
+					binCodes = new int[] { cardinality++ };
+				}
+				int bin = Math.max(0, EqualFrequency.bin(((MetricAttribute) attribute).value(row), lowerBounds) - 1);
+				return binCodes[bin];
+			}
+			String label = String.valueOf(attribute.value(row));
+			Integer code = labelCodes.get(label);
+			if (code == null) {
+				code = cardinality++;
+				labelCodes.put(label, code);
+			}
+			return code;
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeBoolean(metric);
+			out.writeInt(cardinality);
+			out.writeInt(missingCode);
+			out.writeInt(lowerBounds.length);
+			for (int i = 0; i < lowerBounds.length; i++) {
+				out.writeDouble(lowerBounds[i]);
+				out.writeInt(binCodes[i]);
+			}
+			out.writeInt(labelCodes.size());
+			for (Map.Entry<String, Integer> label : labelCodes.entrySet()) {
+				out.writeUTF(label.getKey());
+				out.writeInt(label.getValue());
+			}
+		}
+
+		private static Coding read(DataInputStream in) throws IOException {
+			Coding coding = new Coding(in.readBoolean(), in.readInt());
+			coding.missingCode = in.readInt();
+			coding.lowerBounds = new double[in.readInt()];
+			coding.binCodes = new int[coding.lowerBounds.length];
+			for (int i = 0; i < coding.lowerBounds.length; i++) {
+				coding.lowerBounds[i] = in.readDouble();
+				coding.binCodes[i] = in.readInt();
+			}
+			int labels = in.readInt();
+			for (int i = 0; i < labels; i++) {
+				coding.labelCodes.put(in.readUTF(), in.readInt());
+			}
+			return coding;
+		}
+	}
+
+	/**
+	 * A dependency of the top-k or the frontier with its contingency table
+	 */
+	private static class Pattern {
+
+		private final int[] attributes;
+
+		private final boolean topK;
+
+		private final boolean pruned;
+
+		private final ContingencyTable contingencyTable;
+
+		private Evaluation evaluation;
+
+		private Pattern(int[] attributes, boolean topK, boolean pruned) {
+			this.attributes = attributes;
+			this.topK = topK;
+			this.pruned = pruned;
+			this.contingencyTable = new ContingencyTable(attributes.length);
+		}
+
+		/**
+		 * The score compared to the k-th best score to tell whether the top-k
+		 * changed, as in {@link Frontier}
+		 */
+		private double relevance(double alpha) {
+			double score = evaluation.reliableFractionOfInformation();
+			return pruned ? Math.max(score, alpha * evaluation.potential()) : score;
+		}
+	}
+
+	/**
+	 * The outcome of checking the top-k again
+	 */
+	public static class Revalidation {
+
+		private final boolean holds;
+
+		private final String reason;
+
+		private final int appendedRows;
+
+		private final List<FunctionalDependency> topK;
+
+		private final boolean heuristic;
+
+		private Revalidation(boolean holds, String reason, int appendedRows, List<FunctionalDependency> topK) {
+			this(holds, reason, appendedRows, topK, false);
+		}
+
+		private Revalidation(boolean holds, String reason, int appendedRows, List<FunctionalDependency> topK,
+				boolean heuristic) {
+			this.holds = holds;
+			this.reason = reason;
+			this.appendedRows = appendedRows;
+			this.topK = topK;
+			this.heuristic = heuristic;
+		}
+
+		/**
+		 * Whether the top-k is the same set of dependencies as before
+		 */
+		public boolean holds() {
+			return holds;
+		}
+
+		/**
+		 * Why the top-k holds or may have changed
+		 */
+		public String reason() {
+			return reason;
+		}
+
+		public int appendedRows() {
+			return appendedRows;
+		}
+
+		/**
+		 * The top-k scored on all rows, in order, if it holds
+		 */
+		public List<FunctionalDependency> topK() {
+			return topK;
+		}
+
+		/**
+		 * Whether the top-k only holds under the assumption of
+		 * {@link Mode#HEURISTIC} about the nodes outside the frontier
+		 */
+		public boolean heuristic() {
+			return heuristic;
+		}
+	}
+
+	private IncrementalState(String settings, String caption, String[] captions, Coding[] codings, int target, int k,
+			double alpha, OptimisticEstimator estimator, double unrecordedBound, List<Pattern> patterns) {
+		this.settings = settings;
+		this.caption = caption;
+		this.captions = captions;
+		this.codings = codings;
+		this.target = target;
+		this.k = k;
+		this.alpha = alpha;
+		this.estimator = estimator;
+		this.unrecordedBound = unrecordedBound;
+		this.patterns = patterns;
+	}
+
+	/**
+	 * The state of a completed search
+	 * 
+	 * @param settings
+	 *            the arguments of the search that change its results, which a
+	 *            later search must have to use the state
+	 * @param codedTable
+	 *            the coded table the dataset was searched with
+	 * @param target
+	 *            the index of the target, starting from 0
+	 */
+	public static IncrementalState of(String settings, DataTable dataTable, CodedTable codedTable, int target,
+			int k, double alpha, OptimisticEstimator estimator, Collection<FunctionalDependency> topK,
+			Frontier frontier) {
+		int numberOfAttributes = dataTable.numberOfAttributes();
+		String[] captions = new String[numberOfAttributes];
+		Coding[] codings = new Coding[numberOfAttributes];
+		for (int attribute = 0; attribute < numberOfAttributes; attribute++) {
+			captions[attribute] = dataTable.attribute(attribute).caption();
+			codings[attribute] = Coding.of(dataTable.attribute(attribute), codedTable.codes(attribute),
+					codedTable.cardinality(attribute));
+		}
+		Map<String, Pattern> patterns = new LinkedHashMap<>();
+		for (FunctionalDependency dependency : topK) {
+			patterns.put(key(dependency.attributes()), new Pattern(dependency.attributes(), true, false));
+		}
+		for (FunctionalDependency dependency : frontier.expanded()) {
+			patterns.putIfAbsent(key(dependency.attributes()), new Pattern(dependency.attributes(), false, false));
+		}
+		for (FunctionalDependency dependency : frontier.pruned()) {
+			Pattern pattern = patterns.get(key(dependency.attributes()));
+			patterns.put(key(dependency.attributes()),
+					new Pattern(dependency.attributes(), pattern != null && pattern.topK, true));
+		}
+		IncrementalState state = new IncrementalState(settings, dataTable.caption(), captions, codings, target, k,
+				alpha, estimator, frontier.unrecordedBound(), new ArrayList<>(patterns.values()));
+		state.numberOfRows = 0;
+		state.checksums = new long[numberOfAttributes];
+		Arrays.fill(state.checksums, FNV_OFFSET);
+		state.targetMarginals = new int[0];
+		state.append(dataTable);
+		state.evaluate();
+		return state;
+	}
+
+	/**
+	 * Codes the rows of the table after those counted so far and adds them to
+	 * the counts
+	 */
+	private void append(DataTable dataTable) {
+		int rows = dataTable.population().size();
+		int[][] columns = new int[codings.length][rows - numberOfRows];
+		for (int attribute = 0; attribute < codings.length; attribute++) {
+			Attribute<?> column = dataTable.attribute(attribute);
+			for (int row = numberOfRows; row < rows; row++) {
+				columns[attribute][row - numberOfRows] = codings[attribute].code(column, row);
+				checksums[attribute] = checksum(checksums[attribute], columns[attribute][row - numberOfRows]);
+			}
+		}
+		targetMarginals = Arrays.copyOf(targetMarginals, Math.max(targetMarginals.length, codings[target].cardinality));
+		for (int code : columns[target]) {
+			targetMarginals[code]++;
+		}
+		for (Pattern pattern : patterns) {
+			for (int row = 0; row < rows - numberOfRows; row++) {
+				pattern.contingencyTable.add(columns, pattern.attributes, row, columns[target][row]);
+			}
+		}
+		numberOfRows = rows;
+	}
+
+	private void evaluate() {
+		ExpectedMutualInformation expectation = new ExpectedMutualInformation(numberOfRows, targetMarginals);
+		for (Pattern pattern : patterns) {
+			pattern.evaluation = FractionOfInformation.evaluate(pattern.contingencyTable, targetMarginals, expectation,
+					estimator);
+		}
+	}
+
+	/**
+	 * Checks the top-k again on the rows of the table, which must start with
+	 * the rows counted so far. The state then counts the appended rows, and is
+	 * only worth keeping if the top-k holds.
+	 * 
+	 * @param codedTable
+	 *            the table discretized again as a new search would
+	 * @param mode
+	 *            how to treat the nodes outside the frontier
+	 */
+	public Revalidation revalidate(DataTable dataTable, CodedTable codedTable, Mode mode) {
+		if (dataTable.numberOfAttributes() != captions.length) {
+			return new Revalidation(false, "the attributes changed", 0, null);
+		}
+		for (int attribute = 0; attribute < captions.length; attribute++) {
+			if (!dataTable.attribute(attribute).caption().equals(captions[attribute])
+					|| (dataTable.attribute(attribute) instanceof MetricAttribute) != codings[attribute].metric) {
+				return new Revalidation(false, "the attributes changed", 0, null);
+			}
+		}
+		int rows = dataTable.population().size();
+		if (rows < numberOfRows) {
+			return new Revalidation(false, "rows were removed", 0, null);
+		}
+		for (int attribute = 0; attribute < captions.length; attribute++) {
+			Attribute<?> column = dataTable.attribute(attribute);
+			long checksum = FNV_OFFSET;
+			for (int row = 0; row < numberOfRows; row++) {
+				checksum = checksum(checksum, codings[attribute].code(column, row));
+			}
+			if (checksum != checksums[attribute]) {
+				return new Revalidation(false, "the rows counted so far changed", 0, null);
+			}
+		}
+		for (int attribute = 0; attribute < captions.length; attribute++) {
+			if (codings[attribute].metric
+					&& !sameBins(codings[attribute], dataTable.attribute(attribute), codedTable.codes(attribute))) {
+				return new Revalidation(false, "discretizing all rows again moves the cut points of "
+						+ captions[attribute], 0, null);
+			}
+		}
+		int appendedRows = rows - numberOfRows;
+		Map<Pattern, Double> relevance = new HashMap<>();
+		for (Pattern pattern : patterns) {
+			relevance.put(pattern, pattern.relevance(alpha));
+		}
+		append(dataTable);
+		evaluate();
+
+		CodedTable header = header();
+		List<FunctionalDependency> topK = new ArrayList<>();
+		for (Pattern pattern : patterns) {
+			if (pattern.topK) {
+				topK.add(new FunctionalDependency(pattern.attributes, header, target, pattern.evaluation));
+			}
+		}
+		topK.sort(FunctionalDependency.ORDER);
+		double threshold = topK.size() < k ? Double.NEGATIVE_INFINITY
+				: topK.get(topK.size() - 1).score();
+		double drift = 0;
+		for (Pattern pattern : patterns) {
+			drift = Math.max(drift, pattern.relevance(alpha) - relevance.get(pattern));
+			double score = pattern.evaluation.reliableFractionOfInformation();
+			if (!pattern.topK && score >= threshold) {
+				return new Revalidation(false, "a dependency of the frontier scores " + score
+						+ ", at least the k-th best score " + threshold, appendedRows, null);
+			}
+			if (pattern.pruned && alpha * pattern.evaluation.potential() >= threshold) {
+				return new Revalidation(false, "a pruned dependency has potential " + pattern.evaluation.potential()
+						+ ", which alpha times is at least the k-th best score " + threshold, appendedRows, null);
+			}
+		}
+		if (unrecordedBound == Double.NEGATIVE_INFINITY) {
+			return new Revalidation(true,
+					"the k-th best score " + threshold + " is above every node of the search", appendedRows, topK);
+		}
+		if (mode == Mode.SOUND) {
+			return new Revalidation(false, "the nodes outside the frontier are only bounded by " + unrecordedBound
+					+ " on the rows of the last search, which only a search without -FRONTIER keeps", appendedRows,
+					null);
+		}
+		if (unrecordedBound + drift >= threshold) {
+			return new Revalidation(false, "the bound " + unrecordedBound + " of the dependencies outside the frontier"
+					+ " plus the drift " + drift + " is at least the k-th best score " + threshold, appendedRows,
+					null);
+		}
+		return new Revalidation(true, "the k-th best score " + threshold + " is above the frontier and the bound "
+				+ unrecordedBound + " plus the drift " + drift, appendedRows, topK, true);
+	}
+
+	/**
+	 * Whether the frozen coding puts two rows into the same bin exactly if the
+	 * codes of the discretization of all rows do
+	 */
+	private static boolean sameBins(Coding coding, Attribute<?> attribute, int[] codes) {
+		int[] frozenCodes = new int[codes.length];
+		int cardinality = 0;
+		for (int row = 0; row < codes.length; row++) {
+			frozenCodes[row] = coding.code(attribute, row);
+			cardinality = Math.max(cardinality, codes[row] + 1);
+		}
+		int[] frozen = new int[cardinality];
+		int[] discretized = new int[coding.cardinality];
+		Arrays.fill(frozen, -1);
+		Arrays.fill(discretized, -1);
+		for (int row = 0; row < codes.length; row++) {
+			if (frozen[codes[row]] < 0 && discretized[frozenCodes[row]] < 0) {
+				frozen[codes[row]] = frozenCodes[row];
+				discretized[frozenCodes[row]] = codes[row];
+			} else if (frozen[codes[row]] != frozenCodes[row] || discretized[frozenCodes[row]] != codes[row]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The attributes and cardinalities of the dataset, without rows, for the
+	 * captions of dependencies
+	 */
+	private CodedTable header() {
+		int[] cardinalities = new int[codings.length];
+		for (int attribute = 0; attribute < codings.length; attribute++) {
+			cardinalities[attribute] = codings[attribute].cardinality;
+		}
+		return new CodedTable(caption, captions, new int[codings.length][0], cardinalities);
+	}
+
+	/**
+	 * Whether the state was written by a search with the same settings
+	 */
+	public boolean matches(String settings) {
+		return this.settings.equals(settings);
+	}
+
+	public int numberOfRows() {
+		return numberOfRows;
+	}
+
+	/**
+	 * The number of dependencies whose contingency tables are kept
+	 */
+	public int numberOfPatterns() {
+		return patterns.size();
+	}
+
+	/**
+	 * Writes to a temporary file first, so that an interrupted write leaves
+	 * the previous state
+	 * 
+	 * @return the bytes written
+	 */
+	public long write(Path file) throws IOException {
+		Path directory = file.toAbsolutePath().getParent();
+		Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(settings);
+			out.writeUTF(caption);
+			out.writeInt(target);
+			out.writeInt(k);
+			out.writeDouble(alpha);
+			out.writeUTF(estimator.toString());
+			out.writeDouble(unrecordedBound);
+			out.writeInt(numberOfRows);
+			out.writeInt(captions.length);
+			for (int attribute = 0; attribute < captions.length; attribute++) {
+				out.writeUTF(captions[attribute]);
+				codings[attribute].write(out);
+				out.writeLong(checksums[attribute]);
+			}
+			writeInts(out, targetMarginals);
+			out.writeInt(patterns.size());
+			for (Pattern pattern : patterns) {
+				writeInts(out, pattern.attributes);
+				out.writeBoolean(pattern.topK);
+				out.writeBoolean(pattern.pruned);
+				out.writeInt(pattern.contingencyTable.size());
+				IOException[] failure = new IOException[1];
+				pattern.contingencyTable.forEach((codes, counts) -> {
+					try {
+						writeInts(out, codes);
+						writeInts(out, counts);
+					} catch (IOException e) {
+						failure[0] = e;
+					}
+				});
+				if (failure[0] != null) {
+					throw failure[0];
+				}
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return Files.size(file);
+	}
+
+	public static IncrementalState read(Path file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException(file + " is not an incremental state of this version");
+			}
+			String settings = in.readUTF();
+			String caption = in.readUTF();
+			int target = in.readInt();
+			int k = in.readInt();
+			double alpha = in.readDouble();
+			OptimisticEstimator estimator = OptimisticEstimator.valueOf(in.readUTF());
+			double unrecordedBound = in.readDouble();
+			int numberOfRows = in.readInt();
+			String[] captions = new String[in.readInt()];
+			Coding[] codings = new Coding[captions.length];
+			long[] checksums = new long[captions.length];
+			for (int attribute = 0; attribute < captions.length; attribute++) {
+				captions[attribute] = in.readUTF();
+				codings[attribute] = Coding.read(in);
+				checksums[attribute] = in.readLong();
+			}
+			int[] targetMarginals = readInts(in);
+			int numberOfPatterns = in.readInt();
+			List<Pattern> patterns = new ArrayList<>(numberOfPatterns);
+			for (int i = 0; i < numberOfPatterns; i++) {
+				Pattern pattern = new Pattern(readInts(in), in.readBoolean(), in.readBoolean());
+				int cells = in.readInt();
+				for (int cell = 0; cell < cells; cell++) {
+					pattern.contingencyTable.add(readInts(in), readInts(in));
+				}
+				patterns.add(pattern);
+			}
+			IncrementalState state = new IncrementalState(settings, caption, captions, codings, target, k, alpha,
+					estimator, unrecordedBound, patterns);
+			state.numberOfRows = numberOfRows;
+			state.checksums = checksums;
+			state.targetMarginals = targetMarginals;
+			state.evaluate();
+			return state;
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		out.writeInt(values.length);
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	private static int[] readInts(DataInputStream in) throws IOException {
+		int[] values = new int[in.readInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	/**
+	 * Adds a code to an FNV-1a checksum
+	 */
+	private static long checksum(long checksum, int code) {
+		for (int shift = 0; shift < 32; shift += 8) {
+			checksum = (checksum ^ ((code >>> shift) & 0xff)) * FNV_PRIME;
+		}
+		return checksum;
+	}
+
+	private static String key(int[] attributes) {
+		int[] sorted = attributes.clone();
+		Arrays.sort(sorted);
+		return Arrays.toString(sorted);
+	}
+
+}
@@ -25,6 +25,14 @@
 
 package utils;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import de.mpiinf.fodiscovery.io.ResultsWriter;
+import de.mpiinf.fodiscovery.scoring.PartitionCache;
+import de.mpiinf.fodiscovery.search.ProgressiveSearch;
 import de.unibonn.realkd.algorithms.beamsearch.NewBeamSearch.RefinementPropagation;
 
 /**
@@ -51,6 +59,31 @@ public class Utilities {
 	public static final RefinementPropagation REF_PROP = RefinementPropagation.NON_REDUNDANT;
 	public static final double ALPHA = 1;
 	public static final int BEAM_WIDTH = 5;
+	public static final int THREADS = 1;
+	public static final int CACHE_MB = 1024;
+	public static final int SKETCH_K = 200;
+	public static final ProgressiveSearch.Stability STABILITY = ProgressiveSearch.Stability.RANKING;
+	public static final int STABLE_STAGES = 1;
+
+	public static final int PARTITION_CACHE_MB = PartitionCache.BUDGET_MB;
+
+	public static final int PORT = 8642;
+	public static final int JOBS = 1;
+	public static final int QUEUE = 16;
+	public static final int FRONTIER = 20;
+	public static final IncrementalState.Mode REVALIDATION = IncrementalState.Mode.SOUND;
+
+	public static final int ROWS = 10000;
+	public static final int ATTRIBUTES = 10;
+	public static final double CATEGORIC = 0.5;
+	public static final int CARDINALITY = 5;
+	public static final int DEPENDENCY_SIZE = 3;
+	public static final double NOISE = 0.1;
+	public static final long SEED = 0;
+	public static final int WARMUP = 1;
+	public static final int REPETITIONS = 3;
+	public static final double TIME_THRESHOLD = 0.25;
+	public static final double NODES_THRESHOLD = 0;
 
 	public static int maxBins(String args[]) {
 		int numBins = NUM_MAX_BINS;
@@ -137,6 +170,40 @@ public class Utilities {
 		return target;
 	}
 
+	/**
+	 * The targets of -TARGET, starting from 1. Besides a single index, ALL
+	 * gives every attribute and a comma-separated list gives several. The
+	 * default is the last attribute.
+	 */
+	public static int[] targets(String args[], int numberOfAttributes) {
+		int[] targets = { numberOfAttributes };
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-TARGET")) {
+				String targetsToStr = args[i + 1];
+				if (targetsToStr.equals("ALL")) {
+					targets = new int[numberOfAttributes];
+					for (int target = 1; target <= numberOfAttributes; target++) {
+						targets[target - 1] = target;
+					}
+				} else {
+					String[] indices = targetsToStr.split(",");
+					targets = new int[indices.length];
+					for (int j = 0; j < indices.length; j++) {
+						targets[j] = Integer.parseInt(indices[j].trim());
+						if (targets[j] < 1 || targets[j] > numberOfAttributes) {
+							throw new IllegalArgumentException(
+									"Illegal value target attribute index. Should be between 1 and total number of attributes");
+						}
+					}
+				}
+				break;
+			}
+		}
+		return targets;
+	}
+
 	public static de.unibonn.realkd.algorithms.functional.OPUSFunctionalPatternSearch.OptimisticEstimatorOption optOPUS(
 			String args[]) {
 		de.unibonn.realkd.algorithms.functional.OPUSFunctionalPatternSearch.OptimisticEstimatorOption optOption = OPT_OPUS;
@@ -171,13 +238,13 @@ public class Utilities {
 				String optEstimatorToStr = (args[i + 1]);
 				if (optEstimatorToStr.equals("COP")) {
 					discTypeOption = de.unibonn.realkd.algorithms.functional.OPUSFunctionalPatternSearch.DiscretizationTypeOption.COP;
-				} else if (optEstimatorToStr.equals("EF")) {
+				} else if (optEstimatorToStr.equals("EF") || optEstimatorToStr.equals("EF_SKETCH")) {
 					discTypeOption = de.unibonn.realkd.algorithms.functional.OPUSFunctionalPatternSearch.DiscretizationTypeOption.EF;
 				} else if (optEstimatorToStr.equals("PRE")) {
 					discTypeOption = de.unibonn.realkd.algorithms.functional.OPUSFunctionalPatternSearch.DiscretizationTypeOption.PRE;
 				} else {
 					throw new IllegalArgumentException(
-							"Wrong discretization type argument. Valid options are COP, EF, PRE");
+							"Wrong discretization type argument. Valid options are COP, EF, EF_SKETCH, PRE");
 				}
 				break;
 			}
@@ -221,13 +288,13 @@ public class Utilities {
 				String optEstimatorToStr = (args[i + 1]);
 				if (optEstimatorToStr.equals("COP")) {
 					discTypeOption = de.unibonn.realkd.algorithms.functional.BeamFunctionalPatternSearch.DiscretizationTypeOption.COP;
-				} else if (optEstimatorToStr.equals("EF")) {
+				} else if (optEstimatorToStr.equals("EF") || optEstimatorToStr.equals("EF_SKETCH")) {
 					discTypeOption = de.unibonn.realkd.algorithms.functional.BeamFunctionalPatternSearch.DiscretizationTypeOption.EF;
 				} else if (optEstimatorToStr.equals("PRE")) {
 					discTypeOption = de.unibonn.realkd.algorithms.functional.BeamFunctionalPatternSearch.DiscretizationTypeOption.PRE;
 				} else {
 					throw new IllegalArgumentException(
-							"Wrong discretization type argument. Valid options are COP, EF, PRE");
+							"Wrong discretization type argument. Valid options are COP, EF, EF_SKETCH, PRE");
 				}
 				break;
 			}
@@ -235,6 +302,70 @@ public class Utilities {
 		return discTypeOption;
 	}
 
+	/**
+	 * Whether equal-frequency cut points are picked from quantile sketches
+	 * (-DISCTYPE EF_SKETCH), which is only available with -ENGINE NATIVE
+	 */
+	public static boolean sketchDiscretization(String args[]) {
+		boolean sketchDiscretization = false;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-DISCTYPE")) {
+				sketchDiscretization = args[i + 1].equals("EF_SKETCH");
+				break;
+			}
+		}
+		return sketchDiscretization;
+	}
+
+	/**
+	 * The discretization type as given, for the names of output files
+	 */
+	public static String discTypeName(String args[]) {
+		return sketchDiscretization(args) ? "EF_SKETCH" : discTypeOPUS(args).toString();
+	}
+
+	public static int sketchK(String args[]) {
+		int sketchK = SKETCH_K;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-SKETCH_K")) {
+				sketchK = Integer.parseInt(args[i + 1]);
+				if (sketchK < 8) {
+					throw new IllegalArgumentException("Illegal value for sketch size. Should be greater or equal to 8");
+				}
+				break;
+			}
+		}
+		return sketchK;
+	}
+
+	/**
+	 * Whether to search with the scoring engine and search drivers of this
+	 * project (-ENGINE NATIVE) instead of those of realKD (-ENGINE REALKD)
+	 */
+	public static boolean nativeEngine(String args[]) {
+		boolean nativeEngine = false;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-ENGINE")) {
+				String engineToStr = (args[i + 1]);
+				if (engineToStr.equals("NATIVE")) {
+					nativeEngine = true;
+				} else if (engineToStr.equals("REALKD")) {
+					nativeEngine = false;
+				} else {
+					throw new IllegalArgumentException("Wrong engine argument. Valid options are REALKD, NATIVE");
+				}
+				break;
+			}
+		}
+		return nativeEngine;
+	}
+
 	public static RefinementPropagation refOpt(String args[]) {
 		RefinementPropagation refOption = REF_PROP;
 		int i;
@@ -272,20 +403,706 @@ public class Utilities {
 		return beamWidth;
 	}
 
+	public static int threads(String args[]) {
+		int threads = THREADS;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-THREADS")) {
+				threads = Integer.parseInt(args[i + 1]);
+				if (threads < 1) {
+					throw new IllegalArgumentException("Illegal value for number of threads. Should be greater or equal to 1");
+				}
+				break;
+			}
+		}
+		return threads;
+	}
+
+	/**
+	 * The wall-clock budget of a search in milliseconds, given in seconds, or 0
+	 * for none
+	 */
+	public static long timeout(String args[]) {
+		long timeout = 0;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-TIMEOUT")) {
+				double seconds = Double.parseDouble(args[i + 1]);
+				if (seconds <= 0) {
+					throw new IllegalArgumentException("Illegal value for timeout. Should be greater than 0");
+				}
+				timeout = (long) Math.ceil(seconds * 1000);
+				break;
+			}
+		}
+		return timeout;
+	}
+
+	/**
+	 * The interval between progress reports of the search in milliseconds, or
+	 * 0 for none
+	 */
+	public static long progress(String args[]) {
+		long progress = 0;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-PROGRESS")) {
+				double seconds = Double.parseDouble(args[i + 1]);
+				if (seconds <= 0) {
+					throw new IllegalArgumentException(
+							"Illegal value for progress interval. Should be greater than 0");
+				}
+				progress = (long) Math.ceil(seconds * 1000);
+				break;
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * The file to append the progress reports to, or empty for standard error
+	 */
+	public static String progressFile(String args[]) {
+		String progressFile = "";
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-PROGRESS_FILE")) {
+				progressFile = args[i + 1];
+				break;
+			}
+		}
+		return progressFile;
+	}
+
+	/**
+	 * Opens the stream for the progress reports, which flushes every line
+	 */
+	public static PrintStream progressStream(String args[]) throws IOException {
+		String progressFile = progressFile(args);
+		if (progressFile.isEmpty()) {
+			return System.err;
+		}
+		return new PrintStream(new FileOutputStream(progressFile, true), true, "UTF-8");
+	}
+
+	/**
+	 * The interval between checkpoints of the search in milliseconds, or 0 for
+	 * none
+	 */
+	public static long checkpoint(String args[]) {
+		long checkpoint = 0;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-CHECKPOINT")) {
+				double seconds = Double.parseDouble(args[i + 1]);
+				if (seconds <= 0) {
+					throw new IllegalArgumentException(
+							"Illegal value for checkpoint interval. Should be greater than 0");
+				}
+				checkpoint = (long) Math.ceil(seconds * 1000);
+				break;
+			}
+		}
+		return checkpoint;
+	}
+
+	/**
+	 * The checkpoint to resume the search from, or empty to start it from the
+	 * root
+	 */
+	public static String resume(String args[]) {
+		String resume = "";
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-RESUME")) {
+				resume = args[i + 1];
+				break;
+			}
+		}
+		return resume;
+	}
+
+	/**
+	 * The file to keep the incremental state of the search in, or empty for
+	 * none
+	 */
+	public static String state(String args[]) {
+		String state = "";
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-STATE")) {
+				state = args[i + 1];
+				break;
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * The number of nodes of the frontier kept in the incremental state. It is
+	 * unbounded by default under {@link IncrementalState.Mode#SOUND}, which
+	 * can only revalidate if every node is kept, and {@link #FRONTIER} under
+	 * {@link IncrementalState.Mode#HEURISTIC}.
+	 */
+	public static int frontier(String args[]) {
+		int frontier = revalidation(args) == IncrementalState.Mode.SOUND ? Integer.MAX_VALUE : FRONTIER;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-FRONTIER")) {
+				frontier = Integer.parseInt(args[i + 1]);
+				if (frontier < 1) {
+					throw new IllegalArgumentException(
+							"Illegal value for frontier size. Should be greater or equal to 1");
+				}
+				break;
+			}
+		}
+		return frontier;
+	}
+
+	/**
+	 * How the incremental state treats the nodes outside the frontier
+	 */
+	public static IncrementalState.Mode revalidation(String args[]) {
+		IncrementalState.Mode revalidation = REVALIDATION;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-REVALIDATION")) {
+				String revalidationToStr = (args[i + 1]);
+				if (revalidationToStr.equals("SOUND")) {
+					revalidation = IncrementalState.Mode.SOUND;
+				} else if (revalidationToStr.equals("HEURISTIC")) {
+					revalidation = IncrementalState.Mode.HEURISTIC;
+				} else {
+					throw new IllegalArgumentException("Wrong revalidation argument. Valid options are SOUND, HEURISTIC");
+				}
+				break;
+			}
+		}
+		return revalidation;
+	}
+
+	/**
+	 * The local port the discovery server listens on
+	 */
+	public static int port(String args[]) {
+		int port = PORT;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-PORT")) {
+				port = Integer.parseInt(args[i + 1]);
+				if (port < 0 || port > 65535) {
+					throw new IllegalArgumentException("Illegal value for port. Should be between 0 and 65535");
+				}
+				break;
+			}
+		}
+		return port;
+	}
+
+	/**
+	 * The number of jobs the discovery server runs at the same time
+	 */
+	public static int jobs(String args[]) {
+		int jobs = JOBS;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-JOBS")) {
+				jobs = Integer.parseInt(args[i + 1]);
+				if (jobs < 1) {
+					throw new IllegalArgumentException("Illegal value for number of jobs. Should be greater or equal to 1");
+				}
+				break;
+			}
+		}
+		return jobs;
+	}
+
+	/**
+	 * The number of jobs the discovery server queues while others run, beyond
+	 * which jobs are rejected
+	 */
+	public static int queue(String args[]) {
+		int queue = QUEUE;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-QUEUE")) {
+				queue = Integer.parseInt(args[i + 1]);
+				if (queue < 1) {
+					throw new IllegalArgumentException("Illegal value for queue size. Should be greater or equal to 1");
+				}
+				break;
+			}
+		}
+		return queue;
+	}
+
+	/**
+	 * The estimated heap of the boundary of the OPUS search in megabytes
+	 * beyond which nodes are spilled to disk, or 0 to keep them all in memory
+	 */
+	public static int boundaryMB(String args[]) {
+		int boundaryMB = 0;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-BOUNDARY_MB")) {
+				boundaryMB = Integer.parseInt(args[i + 1]);
+				if (boundaryMB < 0) {
+					throw new IllegalArgumentException(
+							"Illegal value for boundary size. Should be greater or equal to 0");
+				}
+				break;
+			}
+		}
+		return boundaryMB;
+	}
+
+	/**
+	 * The directory to spill the boundary of the OPUS search to
+	 */
+	public static String spillDirectory(String args[]) {
+		String spillDirectory = System.getProperty("java.io.tmpdir");
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-SPILL_DIR")) {
+				spillDirectory = args[i + 1];
+				break;
+			}
+		}
+		return spillDirectory;
+	}
+
+	public static int partitionCacheMB(String args[]) {
+		int partitionCacheMB = PARTITION_CACHE_MB;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-PARTITION_CACHE_MB")) {
+				partitionCacheMB = Integer.parseInt(args[i + 1]);
+				if (partitionCacheMB < 0) {
+					throw new IllegalArgumentException(
+							"Illegal value for partition cache size. Should be greater or equal to 0");
+				}
+				break;
+			}
+		}
+		return partitionCacheMB;
+	}
+
+	public static int cacheMB(String args[]) {
+		int cacheMB = CACHE_MB;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-CACHE_MB")) {
+				cacheMB = Integer.parseInt(args[i + 1]);
+				if (cacheMB < 0) {
+					throw new IllegalArgumentException("Illegal value for dataset cache size. Should be greater or equal to 0");
+				}
+				break;
+			}
+		}
+		return cacheMB;
+	}
+
+	public static int rows(String args[]) {
+		int rows = ROWS;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-ROWS")) {
+				rows = Integer.parseInt(args[i + 1]);
+				if (rows < 1) {
+					throw new IllegalArgumentException("Illegal value for number of rows. Should be greater or equal to 1");
+				}
+				break;
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * The number of attributes of a generated dataset, including the target
+	 */
+	public static int numberOfAttributes(String args[]) {
+		int numberOfAttributes = ATTRIBUTES;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-ATTRIBUTES")) {
+				numberOfAttributes = Integer.parseInt(args[i + 1]);
+				if (numberOfAttributes < 2) {
+					throw new IllegalArgumentException(
+							"Illegal value for number of attributes. Should be greater or equal to 2");
+				}
+				break;
+			}
+		}
+		return numberOfAttributes;
+	}
+
+	/**
+	 * The fraction of the descriptors of a generated dataset that are
+	 * categorical, the others are numeric
+	 */
+	public static double categoric(String args[]) {
+		double categoric = CATEGORIC;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-CATEGORIC")) {
+				categoric = Double.parseDouble(args[i + 1]);
+				if (categoric < 0 || categoric > 1) {
+					throw new IllegalArgumentException("Illegal value for fraction of categoric attributes. Range should be [0,1]");
+				}
+				break;
+			}
+		}
+		return categoric;
+	}
+
+	public static int cardinality(String args[]) {
+		int cardinality = CARDINALITY;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-CARDINALITY")) {
+				cardinality = Integer.parseInt(args[i + 1]);
+				if (cardinality < 2) {
+					throw new IllegalArgumentException("Illegal value for cardinality. Should be greater or equal to 2");
+				}
+				break;
+			}
+		}
+		return cardinality;
+	}
+
+	public static int dependencySize(String args[]) {
+		int dependencySize = DEPENDENCY_SIZE;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-DEPENDENCY_SIZE")) {
+				dependencySize = Integer.parseInt(args[i + 1]);
+				if (dependencySize < 1) {
+					throw new IllegalArgumentException("Illegal value for dependency size. Should be greater or equal to 1");
+				}
+				break;
+			}
+		}
+		return dependencySize;
+	}
+
+	public static double noise(String args[]) {
+		double noise = NOISE;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-NOISE")) {
+				noise = Double.parseDouble(args[i + 1]);
+				if (noise < 0 || noise > 1) {
+					throw new IllegalArgumentException("Illegal value for noise. Range should be [0,1]");
+				}
+				break;
+			}
+		}
+		return noise;
+	}
+
+	public static long seed(String args[]) {
+		long seed = SEED;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-SEED")) {
+				seed = Long.parseLong(args[i + 1]);
+				break;
+			}
+		}
+		return seed;
+	}
+
+	/**
+	 * The increasing fractions of the rows of the stages of a progressive
+	 * search, ending with 1, or empty to search all rows at once
+	 */
+	public static double[] progressive(String args[]) {
+		String[] values = values(args, "-PROGRESSIVE");
+		double[] fractions = new double[values.length];
+		for (int i = 0; i < values.length; i++) {
+			fractions[i] = Double.parseDouble(values[i].trim());
+			if (fractions[i] <= 0 || fractions[i] > 1 || (i > 0 && fractions[i] <= fractions[i - 1])) {
+				throw new IllegalArgumentException(
+						"Illegal value for progressive fractions. Should be increasing and between 0 (exclusive) and 1 (inclusive)");
+			}
+		}
+		if (fractions.length > 0 && fractions[fractions.length - 1] < 1) {
+			fractions = Arrays.copyOf(fractions, fractions.length + 1);
+			fractions[fractions.length - 1] = 1;
+		}
+		return fractions;
+	}
+
+	public static ProgressiveSearch.Stability stability(String args[]) {
+		ProgressiveSearch.Stability stability = STABILITY;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-STABILITY")) {
+				String stabilityToStr = (args[i + 1]);
+				if (stabilityToStr.equals("RANKING")) {
+					stability = ProgressiveSearch.Stability.RANKING;
+				} else if (stabilityToStr.equals("SET")) {
+					stability = ProgressiveSearch.Stability.SET;
+				} else {
+					throw new IllegalArgumentException("Wrong stability argument. Valid options are RANKING, SET");
+				}
+				break;
+			}
+		}
+		return stability;
+	}
+
+	public static int stableStages(String args[]) {
+		int stableStages = STABLE_STAGES;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-STABLE_STAGES")) {
+				stableStages = Integer.parseInt(args[i + 1]);
+				if (stableStages < 1) {
+					throw new IllegalArgumentException(
+							"Illegal value for number of stable stages. Should be greater or equal to 1");
+				}
+				break;
+			}
+		}
+		return stableStages;
+	}
+
+	/**
+	 * The file format of generated datasets, arff, csv or fodc
+	 */
+	public static String datasetFormat(String args[]) {
+		String datasetFormat = "arff";
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-DATASET_FORMAT")) {
+				datasetFormat = args[i + 1];
+				if (!datasetFormat.equals("arff") && !datasetFormat.equals("csv") && !datasetFormat.equals("fodc")) {
+					throw new IllegalArgumentException("Illegal value for dataset format. Should be arff, csv or fodc");
+				}
+				break;
+			}
+		}
+		return datasetFormat;
+	}
+
+	/**
+	 * The format of the results written next to the text output file, TEXT for
+	 * none
+	 */
+	public static ResultsWriter.Format format(String args[]) {
+		ResultsWriter.Format format = ResultsWriter.Format.TEXT;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-FORMAT")) {
+				String formatToStr = args[i + 1];
+				if (formatToStr.equals("text")) {
+					format = ResultsWriter.Format.TEXT;
+				} else if (formatToStr.equals("json")) {
+					format = ResultsWriter.Format.JSON;
+				} else if (formatToStr.equals("csv")) {
+					format = ResultsWriter.Format.CSV;
+				} else {
+					throw new IllegalArgumentException("Illegal value for output format. Should be text, json or csv");
+				}
+				break;
+			}
+		}
+		return format;
+	}
+
+	/**
+	 * Arguments to pass on to every search, as one string
+	 */
+	public static String[] searchArgs(String args[]) {
+		String searchArgs = "";
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-SEARCH_ARGS")) {
+				searchArgs = args[i + 1].trim();
+				break;
+			}
+		}
+		return searchArgs.isEmpty() ? new String[0] : searchArgs.split("\\s+");
+	}
+
+	public static int warmup(String args[]) {
+		int warmup = WARMUP;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-WARMUP")) {
+				warmup = Integer.parseInt(args[i + 1]);
+				if (warmup < 0) {
+					throw new IllegalArgumentException("Illegal value for warmup runs. Should be greater or equal to 0");
+				}
+				break;
+			}
+		}
+		return warmup;
+	}
+
+	public static int repetitions(String args[]) {
+		int repetitions = REPETITIONS;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-REPETITIONS")) {
+				repetitions = Integer.parseInt(args[i + 1]);
+				if (repetitions < 1) {
+					throw new IllegalArgumentException("Illegal value for repetitions. Should be greater or equal to 1");
+				}
+				break;
+			}
+		}
+		return repetitions;
+	}
+
+	/**
+	 * The relative increase of the running time over the baseline that counts
+	 * as a regression
+	 */
+	public static double timeThreshold(String args[]) {
+		double timeThreshold = TIME_THRESHOLD;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-TIME_THRESHOLD")) {
+				timeThreshold = Double.parseDouble(args[i + 1]);
+				if (timeThreshold < 0) {
+					throw new IllegalArgumentException("Illegal value for time threshold. Should be greater or equal to 0");
+				}
+				break;
+			}
+		}
+		return timeThreshold;
+	}
+
+	/**
+	 * The relative increase of the nodes created over the baseline that counts
+	 * as a regression
+	 */
+	public static double nodesThreshold(String args[]) {
+		double nodesThreshold = NODES_THRESHOLD;
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-NODES_THRESHOLD")) {
+				nodesThreshold = Double.parseDouble(args[i + 1]);
+				if (nodesThreshold < 0) {
+					throw new IllegalArgumentException("Illegal value for nodes threshold. Should be greater or equal to 0");
+				}
+				break;
+			}
+		}
+		return nodesThreshold;
+	}
+
+	/**
+	 * The value of a file option, or empty if it is missing
+	 */
+	public static String file(String args[], String option) {
+		String file = "";
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals(option)) {
+				file = args[i + 1];
+				break;
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * The comma-separated values of an option, or an empty array if it is
+	 * missing
+	 */
+	public static String[] values(String args[], String option) {
+		String[] values = {};
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals(option)) {
+				values = args[i + 1].split(",");
+				break;
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * The alpha of the search, which is the largest one if -ALPHA is a list
+	 */
 	public static double alpha(String args[]) {
-		double alpha = ALPHA;
+		double[] alphas = alphas(args);
+		return alphas[alphas.length - 1];
+	}
+
+	/**
+	 * The distinct alphas of -ALPHA, a comma-separated list, in increasing
+	 * order
+	 */
+	public static double[] alphas(String args[]) {
+		double[] alphas = { ALPHA };
 		int i;
 		int total = args.length - 1;
 		for (i = 0; i < total; i++) {
 			if (args[i].equals("-ALPHA")) {
-				alpha = Double.parseDouble(args[i + 1]);
-				if (alpha <= 0 && alpha > 1) {
-					throw new IllegalArgumentException("Illegal value for alpha. Range should be (0,1]");
+				String[] values = args[i + 1].split(",");
+				alphas = new double[values.length];
+				for (int j = 0; j < values.length; j++) {
+					alphas[j] = Double.parseDouble(values[j]);
+					if (alphas[j] <= 0 || alphas[j] > 1) {
+						throw new IllegalArgumentException("Illegal value for alpha. Range should be (0,1]");
+					}
 				}
+				alphas = Arrays.stream(alphas).sorted().distinct().toArray();
 				break;
 			}
 		}
-		return alpha;
+		return alphas;
+	}
+
+	/**
+	 * The alphas of -ALPHA as in the names of output files, separated by
+	 * commas
+	 */
+	public static String alphaName(String args[]) {
+		StringBuilder name = new StringBuilder();
+		for (double alpha : alphas(args)) {
+			name.append(name.length() == 0 ? "" : ",").append(alpha);
+		}
+		return name.toString();
 	}
 
 	public static String dataset(String args[]) {
@@ -327,6 +1144,32 @@ public class Utilities {
 		}
 	}
 
+	public static String discCache(String args[]) {
+		String discCache = "";
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-DISC_CACHE")) {
+				discCache = args[i + 1];
+				break;
+			}
+		}
+		return discCache;
+	}
+
+	public static String output(String args[]) {
+		String output = "";
+		int i;
+		int total = args.length - 1;
+		for (i = 0; i < total; i++) {
+			if (args[i].equals("-OUTPUT")) {
+				output = args[i + 1];
+				break;
+			}
+		}
+		return output;
+	}
+
 	public static String input(String args[]) {
 		String input = "";
 		int i;